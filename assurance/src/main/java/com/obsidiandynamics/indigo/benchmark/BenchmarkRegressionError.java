@@ -0,0 +1,12 @@
+package com.obsidiandynamics.indigo.benchmark;
+
+/**
+ *  Thrown by a {@link RegressionGuard} when a benchmark has regressed against its baseline.
+ */
+public final class BenchmarkRegressionError extends AssertionError {
+  private static final long serialVersionUID = 1L;
+
+  BenchmarkRegressionError(String message) {
+    super(message);
+  }
+}
@@ -1,7 +1,44 @@
 package com.obsidiandynamics.indigo.benchmark;
 
+import java.lang.management.*;
+
 public interface BenchmarkSupport {
   static void forceGC() {
     System.gc();
   }
+  
+  /**
+   *  Obtains the cumulative number of bytes allocated by all live threads, where the JVM supports
+   *  thread allocation metering.
+   *  
+   *  @return The number of bytes allocated, or {@code -1} if metering is unsupported.
+   */
+  static long getAllocatedBytes() {
+    final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      long total = 0;
+      for (long allocated : ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+        if (allocated > 0) total += allocated;
+      }
+      return total;
+    } else {
+      return -1;
+    }
+  }
+  
+  /**
+   *  Obtains the cumulative number of bytes allocated by the given thread, where the JVM supports
+   *  thread allocation metering.
+   *  
+   *  @param thread The thread.
+   *  @return The number of bytes allocated, or {@code -1} if metering is unsupported.
+   */
+  static long getAllocatedBytes(Thread thread) {
+    final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(thread.getId());
+    } else {
+      return -1;
+    }
+  }
 }
@@ -0,0 +1,234 @@
+package com.obsidiandynamics.indigo.benchmark;
+
+import static java.lang.String.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import org.apache.commons.math3.stat.inference.*;
+
+/**
+ *  Compares the kept runs of a benchmark against a stored baseline, failing the benchmark if either
+ *  its throughput or its tail (99th percentile) latency has regressed.<p>
+ *
+ *  Every checked run is appended to a CSV history file named <code>&lt;name&gt;.csv</code>, one row per
+ *  kept run, in {@link #directory}. The baseline is kept alongside, in <code>&lt;name&gt;.baseline.csv</code>;
+ *  it is recorded from the first checked run, and is only replaced thereafter when {@link #updateBaseline}
+ *  is set.<p>
+ *
+ *  A metric is deemed to have regressed when its median over the kept runs is worse than the baseline
+ *  median by more than the threshold, <em>and</em> a two-sided Mann-Whitney U test rejects the hypothesis
+ *  that the current and the baseline runs are drawn from the same distribution at the given significance
+ *  level. Both conditions are needed: the first ignores statistically real but negligible changes, while
+ *  the second ignores large swings that are down to noise. Given the small samples involved, at least
+ *  four or five kept runs are needed for a difference to be deemed significant.
+ */
+public class RegressionGuard {
+  private static final String HEADER = "run,timestamp,throughput_ops,p50_latency_us,p99_latency_us";
+
+  /** The name of the benchmark, used as the prefix of the history and baseline files. */
+  public final String name;
+
+  /** The directory holding the history and baseline files. Defaults to <code>benchmark-history</code> in the 
+   *  working directory, rather than under <code>build</code>, so that the baselines survive a clean build and 
+   *  can be committed. */
+  public File directory = new File(System.getProperty("indigo.benchmark.historyDir", "benchmark-history"));
+
+  /** The tolerated fractional drop in the median throughput. */
+  public double throughputThreshold = .05;
+
+  /** The tolerated fractional rise in the median 99th percentile latency. */
+  public double latencyThreshold = .10;
+
+  /** The p-value below which a difference from the baseline is deemed significant. */
+  public double significance = .05;
+
+  /** Whether the current runs should replace the baseline, rather than be compared against it. */
+  public boolean updateBaseline = Boolean.getBoolean("indigo.benchmark.updateBaseline");
+
+  public PrintStream out = System.out;
+
+  public RegressionGuard(String name) {
+    this.name = name;
+  }
+
+  /**
+   *  The outcome of comparing a single metric against the baseline.
+   */
+  public static final class Comparison {
+    private final String metric;
+    private final double baselineMedian;
+    private final double currentMedian;
+    private final double pValue;
+    private final boolean regressed;
+
+    Comparison(String metric, double baselineMedian, double currentMedian, double pValue, boolean regressed) {
+      this.metric = metric;
+      this.baselineMedian = baselineMedian;
+      this.currentMedian = currentMedian;
+      this.pValue = pValue;
+      this.regressed = regressed;
+    }
+
+    public String getMetric() {
+      return metric;
+    }
+
+    public double getBaselineMedian() {
+      return baselineMedian;
+    }
+
+    public double getCurrentMedian() {
+      return currentMedian;
+    }
+
+    public double getChange() {
+      return currentMedian / baselineMedian - 1;
+    }
+
+    public double getPValue() {
+      return pValue;
+    }
+
+    public boolean isRegressed() {
+      return regressed;
+    }
+
+    @Override
+    public String toString() {
+      return format("%s: %,.1f -> %,.1f (%+.1f%%, p=%.3f)%s",
+                    metric, baselineMedian, currentMedian, getChange() * 100, pValue, regressed ? " REGRESSED" : "");
+    }
+  }
+
+  /**
+   *  Records the given runs in the history and compares them against the baseline, recording a new
+   *  baseline if none exists, or if {@link #updateBaseline} is set.
+   *
+   *  @param summaries The kept runs.
+   *  @return The comparisons against the baseline; empty if the runs became the new baseline.
+   *  @throws IOException If the history or baseline files couldn't be read or written.
+   *  @throws BenchmarkRegressionError If any of the metrics has regressed.
+   */
+  public List<Comparison> check(List<Summary> summaries) throws IOException {
+    final List<double[]> rows = new ArrayList<>(summaries.size());
+    for (Summary summary : summaries) {
+      rows.add(toRow(summary));
+    }
+
+    Files.createDirectories(directory.toPath());
+    final String run = String.valueOf(System.currentTimeMillis());
+    final String timestamp = Instant.now().toString();
+    append(new File(directory, name + ".csv"), run, timestamp, rows);
+
+    final File baselineFile = new File(directory, name + ".baseline.csv");
+    if (updateBaseline || ! baselineFile.exists()) {
+      Files.deleteIfExists(baselineFile.toPath());
+      append(baselineFile, run, timestamp, rows);
+      out.format("%s: recorded baseline of %d run(s) in %s\n", name, rows.size(), baselineFile);
+      return Collections.emptyList();
+    }
+
+    final List<double[]> baseline = read(baselineFile);
+    final List<Comparison> comparisons = new ArrayList<>(2);
+    comparisons.add(compare("Throughput (op/s)", column(baseline, 0), column(rows, 0), -throughputThreshold));
+    final double[] baselineLatency = column(baseline, 2), currentLatency = column(rows, 2);
+    if (baselineLatency.length != 0 && currentLatency.length != 0) {
+      comparisons.add(compare("99% latency (µs)", baselineLatency, currentLatency, latencyThreshold));
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    boolean regressed = false;
+    for (Comparison comparison : comparisons) {
+      sb.append('\n').append(comparison);
+      regressed |= comparison.isRegressed();
+    }
+    out.format("%s: compared %d run(s) against a baseline of %d%s\n", name, rows.size(), baseline.size(), sb);
+    if (regressed) {
+      throw new BenchmarkRegressionError(name + " regressed against " + baselineFile + ":" + sb);
+    }
+    return comparisons;
+  }
+
+  /**
+   *  Compares the current values of a metric against the baseline.
+   *
+   *  @param metric The metric name.
+   *  @param baseline The baseline values.
+   *  @param current The current values.
+   *  @param threshold The tolerated fractional change; negative if the metric regresses by falling,
+   *                   positive if it regresses by rising.
+   *  @return The comparison.
+   */
+  private Comparison compare(String metric, double[] baseline, double[] current, double threshold) {
+    final double baselineMedian = median(baseline);
+    final double currentMedian = median(current);
+    final double pValue = new MannWhitneyUTest().mannWhitneyUTest(current, baseline);
+    final double limit = baselineMedian * (1 + threshold);
+    final boolean beyondThreshold = threshold < 0 ? currentMedian < limit : currentMedian > limit;
+    return new Comparison(metric, baselineMedian, currentMedian, pValue, beyondThreshold && pValue < significance);
+  }
+
+  private static double[] toRow(Summary summary) {
+    final double throughput = (double) summary.timedOps / Math.max(1, summary.avgTime) * 1000;
+    if (summary.stats.samples.getN() != 0) {
+      return new double[] { throughput,
+                            summary.stats.samples.getPercentile(50) / 1000,
+                            summary.stats.samples.getPercentile(99) / 1000 };
+    } else {
+      return new double[] { throughput, Double.NaN, Double.NaN };
+    }
+  }
+
+  private static void append(File file, String run, String timestamp, List<double[]> rows) throws IOException {
+    final boolean exists = file.exists();
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                                                                      StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+      if (! exists) writer.println(HEADER);
+      for (double[] row : rows) {
+        writer.format(Locale.ROOT, "%s,%s,%.3f,%.3f,%.3f\n", run, timestamp, row[0], row[1], row[2]);
+      }
+    }
+  }
+
+  private static List<double[]> read(File file) throws IOException {
+    final List<double[]> rows = new ArrayList<>();
+    for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+      if (line.isEmpty() || line.startsWith("run,")) continue;
+      final String[] fields = line.split(",");
+      if (fields.length != 5) {
+        throw new IOException("Malformed row in " + file + ": " + line);
+      }
+      try {
+        rows.add(new double[] { Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Double.parseDouble(fields[4]) });
+      } catch (NumberFormatException e) {
+        throw new IOException("Malformed row in " + file + ": " + line, e);
+      }
+    }
+    if (rows.isEmpty()) {
+      throw new IOException("No runs in " + file);
+    }
+    return rows;
+  }
+
+  /**
+   *  Extracts a column from the given rows, omitting unmeasured (NaN) values.
+   *
+   *  @param rows The rows.
+   *  @param index The column index.
+   *  @return The column values.
+   */
+  private static double[] column(List<double[]> rows, int index) {
+    return rows.stream().mapToDouble(row -> row[index]).filter(v -> ! Double.isNaN(v)).toArray();
+  }
+
+  private static double median(double[] values) {
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final int mid = sorted.length / 2;
+    return sorted.length % 2 != 0 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+  }
+}
@@ -55,6 +55,24 @@ public interface Spec {
   }
   
   default Summary testPercentile(int discard, int keep, double percentile, Comparator<? super Summary> comparator) throws Exception {
+    return testPercentile(discard, keep, percentile, comparator, null);
+  }
+  
+  /**
+   *  Runs the benchmark repeatedly, selecting the kept run at the given percentile and, if a guard is
+   *  supplied, checking all kept runs against the guard's baseline.
+   *  
+   *  @param discard The number of initial (warm-up) runs to discard.
+   *  @param keep The number of runs to keep.
+   *  @param percentile The percentile of the selected run, in the order given by the comparator.
+   *  @param comparator Orders the kept runs from worst to best.
+   *  @param guard The regression guard; may be {@code null}.
+   *  @return The selected run.
+   *  @throws Exception If an error occurred.
+   *  @throws BenchmarkRegressionError If the guard detected a regression.
+   */
+  default Summary testPercentile(int discard, int keep, double percentile, Comparator<? super Summary> comparator, 
+                                 RegressionGuard guard) throws Exception {
     final LogConfig log = getLog();
     init();
     
@@ -85,6 +103,7 @@ public interface Spec {
       log.out.println(describe());
       log.out.println(selected);
     }
+    if (guard != null) guard.check(summaries);
     return selected;
   }
   
@@ -10,6 +10,8 @@ import org.apache.commons.math3.stat.descriptive.*;
 public final class Summary {
   public long timedOps = 0;
   public long avgTime = 0;
+  /** The number of bytes allocated over the timed run, or {@code -1} if allocations weren't measured. */
+  public long allocatedBytes = -1;
   public final Stats stats = new Stats();
   
   public void compute(Elapsed ... intervals) {
@@ -53,6 +55,9 @@ public final class Summary {
   public String toString() {
     final StringBuilder sb = new StringBuilder();
     sb.append(format("%,d ops took %,d ms, %,.0f op/s", timedOps, avgTime, timedOps / Math.max(1f, avgTime) * 1000));
+    if (allocatedBytes != -1) {
+      sb.append(format(", %,.2f B/op allocated", (double) allocatedBytes / Math.max(1, timedOps)));
+    }
     if (stats.samples.getN() != 0) {
       sb.append(format("\nLatency: mean: %,.1f, sd: %,.1f, min: %,.1f, 50%%: %,.1f, 95%%: %,.1f, 99%%: %,.1f, max: %,.1f (µs, N=%,d)", 
                        stats.samples.getMean() / 1000, 
@@ -0,0 +1,213 @@
+package com.obsidiandynamics.indigo.benchmark;
+
+import static junit.framework.TestCase.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.benchmark.RegressionGuard.*;
+
+public final class RegressionGuardTest {
+  private static final String NAME = "test";
+  
+  private File directory;
+  
+  @Before
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("regression-guard-").toFile();
+  }
+  
+  @After
+  public void teardown() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+  
+  private RegressionGuard guard() {
+    return new RegressionGuard(NAME) {{
+      directory = RegressionGuardTest.this.directory;
+      out = new PrintStream(new ByteArrayOutputStream());
+    }};
+  }
+  
+  /**
+   *  Creates a run with the given throughput, whose every latency sample equals the given 99th percentile.
+   *  
+   *  @param throughput The throughput, in op/s.
+   *  @param p99Micros The 99th percentile latency, in microseconds; or <code>0</code> if latency wasn't sampled.
+   *  @return The run summary.
+   */
+  private static Summary run(long throughput, double p99Micros) {
+    final Summary summary = new Summary();
+    summary.timedOps = throughput;
+    summary.avgTime = 1_000;
+    if (p99Micros != 0) {
+      for (int i = 0; i < 100; i++) {
+        summary.stats.samples.addValue(p99Micros * 1000);
+      }
+    }
+    summary.stats.await();
+    return summary;
+  }
+  
+  /**
+   *  Creates runs whose throughputs are spread symmetrically around the given median, in steps of 0.2%.
+   *  
+   *  @param count The number of runs.
+   *  @param throughput The median throughput.
+   *  @param p99Micros The 99th percentile latency of every run, in microseconds; or <code>0</code> if latency 
+   *                   wasn't sampled.
+   *  @return The run summaries.
+   */
+  private static List<Summary> runs(int count, long throughput, double p99Micros) {
+    final List<Summary> runs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      runs.add(run(throughput * (1_000 + 2 * i - (count - 1)) / 1_000, p99Micros));
+    }
+    return runs;
+  }
+  
+  private List<String> readLines(String fileName) throws IOException {
+    return Files.readAllLines(new File(directory, fileName).toPath(), StandardCharsets.UTF_8);
+  }
+  
+  @Test
+  public void testRecordBaseline() throws IOException {
+    assertEquals(Collections.emptyList(), guard().check(runs(3, 10_000, 100)));
+    
+    final List<String> history = readLines(NAME + ".csv");
+    assertEquals(4, history.size());
+    assertTrue(history.get(0), history.get(0).startsWith("run,"));
+    assertEquals(history, readLines(NAME + ".baseline.csv"));
+  }
+  
+  @Test
+  public void testRoundTrip() throws IOException {
+    guard().check(runs(5, 10_000, 100));
+    final List<Comparison> comparisons = guard().check(runs(5, 10_000, 100));
+    
+    assertEquals(2, comparisons.size());
+    assertEquals(10_000, comparisons.get(0).getBaselineMedian(), .001);
+    assertEquals(10_000, comparisons.get(0).getCurrentMedian(), .001);
+    assertEquals(100, comparisons.get(1).getBaselineMedian(), .001);
+    assertEquals(100, comparisons.get(1).getCurrentMedian(), .001);
+    assertFalse(comparisons.get(0).isRegressed());
+    assertFalse(comparisons.get(1).isRegressed());
+    
+    // the history accumulates every checked run, while the baseline holds the first
+    assertEquals(11, readLines(NAME + ".csv").size());
+    assertEquals(6, readLines(NAME + ".baseline.csv").size());
+  }
+  
+  @Test
+  public void testUnsampledLatencyOmitted() throws IOException {
+    guard().check(runs(5, 10_000, 0));
+    final List<Comparison> comparisons = guard().check(runs(5, 10_000, 0));
+    
+    assertEquals(1, comparisons.size());
+    assertEquals(10_000, comparisons.get(0).getBaselineMedian(), .001);
+  }
+  
+  @Test
+  public void testUnsampledLatencyFiltered() throws IOException {
+    final List<Summary> baseline = runs(5, 10_000, 100);
+    baseline.add(run(10_000, 0));
+    baseline.add(run(10_000, 0));
+    guard().check(baseline);
+    final List<Comparison> comparisons = guard().check(runs(5, 10_000, 100));
+    
+    // the unsampled baseline runs take no part in the latency comparison
+    assertEquals(2, comparisons.size());
+    assertEquals(100, comparisons.get(1).getBaselineMedian(), .001);
+    assertFalse(Double.isNaN(comparisons.get(1).getPValue()));
+  }
+  
+  @Test(expected=BenchmarkRegressionError.class)
+  public void testThroughputRegressed() throws IOException {
+    guard().check(runs(6, 10_000, 100));
+    guard().check(runs(6, 8_000, 100));
+  }
+  
+  @Test
+  public void testThroughputImproved() throws IOException {
+    guard().check(runs(6, 10_000, 100));
+    final List<Comparison> comparisons = guard().check(runs(6, 12_000, 100));
+    
+    assertFalse(comparisons.get(0).isRegressed());
+    assertTrue(comparisons.get(0).getPValue() < .05);
+    assertEquals(.2, comparisons.get(0).getChange(), .001);
+  }
+  
+  @Test(expected=BenchmarkRegressionError.class)
+  public void testLatencyRegressed() throws IOException {
+    guard().check(runs(6, 10_000, 100));
+    final List<Summary> current = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      current.add(run(10_000, 150 + i));
+    }
+    guard().check(current);
+  }
+  
+  @Test
+  public void testLatencyImproved() throws IOException {
+    final List<Summary> baseline = new ArrayList<>();
+    final List<Summary> current = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      baseline.add(run(10_000, 100 + i));
+      current.add(run(10_000, 50 + i));
+    }
+    guard().check(baseline);
+    final List<Comparison> comparisons = guard().check(current);
+    
+    assertFalse(comparisons.get(1).isRegressed());
+    assertTrue(comparisons.get(1).getPValue() < .05);
+  }
+  
+  @Test
+  public void testWithinThreshold() throws IOException {
+    guard().check(runs(6, 10_000, 100));
+    final List<Comparison> comparisons = guard().check(runs(6, 9_700, 100));
+    
+    // a consistent 3% drop is significant, but tolerated by the 5% threshold
+    assertFalse(comparisons.get(0).isRegressed());
+    assertTrue(comparisons.get(0).getPValue() < .05);
+  }
+  
+  @Test
+  public void testInsignificant() throws IOException {
+    guard().check(runs(2, 10_000, 100));
+    final List<Comparison> comparisons = guard().check(runs(2, 5_000, 100));
+    
+    // a 50% drop is beyond the threshold, but too few runs were kept for it to be significant
+    assertFalse(comparisons.get(0).isRegressed());
+    assertTrue(comparisons.get(0).getPValue() >= .05);
+  }
+  
+  @Test
+  public void testUpdateBaseline() throws IOException {
+    guard().check(runs(6, 10_000, 100));
+    assertEquals(Collections.emptyList(), new RegressionGuard(NAME) {{
+      directory = RegressionGuardTest.this.directory;
+      out = new PrintStream(new ByteArrayOutputStream());
+      updateBaseline = true;
+    }}.check(runs(6, 5_000, 100)));
+    
+    final List<Comparison> comparisons = guard().check(runs(6, 5_000, 100));
+    assertEquals(5_000, comparisons.get(0).getBaselineMedian(), .001);
+    assertFalse(comparisons.get(0).isRegressed());
+  }
+  
+  @Test(expected=IOException.class)
+  public void testMalformedBaseline() throws IOException {
+    Files.write(new File(directory, NAME + ".baseline.csv").toPath(), 
+                Arrays.asList("run,timestamp,throughput_ops,p50_latency_us,p99_latency_us", "1,2,x,4,5"), 
+                StandardCharsets.UTF_8);
+    guard().check(runs(1, 10_000, 100));
+  }
+}
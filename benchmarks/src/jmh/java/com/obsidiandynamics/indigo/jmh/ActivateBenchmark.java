@@ -0,0 +1,74 @@
+package com.obsidiandynamics.indigo.jmh;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.indigo.*;
+
+/**
+ *  Measures the cost of resolving an actor's activation when sending to it. Sending to a fresh 
+ *  (non-canonical) ref looks up the activation in the actor system's activation map; sending to a 
+ *  canonical ref uses the activation cached on the ref. The difference between the two isolates the
+ *  cost of the lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ActivateBenchmark {
+  private static final String SINK = "sink";
+  
+  @Param({"1000", "100000"})
+  public int actors;
+  
+  @Param({"false", "true"})
+  public boolean canonical;
+  
+  private ActorSystem system;
+  
+  private String[] keys;
+  
+  private ActorRef[] refs;
+  
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+  
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException {
+    system = new ActorSystemConfig() {{
+      enableTimeoutScheduler = false;
+      reaperPeriodMillis = 0;
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> {});
+    
+    keys = new String[actors];
+    refs = new ActorRef[actors];
+    for (int i = 0; i < actors; i++) {
+      keys[i] = String.valueOf(i);
+      refs[i] = system.ref(SINK, keys[i]);
+      system.tell(refs[i]);
+    }
+    
+    // activate all actors up front, so that the benchmark only measures the lookup of an existing activation
+    system.drain(0);
+  }
+  
+  @TearDown(Level.Iteration)
+  public void drain() throws InterruptedException {
+    system.drain(0);
+  }
+  
+  @TearDown(Level.Trial)
+  public void teardown() throws InterruptedException {
+    system.shutdown();
+  }
+  
+  @Benchmark
+  public void tell(Cursor cursor) {
+    final int index = cursor.next++ % actors;
+    system.tell(canonical ? refs[index] : ActorRef.of(SINK, keys[index]));
+  }
+}
@@ -0,0 +1,67 @@
+package com.obsidiandynamics.indigo.jmh;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.indigo.linear.*;
+
+/**
+ *  Measures the throughput of submitting no-op tasks to an {@link ActorExecutor}, spread evenly 
+ *  over a number of keys. Each invocation submits a batch of tasks and awaits the last task for each
+ *  key; as tasks sharing a key are executed in order, this awaits the entire batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ActorExecutorBenchmark {
+  private static final int BATCH = 1_000;
+  
+  @Param({"1", "16", "256"})
+  public int keys;
+  
+  @Param({"1", "10"})
+  public int bias;
+  
+  /** The number of dispatcher threads; 0 for one per core. */
+  @Param({"0"})
+  public int parallelism;
+  
+  private ActorExecutor executor;
+  
+  private String[] keyStrings;
+  
+  private static final Runnable NOP = () -> {};
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    final ExecutorOptions options = new ExecutorOptions().withActorBias(bias);
+    if (parallelism > 0) {
+      options.withParallelism(parallelism);
+    }
+    executor = new ActorExecutor(options);
+    
+    keyStrings = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyStrings[i] = String.valueOf(i);
+    }
+  }
+  
+  @TearDown(Level.Trial)
+  public void teardown() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(60, TimeUnit.SECONDS);
+  }
+  
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void submit() throws InterruptedException, ExecutionException {
+    final Future<?>[] last = new Future<?>[Math.min(keys, BATCH)];
+    for (int i = 0; i < BATCH; i++) {
+      last[i % last.length] = executor.submit(LinearRunnable.decorate(NOP, keyStrings[i % keys]));
+    }
+    for (Future<?> future : last) {
+      future.get();
+    }
+  }
+}
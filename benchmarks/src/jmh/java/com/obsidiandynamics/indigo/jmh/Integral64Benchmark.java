@@ -0,0 +1,58 @@
+package com.obsidiandynamics.indigo.jmh;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+/**
+ *  Measures the {@link Integral64} implementations used for counting busy actors. The <code>contended</code>
+ *  group pits three updating threads against a thread taking certain sums, as happens when draining an
+ *  actor system under load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Integral64Benchmark {
+  public enum Variant implements Supplier<Integral64> {
+    TRIPLE_STRIPED(Integral64.TripleStriped::new),
+    ATOMIC(Integral64.Atomic::new);
+    
+    private final Supplier<Integral64> supplier;
+    private Variant(Supplier<Integral64> supplier) { this.supplier = supplier; }
+    @Override public Integral64 get() { return supplier.get(); }
+  }
+  
+  @Param({"TRIPLE_STRIPED", "ATOMIC"})
+  public Variant variant;
+  
+  private Integral64 integral;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    integral = variant.get();
+  }
+  
+  @Benchmark
+  public void add() {
+    integral.add(1);
+    integral.add(-1);
+  }
+  
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(3)
+  public void contendedAdd() {
+    integral.add(1);
+    integral.add(-1);
+  }
+  
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public long contendedSum() {
+    return integral.sumCertain();
+  }
+}
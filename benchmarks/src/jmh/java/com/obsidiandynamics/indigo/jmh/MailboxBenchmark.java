@@ -0,0 +1,81 @@
+package com.obsidiandynamics.indigo.jmh;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.indigo.*;
+import com.obsidiandynamics.indigo.ActorConfig.*;
+
+/**
+ *  Measures the throughput of telling no-op actors, covering the enqueuing of a message on the actor's
+ *  mailbox, the dispatch of the activation and the dequeuing of the message, for each of the mailbox
+ *  implementations. Producers are throttled by the actors' backlog capacity, so the measured rate
+ *  is bounded by the slower of the two sides.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MailboxBenchmark {
+  private static final String SINK = "sink";
+  
+  @Param({"NODE_QUEUE", "SYNC_QUEUE"})
+  public ActivationChoice activationChoice;
+  
+  @Param({"1", "10", "100"})
+  public int bias;
+  
+  @Param({"1", "16"})
+  public int actors;
+  
+  /** The number of dispatcher threads; 0 for one per core. */
+  @Param({"0"})
+  public int parallelism;
+  
+  private ActorSystem system;
+  
+  private ActorRef[] refs;
+  
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    final int systemParallelism = parallelism;
+    final int actorBias = bias;
+    final ActivationChoice actorActivationChoice = activationChoice;
+    system = new ActorSystemConfig() {{
+      parallelism = systemParallelism;
+      enableTimeoutScheduler = false;
+      reaperPeriodMillis = 0;
+      defaultActorConfig = new ActorConfig() {{
+        bias = actorBias;
+        activationFactory = actorActivationChoice;
+      }};
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> {});
+    
+    refs = new ActorRef[actors];
+    for (int i = 0; i < actors; i++) {
+      refs[i] = system.ref(SINK, String.valueOf(i));
+    }
+  }
+  
+  @TearDown(Level.Iteration)
+  public void drain() throws InterruptedException {
+    system.drain(0);
+  }
+  
+  @TearDown(Level.Trial)
+  public void teardown() throws InterruptedException {
+    system.shutdown();
+  }
+  
+  @Benchmark
+  public void tell(Cursor cursor) {
+    system.tell(refs[cursor.next++ % refs.length]);
+  }
+}
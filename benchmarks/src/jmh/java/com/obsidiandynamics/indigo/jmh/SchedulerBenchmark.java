@@ -0,0 +1,72 @@
+package com.obsidiandynamics.indigo.jmh;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.indigo.*;
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.task.*;
+
+/**
+ *  Measures the cost of scheduling and aborting timeouts, for each of the timeout scheduler implementations.
+ *  Tasks are scheduled well into the future, so that none come due during the benchmark; this mirrors the
+ *  common case of a request being answered before it times out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SchedulerBenchmark {
+  private static final long DELAY_NANOS = TimeUnit.MINUTES.toNanos(10);
+  
+  @Param({"SKIP_LIST", "TIMING_WHEEL"})
+  public SchedulerChoice schedulerChoice;
+  
+  private Scheduler scheduler;
+  
+  private static final class NopTask extends Task<Long> {
+    NopTask(long time, long id) {
+      super(time, id);
+    }
+
+    @Override
+    protected void execute() {}
+  }
+  
+  @State(Scope.Thread)
+  public static class Ids {
+    private static final AtomicLong threads = new AtomicLong();
+    
+    /** Partitions the ID space among threads, so that IDs are unique without coordination. */
+    long next = threads.getAndIncrement() << 40;
+  }
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    scheduler = schedulerChoice.apply(new SchedulerParams("BenchmarkScheduler", 1_000, false, null));
+    scheduler.start();
+  }
+  
+  @TearDown(Level.Iteration)
+  public void clear() {
+    scheduler.clear();
+  }
+  
+  @TearDown(Level.Trial)
+  public void teardown() throws InterruptedException {
+    scheduler.terminate();
+  }
+  
+  @Benchmark
+  public void schedule(Ids ids) {
+    scheduler.schedule(new NopTask(System.nanoTime() + DELAY_NANOS, ids.next++));
+  }
+  
+  @Benchmark
+  public boolean scheduleAbort(Ids ids) {
+    final NopTask task = new NopTask(System.nanoTime() + DELAY_NANOS, ids.next++);
+    scheduler.schedule(task);
+    return scheduler.abort(task);
+  }
+}
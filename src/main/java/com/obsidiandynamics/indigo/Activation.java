@@ -7,6 +7,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
 
+import com.obsidiandynamics.indigo.metrics.*;
 import com.obsidiandynamics.indigo.util.*;
 
 public abstract class Activation {
@@ -20,11 +21,48 @@ public abstract class Activation {
   
   private final Actor actor;
   
+  /** The actor, if it acts on batches and {@link ActorConfig#batchDrain} is set, or {@code null} otherwise. */
+  private final BatchActor batchActor;
+  
   private final Executor executor;
   
+  /** The executor, if it pins activations to threads, or {@code null} otherwise. */
+  private final AffinityExecutor affinityExecutor;
+  
   private final Reaper reaper;
   
-  protected final Map<UUID, PendingRequest> pending = new HashMap<>();
+  protected final PendingRequests pending = new PendingRequests();
+  
+  /** Collects metrics for this activation, or {@code null} if metrics are disabled. */
+  private final MetricsSink.Probe probe;
+  
+  /** Whether the latency of each message is to be broken down, as per {@link ActorSystemConfig#messageTiming}. */
+  private final boolean timing;
+  
+  /** The task handed to the executor for every run, which is allocated once and reused for the lifetime of
+   *  the activation. */
+  private final Runnable turn = this::runTurn;
+  
+  /** Accumulates messages drained in a single pass; only used when draining in batches, as per 
+   *  {@link #isBatchDrain()}. */
+  private final List<Message> batch;
+  
+  /** The times at which the messages in the batch were enqueued, when metrics are enabled. */
+  private long[] batchSentAt;
+  
+  /** The time at which the current turn was dispatched, in timing mode. Written before the turn is handed to
+   *  the executor, which happens after the preceding turn has finished with it. */
+  private long turnDispatchedAt;
+  
+  /** The time at which the current turn started running, in timing mode. */
+  private long turnStartedAt;
+  
+  /** The current number of consecutive turns, which varies between {@link ActorConfig#bias} and 
+   *  {@link ActorConfig#maxBias} when the bias is adaptive. Only accessed by the dispatch thread. */
+  private int bias;
+  
+  /** The time slice for consecutive turns, in nanoseconds, or <code>0</code> if turns aren't time-sliced. */
+  private final long turnSliceNanos;
   
   /** Current state of the activation. */
   private ActivationState state = PASSIVATED;
@@ -41,13 +79,20 @@ public abstract class Activation {
   
   private volatile long lastMessageTime;
   
+  /** Set once the activation has been disposed, invalidating any refs that still point to it. */
+  private volatile boolean disposed;
+  
   protected Activation(long id, ActorRef ref, ActorSystem system, ActorConfig actorConfig, Actor actor, Executor executor) {
     this.id = id;
     this.ref = ref;
     this.system = system;
     this.actorConfig = actorConfig;
     this.actor = actor;
+    batchActor = actorConfig.batchDrain && actor instanceof BatchActor ? (BatchActor) actor : null;
     this.executor = executor;
+    affinityExecutor = executor instanceof AffinityExecutor ? (AffinityExecutor) executor : null;
+    bias = actorConfig.bias;
+    turnSliceNanos = actorConfig.turnSliceMicros * 1_000L;
     
     if (actorConfig.reapTimeoutMillis != 0 && system.getReaper().isReapingEnabled()) {
       reaper = system.getReaper();
@@ -56,29 +101,286 @@ public abstract class Activation {
     } else {
       reaper = null;
     }
+    
+    final MetricsSink metricsSink = system != null ? system.getMetricsSink() : null;
+    probe = metricsSink != null ? metricsSink.probe(ref) : null;
+    timing = probe != null && system.getConfig().messageTiming;
+    batch = batchActor != null ? new ArrayList<>() : null;
+    batchSentAt = batchActor != null && probe != null ? new long[16] : null;
+  }
+  
+  /** The outcome of a non-blocking enqueue attempt. */
+  enum Offer {
+    ENQUEUED,
+    
+    /** The backlog is at capacity, and enqueuing would have blocked the caller. */
+    WOULD_BLOCK,
+    
+    /** The activation has been disposed; the message should be resent to a fresh activation. */
+    DISPOSED
+  }
+  
+  /**
+   *  Enqueues a message, holding on to the time at which it was sent for as long as it remains in the
+   *  mailbox. (The message itself is immutable, and may be sent any number of times.)
+   *  
+   *  @param m The message.
+   *  @param sentAt The {@link System#nanoTime()} at which the message was sent, or <code>0</code> if metrics
+   *                are disabled.
+   *  @return True if the message was enqueued, or false if the activation has been disposed.
+   */
+  abstract boolean enqueue(Message m, long sentAt);
+  
+  abstract Offer tryEnqueue(Message m, long sentAt);
+  
+  /**
+   *  Enqueues a group of messages bound for this activation, in order. This implementation enqueues the 
+   *  messages one at a time; subclasses may override it to enqueue the entire group in one operation,
+   *  scheduling the activation at most once.
+   *  
+   *  @param messages The messages.
+   *  @param sentAt The time at which the messages were sent, as per {@link #enqueue(Message, long)}.
+   *  @return The number of messages enqueued, which is less than the number of messages given only if the
+   *          activation has been disposed, in which case the remaining messages should be resent to a
+   *          fresh activation.
+   */
+  int enqueueAll(List<Message> messages, long sentAt) {
+    final int size = messages.size();
+    for (int i = 0; i < size; i++) {
+      if (! enqueue(messages.get(i), sentAt)) {
+        return i;
+      }
+    }
+    return size;
+  }
+  
+  /**
+   *  Enqueues a message as per {@link #enqueue(Message, long)}, recording it with the metrics probe. The 
+   *  time is taken prior to enqueuing, as the message may be processed before {@link #enqueue(Message, long)} 
+   *  returns.
+   *  
+   *  @param m The message.
+   *  @return True if the message was enqueued, or false if the activation has been disposed.
+   */
+  final boolean measuredEnqueue(Message m) {
+    if (probe == null) {
+      return enqueue(m, 0);
+    }
+    
+    if (enqueue(m, System.nanoTime())) {
+      probe.enqueued();
+      return true;
+    } else {
+      return false;
+    }
   }
   
-  abstract boolean enqueue(Message m);
+  /**
+   *  Enqueues a group of messages as per {@link #enqueueAll(List, long)}, recording them with the metrics probe.
+   *  
+   *  @param messages The messages.
+   *  @return The number of messages enqueued.
+   */
+  final int measuredEnqueueAll(List<Message> messages) {
+    if (probe == null) {
+      return enqueueAll(messages, 0);
+    }
+    
+    final int enqueued = enqueueAll(messages, System.nanoTime());
+    for (int i = 0; i < enqueued; i++) {
+      probe.enqueued();
+    }
+    return enqueued;
+  }
+  
+  /**
+   *  Attempts to enqueue a message as per {@link #tryEnqueue(Message, long)}, recording it with the metrics probe.
+   *  
+   *  @param m The message.
+   *  @return The outcome.
+   */
+  final Offer measuredTryEnqueue(Message m) {
+    if (probe == null) {
+      return tryEnqueue(m, 0);
+    }
+    
+    final Offer offer = tryEnqueue(m, System.nanoTime());
+    if (offer == Offer.ENQUEUED) {
+      probe.enqueued();
+    }
+    return offer;
+  }
   
   final void dispose() {
+    disposed = true;
     if (reaper != null) {
       reaper.deregister(this);
     }
+    if (probe != null) {
+      probe.disposed();
+    }
+  }
+  
+  /**
+   *  Obtains the backlog level at or below which parked producers are woken, applying the default 
+   *  of half the throttle capacity if the low watermark hasn't been set.
+   *  
+   *  @return The low watermark.
+   */
+  protected final long getBacklogLowWatermark() {
+    return actorConfig.backlogLowWatermark >= 0 ? actorConfig.backlogLowWatermark : actorConfig.backlogThrottleCapacity / 2;
+  }
+  
+  /**
+   *  Determines whether the message is eligible for the priority lane, where one is in use. Responses 
+   *  (including timeouts and faults) and signals are always eligible, along with messages sent with 
+   *  priority.
+   *  
+   *  @param m The message.
+   *  @return True if the message is eligible for the priority lane.
+   */
+  protected static boolean isPriority(Message m) {
+    return m.isResponse() || m.isPriority() || m.body() instanceof Signal;
+  }
+  
+  /**
+   *  Determines whether the mailbox should be drained in batches, which requires both 
+   *  {@link ActorConfig#batchDrain} to be set and the actor to be a {@link BatchActor}.
+   *  
+   *  @return True if messages are to be processed with {@link #processBatch()}.
+   */
+  protected final boolean isBatchDrain() {
+    return batchActor != null;
+  }
+  
+  /**
+   *  Determines whether the mailbox should hold on to the times at which messages were sent, i.e. whether
+   *  metrics are enabled. If not, the times passed to {@link #enqueue(Message, long)} are meaningless.
+   *  
+   *  @return True if the times at which messages were sent are recorded.
+   */
+  protected final boolean isStamping() {
+    return probe != null;
+  }
+  
+  final boolean isDisposed() {
+    return disposed;
   }
   
   final long getLastMessageTime() {
     return lastMessageTime;
   }
   
-  protected final void dispatch(Runnable r) {
-    executor.execute(() -> {
-      try {
-        r.run();
-      } catch (Throwable t) {
-        system.getConfig().exceptionHandler.accept(system, t);
-        system.terminate();
-      }
-    });
+  /**
+   *  Schedules a run of this activation, which will call {@link #run()} from the executor. At most one run
+   *  may be scheduled at any time, which lets every run reuse the same task; any state that the run depends 
+   *  on must be held in fields, written prior to dispatching.
+   */
+  protected final void dispatch() {
+    if (timing) {
+      turnDispatchedAt = System.nanoTime();
+    }
+    execute();
+  }
+  
+  /**
+   *  Runs the activation, as scheduled by {@link #dispatch()}.
+   */
+  abstract void run();
+  
+  /**
+   *  Hands the turn to the executor. An {@link AffinityExecutor} is given the ID of the activation as the
+   *  affinity key, so that all of its turns run on the same worker thread.
+   */
+  private void execute() {
+    if (affinityExecutor != null) {
+      affinityExecutor.execute(turn, affinity());
+    } else {
+      executor.execute(turn);
+    }
+  }
+  
+  private int affinity() {
+    return (int) (id ^ (id >>> 32));
+  }
+  
+  /**
+   *  Obtains the number of consecutive turns the actor is accorded before releasing its thread.
+   *  
+   *  @return The bias.
+   */
+  protected final int getBias() {
+    return bias;
+  }
+  
+  /**
+   *  Adapts the bias after a run has used up its turns while messages were still queued, if the bias
+   *  is adaptive (i.e. {@link ActorConfig#maxBias} exceeds {@link ActorConfig#bias}). The bias is doubled
+   *  if no other tasks are waiting for the executor, and halved otherwise, within the configured bounds.
+   */
+  protected final void adaptBias() {
+    final int minBias = actorConfig.bias, maxBias = actorConfig.maxBias;
+    if (maxBias <= minBias) return;
+    
+    if (getQueuedTasks() == 0) {
+      bias = bias > maxBias >> 1 ? maxBias : bias << 1;
+    } else {
+      bias = Math.max(minBias, bias >> 1);
+    }
+    assert diagnostics().traceMacro("A.adaptBias: ref=%s, bias=%d", ref, bias);
+  }
+  
+  /**
+   *  Obtains the time at which a run starting now should release its thread, if turns are time-sliced.
+   *  
+   *  @return The deadline, in terms of {@link System#nanoTime()}; meaningless if turns aren't time-sliced.
+   */
+  protected final long getSliceDeadline() {
+    return turnSliceNanos != 0 ? System.nanoTime() + turnSliceNanos : 0;
+  }
+  
+  /**
+   *  Determines whether a run has spent its time slice, reading the clock only once every 
+   *  {@link ActorConfig#turnSliceCheckInterval} turns. Always false if turns aren't time-sliced.
+   *  
+   *  @param deadline The deadline obtained from {@link #getSliceDeadline()} at the start of the run.
+   *  @param turns The number of turns taken so far in the run.
+   *  @return True if the run should release its thread.
+   */
+  protected final boolean isSliceSpent(long deadline, int turns) {
+    return turnSliceNanos != 0 && turns % actorConfig.turnSliceCheckInterval == 0 && System.nanoTime() - deadline >= 0;
+  }
+  
+  /**
+   *  Estimates the number of tasks waiting for the executor, as seen from the current thread: the surplus
+   *  of locally queued tasks for a fork-join worker, the queue length for a thread pool, or whether there
+   *  are any tasks queued on this activation's worker for an {@link AffinityExecutor}. Other executors are
+   *  taken as having no queued tasks.
+   *  
+   *  @return The estimated number of queued tasks.
+   */
+  private int getQueuedTasks() {
+    if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+      return ForkJoinTask.getSurplusQueuedTaskCount();
+    } else if (executor instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) executor).getQueue().size();
+    } else if (affinityExecutor != null) {
+      return affinityExecutor.hasQueuedTasks(affinity()) ? 1 : 0;
+    } else {
+      return 0;
+    }
+  }
+  
+  private void runTurn() {
+    if (timing) {
+      turnStartedAt = System.nanoTime();
+    }
+    try {
+      run();
+    } catch (Throwable t) {
+      system.getConfig().exceptionHandler.accept(system, t);
+      system.terminate();
+    }
   }
   
   final long getId() {
@@ -118,7 +420,7 @@ public abstract class Activation {
   }
   
   public final MessageBuilder to(ActorRef to) {
-    return new MessageBuilder(this).target((body, requestId) -> send(new Message(ref, to, body, requestId, false)));
+    return new MessageBuilder(this).target((body, request, requestSeq, priority) -> send(request ? new Message(ref, to, body, id, requestSeq, false, priority) : new Message(ref, to, body, null, false, priority)));
   }
   
   public final <I> EgressBuilder<I, Void> egress(Consumer<I> consumer) {
@@ -178,12 +480,26 @@ public abstract class Activation {
   }
   
   public final void send(Message message) {
-    if (message.requestId() != null && ! message.isFault()) {
+    if (message.hasRequestId() && ! message.isFault()) {
       stashIfTransitioning();
     }
     system.send(message);
   }
   
+  /**
+   *  Sends a message if it can be accepted without blocking, i.e. if the target actor's backlog
+   *  is below capacity.
+   *  
+   *  @param message The message to send.
+   *  @return True if the message was sent, or false if sending would have blocked.
+   */
+  public final boolean trySend(Message message) {
+    if (message.hasRequestId() && ! message.isFault()) {
+      stashIfTransitioning();
+    }
+    return system.trySend(message);
+  }
+  
   final void stashIfTransitioning() {
     final ActivationState stateCache = state;
     if (stateCache == ACTIVATING || stateCache == PASSIVATING) {
@@ -191,23 +507,20 @@ public abstract class Activation {
     }
   }
   
-  private void cancelTimeout(PendingRequest req) {
-    if (req.getTimeoutTask() != null) {
-      system.getTimeoutScheduler().abort(req.getTimeoutTask());
+  private void cancelTimeout(TimeoutTask timeoutTask) {
+    if (timeoutTask != null) {
+      system.getTimeoutScheduler().abort(timeoutTask);
     }
   }
   
   private void clearPending() {
-    for (PendingRequest req : pending.values()) {
-      cancelTimeout(req);
-    }
-    pending.clear();
+    pending.clear(this::cancelTimeout);
   }
   
   private Fault raiseFault(FaultType type, Message originalMessage) {
     final Fault fault = new Fault(type, originalMessage, faultReason);
-    if (originalMessage != null && originalMessage.requestId() != null && ! originalMessage.isResponse()) {
-      send(new Message(ref, originalMessage.from(), fault, originalMessage.requestId(), true));
+    if (originalMessage != null && originalMessage.hasRequestId() && ! originalMessage.isResponse()) {
+      send(Message.correlated(ref, originalMessage.from(), fault, originalMessage, true));
     }
     system.addToDeadLetterQueue(fault);
     faultReason = null;
@@ -256,6 +569,13 @@ public abstract class Activation {
   }
   
   private void setState(ActivationState state) {
+    if (probe != null) {
+      if (state == ACTIVATED && this.state == ACTIVATING) {
+        probe.activated();
+      } else if (state == PASSIVATED && this.state == PASSIVATING) {
+        probe.passivated();
+      }
+    }
     this.state = state;
   }
   
@@ -287,7 +607,42 @@ public abstract class Activation {
     }
   }
   
-  protected final void processMessage(Message m) {
+  /**
+   *  Processes a message taken from the mailbox.
+   *  
+   *  @param m The message.
+   *  @param sentAt The time at which the message was sent, as given to {@link #enqueue(Message, long)}.
+   */
+  protected final void processMessage(Message m, long sentAt) {
+    if (probe != null) {
+      final long started = System.nanoTime();
+      probe.dequeued(started - sentAt);
+      handleMessage(m);
+      final long finished = System.nanoTime();
+      probe.processed(1, finished - started);
+      if (timing) {
+        recordTiming(sentAt, started, finished);
+      }
+    } else {
+      handleMessage(m);
+    }
+  }
+  
+  /**
+   *  Breaks down the latency of a processed message. A message sent after its turn was dispatched (or
+   *  after the turn had started) incurs no mailbox (or executor) latency.
+   *  
+   *  @param sentAt The time at which the message was sent.
+   *  @param started The time at which processing started.
+   *  @param finished The time at which processing finished.
+   */
+  private void recordTiming(long sentAt, long started, long finished) {
+    final long dispatchedAt = Math.max(sentAt, turnDispatchedAt);
+    final long runAt = Math.max(dispatchedAt, turnStartedAt);
+    probe.timed(dispatchedAt - sentAt, runAt - dispatchedAt, Math.max(0, started - runAt), finished - sentAt);
+  }
+  
+  private void handleMessage(Message m) {
     if (reaper != null) {
       lastMessageTime = System.currentTimeMillis();
     }
@@ -303,8 +658,12 @@ public abstract class Activation {
       processUnsolicited(m);
     }
     
+    processUnstashed();
+  }
+  
+  private void processUnstashed() {
     if (stash != null && stash.unstashing) {
-      assert diagnostics().traceMacro("A.processMessage: unstashing");
+      assert diagnostics().traceMacro("A.processUnstashed: unstashing");
       while (! stash.messages.isEmpty() && ! ensureActivated(stash.messages.get(0))) {
         stash.messages.remove(0);
       }
@@ -320,15 +679,140 @@ public abstract class Activation {
     }
   }
   
+  /**
+   *  Adds a message taken from the mailbox to the batch, to be processed by {@link #processBatch()}.
+   *  
+   *  @param m The message.
+   *  @param sentAt The time at which the message was sent, as given to {@link #enqueue(Message, long)}.
+   */
+  protected final void addToBatch(Message m, long sentAt) {
+    if (batchSentAt != null) {
+      final int size = batch.size();
+      if (size == batchSentAt.length) {
+        batchSentAt = Arrays.copyOf(batchSentAt, size << 1);
+      }
+      batchSentAt[size] = sentAt;
+    }
+    batch.add(m);
+  }
+  
+  /**
+   *  Processes the batch of messages drained from the mailbox, if any, and clears it. Consecutive runs of ordinary unsolicited
+   *  messages are handed to the actor's {@link BatchActor#actBatch(Activation, List)} in one call, provided
+   *  that the actor is activated and isn't stashing. (The message that activates the actor is included
+   *  in the batch, unless the activation is asynchronous.) Responses, signals and messages arriving during 
+   *  a life-cycle transition are processed individually, as per {@link #processMessage(Message, long)}.<p>
+   *  
+   *  When metrics are enabled, the service time of the batch is apportioned evenly among its messages.
+   *
+   *  @return The number of messages processed.
+   */
+  protected final int processBatch() {
+    final int size = batch.size();
+    if (size == 0) return 0;
+    
+    if (probe != null) {
+      final long started = System.nanoTime();
+      for (int i = 0; i < size; i++) {
+        probe.dequeued(started - batchSentAt[i]);
+      }
+      handleBatch(batch);
+      final long finished = System.nanoTime();
+      probe.processed(size, finished - started);
+      if (timing) {
+        for (int i = 0; i < size; i++) {
+          recordTiming(batchSentAt[i], started, finished);
+        }
+      }
+    } else {
+      handleBatch(batch);
+    }
+    batch.clear();
+    return size;
+  }
+  
+  private void handleBatch(List<Message> messages) {
+    final int size = messages.size();
+    int start = 0;
+    for (int i = 0; i < size; i++) {
+      final Message m = messages.get(i);
+      if (m.isResponse() || m.body() instanceof Signal) {
+        if (start != i) actBatch(messages.subList(start, i));
+        handleMessage(m);
+        start = i + 1;
+      } else if (state == PASSIVATED && stash == null) {
+        if (! ensureActivated(m)) {
+          start = i + 1;
+        } else if (state != ACTIVATED) {
+          processUnsolicited(m);
+          processUnstashed();
+          start = i + 1;
+        }
+      } else if (state != ACTIVATED || stash != null) {
+        if (start != i) actBatch(messages.subList(start, i));
+        handleMessage(m);
+        start = i + 1;
+      }
+    }
+
+    if (start != size) {
+      actBatch(start == 0 ? messages : messages.subList(start, size));
+    }
+  }
+
+  private void actBatch(List<Message> batch) {
+    if (reaper != null) {
+      lastMessageTime = System.currentTimeMillis();
+    }
+
+    assert diagnostics().traceMacro("A.actBatch: ref=%s, size=%d", ref, batch.size());
+    try {
+      batchActor.actBatch(this, batch);
+    } catch (Throwable t) {
+      fault(t);
+      actorConfig.exceptionHandler.accept(system, t);
+    } finally {
+      if (faultReason != null) {
+        // a fault raised while acting on a batch applies to every message in that batch
+        final Object reason = faultReason;
+        for (Message m : batch) {
+          faultReason = reason;
+          raiseFault(ON_ACT, m);
+        }
+      }
+    }
+    
+    processUnstashed();
+  }
+
   private void processSolicited(Message m) {
-    final PendingRequest req = pending.remove(m.requestId());
+    // the request ID only matches if it originated from this activation
+    final int index = m.requestOrigin() == id ? pending.indexOf(m.requestSeq()) : -1;
+    final boolean matched = index != -1;
+    final Consumer<Message> onResponse;
+    final Runnable onTimeout;
+    final Consumer<Fault> onFault;
+    final TimeoutTask timeoutTask;
+    if (matched) {
+      onResponse = pending.getOnResponse(index);
+      onTimeout = pending.getOnTimeout(index);
+      onFault = pending.getOnFault(index);
+      timeoutTask = pending.getTimeoutTask(index);
+      pending.removeAt(index);
+    } else {
+      onResponse = null;
+      onTimeout = null;
+      onFault = null;
+      timeoutTask = null;
+    }
+    
     final Object body = m.body();
     Fault fault = null;
     if (body instanceof Signal) {
       if (body instanceof Timeout) {
-        if (req != null) {
+        if (matched) {
           try {
-            req.getOnTimeout().run();
+            onTimeout.run();
           } catch (Throwable t) {
             fault(t);
             actorConfig.exceptionHandler.accept(system, t);
@@ -337,11 +821,11 @@ public abstract class Activation {
           }
         }
       } else if (body instanceof Fault) {
-        if (req != null) {
-          cancelTimeout(req);
-          if (req.getOnFault() != null) {
+        if (matched) {
+          cancelTimeout(timeoutTask);
+          if (onFault != null) {
             try {
-              req.getOnFault().accept((Fault) body);
+              onFault.accept((Fault) body);
             } catch (Throwable t) {
               fault(t);
               actorConfig.exceptionHandler.accept(system, t);
@@ -353,10 +837,10 @@ public abstract class Activation {
       } else {
         throw new FrameworkError("Unsupported signal of type " + body.getClass().getName());
       }
-    } else if (req != null) {
-      cancelTimeout(req);
+    } else if (matched) {
+      cancelTimeout(timeoutTask);
       try {
-        req.getOnResponse().accept(m);
+        onResponse.accept(m);
       } catch (Throwable t) {
         fault(t);
         actorConfig.exceptionHandler.accept(system, t);
@@ -13,19 +13,49 @@ import com.obsidiandynamics.indigo.ActorSystemConfig.*;
 public class ActorConfig {
   public static final class Key {
     public static final String BIAS = "indigo.actor.bias";
+    public static final String MAX_BIAS = "indigo.actor.maxBias";
+    public static final String TURN_SLICE_MICROS = "indigo.actor.turnSliceMicros";
+    public static final String TURN_SLICE_CHECK_INTERVAL = "indigo.actor.turnSliceCheckInterval";
     public static final String BACKLOG_THROTTLE_CAPACITY = "indigo.actor.backlogThrottleCapacity";
     public static final String BACKLOG_THROTTLE_MILLIS = "indigo.actor.backlogThrottleMillis";
     public static final String BACKLOG_THROTTLE_TRIES = "indigo.actor.backlogThrottleTries";
+    public static final String BACKLOG_PARKING = "indigo.actor.backlogParking";
+    public static final String BACKLOG_LOW_WATERMARK = "indigo.actor.backlogLowWatermark";
     public static final String ACTIVATION_FACTORY = "indigo.actor.activationFactory";
     public static final String EXCEPTION_HANDLER = "indigo.actor.exceptionHandler";
     public static final String REAP_TIMEOUT_MILLIS = "indigo.actor.reapTimeoutMillis";
     public static final String EPHEMERAL = "indigo.actor.ephemeral";
+    public static final String BATCH_DRAIN = "indigo.actor.batchDrain";
+    public static final String POOL_NODES = "indigo.actor.poolNodes";
+    public static final String RING_CAPACITY = "indigo.actor.ringCapacity";
+    public static final String EXECUTOR_NAME = "indigo.actor.executorName";
+    public static final String THREADS = "indigo.actor.threads";
+    public static final String PRIORITY_LANE = "indigo.actor.priorityLane";
     private Key() {}
   }
   
   /** The number of consecutive turns an actor is accorded before releasing its thread. */
   public int bias = get(BIAS, Integer::parseInt, 1);
   
+  /** The upper bound on the number of consecutive turns when the bias is adaptive. When set above the {@link #bias},
+   *  the number of turns is doubled whenever an actor uses up its turns with messages still queued while no other
+   *  tasks are waiting for the executor, and halved (down to the {@link #bias}) whenever it does so while other
+   *  tasks are waiting. Leave at <code>0</code> (default) for a fixed bias; any other value cannot be less than 
+   *  the bias. */
+  public int maxBias = get(MAX_BIAS, Integer::parseInt, 0);
+  
+  /** The upper bound on the wall-clock time that an actor may hold its thread for in consecutive turns, after which
+   *  it releases the thread even if it hasn't used up its {@link #bias}. This bounds the time that other actors
+   *  may be kept waiting, regardless of how long each message takes to process. The time is checked between turns,
+   *  so a turn that is already under way is never cut short. Leave at <code>0</code> (default) to bound the
+   *  consecutive turns by the bias alone. Cannot be negative. */
+  public int turnSliceMicros = get(TURN_SLICE_MICROS, Integer::parseInt, 0);
+  
+  /** The number of turns between successive checks of the {@link #turnSliceMicros}, for actors whose turns are
+   *  so short that reading the clock after each turn would add noticeably to their cost. Must be positive if the
+   *  turns are time-sliced. */
+  public int turnSliceCheckInterval = get(TURN_SLICE_CHECK_INTERVAL, Integer::parseInt, 1);
+  
   /** The backlog level at which point throttling is enforced. Set to <code>Long.MAX_VALUE</code> to
    *  avoid throttling. */
   public long backlogThrottleCapacity = get(BACKLOG_THROTTLE_CAPACITY, Long::parseLong, 10_000L);
@@ -36,10 +66,29 @@ public class ActorConfig {
   /** Upper bound on the number of consecutive penalties imposed during throttling, after which the message
    *  will be enqueued even if the backlog is over capacity. */
   public int backlogThrottleTries = get(BACKLOG_THROTTLE_TRIES, Integer::parseInt, 10);
+  
+  /** Whether producers should be parked while the backlog is at capacity, and woken by the actor as soon as
+   *  the backlog drains to the {@link #backlogLowWatermark}, in place of time-based throttling. The capacity
+   *  is then enforced strictly; messages that an actor sends to itself, along with responses and signals, are
+   *  exempt. Applies to {@link ActivationChoice#NODE_QUEUE} and {@link ActivationChoice#SYNC_QUEUE}. */
+  public boolean backlogParking = get(BACKLOG_PARKING, Boolean::parseBoolean, false);
+  
+  /** The backlog level at or below which parked producers are woken. Leave at <code>-1</code> (default) to
+   *  use half of the {@link #backlogThrottleCapacity}. */
+  public long backlogLowWatermark = get(BACKLOG_LOW_WATERMARK, Long::parseLong, -1L);
 
   public enum ActivationChoice implements ActivationFactory {
     SYNC_QUEUE(SyncQueueActivation::new),
-    NODE_QUEUE(NodeQueueActivation::new);
+    NODE_QUEUE(NodeQueueActivation::new),
+    
+    /** A bounded, preallocated ring of {@link ActorConfig#ringCapacity} slots. Producers block while the
+     *  ring is full, rather than being throttled. Responses, signals and messages that an actor sends to
+     *  itself are exempt from the bound, so that an actor cannot block on its own mailbox; these are queued in
+     *  order with other messages while the ring has room, but overtake the ring's contents when they overflow
+     *  it. With a {@link ActorConfig#priorityLane}, priority messages always overtake the ring. As with any bounded
+     *  mailbox, a cycle of actors telling one another may deadlock when all of their rings are full, as may
+     *  a bounded dispatcher pool whose threads are all blocked on full rings. */
+    RING_QUEUE(RingQueueActivation::new);
     
     private final ActivationFactory factory;
     private ActivationChoice(ActivationFactory factory) { this.factory = factory; }
@@ -63,4 +112,39 @@ public class ActorConfig {
    *  to remain in an activated state. An ephemeral actor will request passivation immediately after processing
    *  its message load. */
   public boolean ephemeral = get(EPHEMERAL, Boolean::parseBoolean, false);
+  
+  /** Whether the mailbox should be drained in one pass, handing all queued messages to 
+   *  {@link BatchActor#actBatch(Activation, java.util.List)} at once. When set, the {@link #bias} is counted in 
+   *  batches rather than in individual messages. Has no effect on actors that don't implement {@link BatchActor}. */
+  public boolean batchDrain = get(BATCH_DRAIN, Boolean::parseBoolean, false);
+  
+  /** Whether mailbox nodes should be recycled once consumed, rather than allocated afresh for every enqueued
+   *  message. Recycled nodes are cached per producer thread, up to a fixed bound, beyond which they are left to
+   *  the GC. Producers running on virtual threads (e.g. with {@link ActorSystemConfig.ExecutorChoice#VIRTUAL_THREADS})
+   *  bypass the per-thread cache, as a virtual thread seldom outlives its turn, and take their nodes straight
+   *  from the activation's pool. Applies to {@link ActivationChoice#NODE_QUEUE} only. */
+  public boolean poolNodes = get(POOL_NODES, Boolean::parseBoolean, false);
+  
+  /** The mailbox capacity, rounded up to the next power of two. Applies to {@link ActivationChoice#RING_QUEUE}
+   *  only, which enforces the capacity strictly in place of the backlog throttle settings. */
+  public int ringCapacity = get(RING_CAPACITY, Integer::parseInt, 1_024);
+  
+  /** The name of the executor that this actor's turns run on, registered with 
+   *  {@link ActorSystem#addExecutor(Executor)}; for example, {@link ActorSystem#VIRTUAL_EXECUTOR_NAME} for an
+   *  actor that blocks on I/O. Leave as <code>null</code> (default) to use the system's executor. Takes
+   *  precedence over the executor preferred by an egress message. */
+  public String executorName = get(EXECUTOR_NAME, String::valueOf, null);
+  
+  /** The number of threads dedicated to this role, acting as a bulkhead: the role's actors run on a pool of their
+   *  own, which is created when the role is registered and sized as per {@link ActorSystemConfig#executor}, such
+   *  that a saturated role can neither starve, nor be starved by, the remaining roles. Leave at <code>0</code> 
+   *  (default) to share the system's executor. Cannot be combined with {@link #executorName}, nor with
+   *  {@link ActorSystemConfig.ExecutorChoice#VIRTUAL_THREADS}, whose executors are unbounded and would bound nothing. */
+  public int threads = get(THREADS, Integer::parseInt, 0);
+  
+  /** Whether responses, signals and messages sent with priority should be queued in a lane of their own, which
+   *  is served ahead of the ordinary messages. A response may then overtake any number of queued messages,
+   *  bounding the latency of request-response even when the actor is flooded; the order of messages within each
+   *  lane is preserved. Priority messages are exempt from backpressure. Applies to all {@link ActivationChoice}s. */
+  public boolean priorityLane = get(PRIORITY_LANE, Boolean::parseBoolean, false);
 }
@@ -1,7 +1,5 @@
 package com.obsidiandynamics.indigo;
 
-import java.lang.ref.*;
-
 public final class ActorRef {
   public static final String INGRESS = "_ingress";
   public static final String EGRESS = "_egress";
@@ -10,7 +8,9 @@ public final class ActorRef {
   
   private final String key;
   
-  private volatile Reference<Activation> cachedActivation;
+  /** A direct pointer to the last known activation, which is validated on every use. A stale pointer
+   *  is cleared eagerly for the activation's own ref and for canonical refs, and lazily for all others. */
+  private volatile Activation cachedActivation;
 
   private ActorRef(String role, String key) {
     this.role = role;
@@ -71,11 +71,23 @@ public final class ActorRef {
   }
   
   Activation getCachedActivation() {
-    return cachedActivation != null ? cachedActivation.get() : null;
+    final Activation cached = cachedActivation;
+    if (cached != null && cached.isDisposed()) {
+      clearCachedActivation(cached);
+      return null;
+    } else {
+      return cached;
+    }
   }
 
   void setCachedActivation(Activation cachedActivation) {
-    this.cachedActivation = new WeakReference<>(cachedActivation);
+    this.cachedActivation = cachedActivation;
+  }
+  
+  void clearCachedActivation(Activation disposed) {
+    if (cachedActivation == disposed) {
+      cachedActivation = null;
+    }
   }
 
   public static ActorRef of(String role) {
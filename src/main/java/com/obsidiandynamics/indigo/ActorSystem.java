@@ -9,20 +9,20 @@ import java.util.concurrent.atomic.*;
 import java.util.function.*;
 
 import com.obsidiandynamics.func.*;
+import com.obsidiandynamics.indigo.metrics.*;
 import com.obsidiandynamics.indigo.task.*;
 import com.obsidiandynamics.indigo.util.*;
+import com.obsidiandynamics.indigo.util.JvmVersionProvider.*;
 
 public final class ActorSystem implements Endpoint {
   public static final String COMMON_EXECUTOR_NAME = "common";
   
-  /** When draining, the maximum number of yields before putting the thread to sleep. */ 
-  private static final int DRAIN_MAX_YIELDS = 10_000;
-  
-  /** When draining, the number of milliseconds to sleep between checks. */
-  private static final long DRAIN_SLEEP_MILLIS = 1;
+  /** Runs each task on a new virtual thread. Only registered where virtual threads are supported (Java 21 or 
+   *  newer); a role that names this executor on an older JVM is rejected. */
+  public static final String VIRTUAL_EXECUTOR_NAME = "virtual";
   
   /** A symbol for a task that's been cancelled. */
-  private static final TimeoutTask CANCELLED = new TimeoutTask(0, new UUID(0, 0), null, null);
+  private static final TimeoutTask CANCELLED = new TimeoutTask(0, 0, 0, null, null);
   
   private final long id = Crypto.machineRandom();
   
@@ -30,15 +30,36 @@ public final class ActorSystem implements Endpoint {
   
   private final ExecutorService globalExecutor;
   
-  private final Map<ActorRef, Activation> activations;
+  private final JvmVersion jvmVersion;
+  
+  /** Backs {@link #VIRTUAL_EXECUTOR_NAME}; <code>null</code> if virtual threads aren't supported. */
+  private final ExecutorService virtualExecutor;
+  
+  private final ConcurrentMap<ActorRef, Activation> activations;
+  
+  private final ConcurrentMap<ActorRef, ActorRef> canonicalRefs = new ConcurrentHashMap<>();
+  
+  /** Activations that are being created, which concurrent activators of the same ref wait on. */
+  private final ConcurrentMap<ActorRef, Creation> creations = new ConcurrentHashMap<>();
   
   private final Map<String, ActorSetup> setupRegistry = new HashMap<>();
   
   private final Integral64 busyActors;
   
-  private final TaskScheduler timeoutScheduler;
+  /** Guards the registration and completion of quiescence waiters. */
+  private final Object quiescenceLock = new Object();
+  
+  /** Futures awaiting quiescence, to be completed when the busy actor count reaches zero. */
+  private List<CompletableFuture<Void>> quiescenceWaiters = new ArrayList<>();
   
-  private final TaskScheduler backgroundScheduler;
+  /** Whether there are any quiescence waiters, sparing actors from acquiring the lock otherwise. */
+  private volatile boolean awaitingQuiescence;
+  
+  private final MetricsSink metricsSink;
+  
+  private final Scheduler timeoutScheduler;
+  
+  private final Scheduler backgroundScheduler;
   
   private final Reaper reaper = new Reaper(this);
   
@@ -50,7 +71,15 @@ public final class ActorSystem implements Endpoint {
   
   private final ActorRef[] ingressRefs;
   
-  private long nextActivationId = Crypto.machineRandom();
+  private final AtomicLong nextActivationId = new AtomicLong(Crypto.machineRandom());
+  
+  /** The request origin of direct asks, standing in for the ID of an activation. */
+  private final long directAskOrigin = Crypto.machineRandom();
+  
+  private final AtomicLong nextDirectAskSeq = new AtomicLong();
+  
+  /** Outstanding direct asks, keyed by their request sequence number. */
+  private final ConcurrentMap<Long, DirectAsk<?>> directAsks = new ConcurrentHashMap<>();
   
   private volatile boolean shuttingDown;
   
@@ -61,9 +90,61 @@ public final class ActorSystem implements Endpoint {
   private static final class ActorSetup {
     final Supplier<? extends Actor> factory;
     final ActorConfig actorConfig;
-    ActorSetup(Supplier<? extends Actor> factory, ActorConfig actorConfig) {
+    /** The executor dedicated to the role, if {@link ActorConfig#threads} is set; <code>null</code> otherwise. */
+    final ExecutorService dedicatedExecutor;
+    ActorSetup(Supplier<? extends Actor> factory, ActorConfig actorConfig, ExecutorService dedicatedExecutor) {
       this.factory = factory;
       this.actorConfig = actorConfig;
+      this.dedicatedExecutor = dedicatedExecutor;
+    }
+  }
+  
+  /**
+   *  A future for an ask issued with {@link ActorSystemConfig#directAsk} set, which is completed directly by
+   *  the response (or timeout) message, in place of its delivery.
+   *  
+   *  @param <T> The response type.
+   */
+  private final class DirectAsk<T> extends CompletableFuture<T> {
+    private final long seq;
+    
+    /** The timeout task, or <code>null</code> if the ask doesn't time out. */
+    private final TimeoutTask timeoutTask;
+    
+    DirectAsk(long seq, TimeoutTask timeoutTask) {
+      this.seq = seq;
+      this.timeoutTask = timeoutTask;
+    }
+    
+    void respond(Message m) {
+      final Object body = m.body();
+      if (body instanceof Timeout) {
+        completeExceptionally(new TimeoutException());
+        return;
+      }
+      
+      abortTimeout();
+      if (body instanceof Fault) {
+        final Object reason = ((Fault) body).getReason();
+        completeExceptionally(reason instanceof Throwable ? (Throwable) reason : new FaultException(reason));
+      } else {
+        complete(m.body());
+      }
+    }
+    
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      final boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (directAsks.remove(seq, this)) {
+        abortTimeout();
+      }
+      return cancelled;
+    }
+    
+    private void abortTimeout() {
+      if (timeoutTask != null) {
+        timeoutScheduler.abort(timeoutTask);
+      }
     }
   }
   
@@ -71,21 +152,60 @@ public final class ActorSystem implements Endpoint {
     config.init();
     this.config = config;
     
-    timeoutScheduler = config.enableTimeoutScheduler ? new TaskScheduler("TimeoutScheduler-" + getIdAsHex()) : null;
-    backgroundScheduler = config.enableBackgroundScheduler ? new TaskScheduler("BackgroundScheduler-" + getIdAsHex()) : null; 
-    
     busyActors = config.integral64Provider.get();
-    globalExecutor = config.executor.apply(new ExecutorParams(config.getParallelism(),
-                                                              new JvmVersionProvider.DefaultProvider().get()));
+    metricsSink = config.metricsSink.get();
+    if (config.messageTiming && metricsSink == null) {
+      throw new IllegalArgumentException("Message timing requires a metrics sink");
+    }
+    ifSet(metricsSink, sink -> sink.start(getIdAsHex()));
+    jvmVersion = new JvmVersionProvider.DefaultProvider().get();
+    globalExecutor = config.executor.apply(new ExecutorParams(config.getParallelism(), jvmVersion));
+    virtualExecutor = Threads.isVirtualThreadSupported(jvmVersion) ? Threads.virtualThreadPool(jvmVersion) : null;
+    
+    timeoutScheduler = config.enableTimeoutScheduler ? createTimeoutScheduler() : null;
+    backgroundScheduler = config.enableBackgroundScheduler ? new TaskScheduler("BackgroundScheduler-" + getIdAsHex()) : null; 
     ingressRefs = createIngressRefs(config.getIngressCount());
     activations = new ConcurrentHashMap<>(16, .75f, config.getParallelism());
     registerStandardActors();
     registerStandardExecutors();
-    ifSet(timeoutScheduler, TaskScheduler::start);
-    ifSet(backgroundScheduler, TaskScheduler::start);
+    ifSet(timeoutScheduler, Scheduler::start);
+    ifSet(backgroundScheduler, Scheduler::start);
     reaper.init();
   }
   
+  private Scheduler createTimeoutScheduler() {
+    final int shards = config.getTimeoutSchedulerShards();
+    if (shards == 1) {
+      return createTimeoutScheduler("TimeoutScheduler-" + getIdAsHex());
+    } else {
+      final Scheduler[] schedulers = new Scheduler[shards];
+      for (int i = 0; i < shards; i++) {
+        schedulers[i] = createTimeoutScheduler("TimeoutScheduler-" + getIdAsHex() + "-" + i);
+      }
+      return new ShardedScheduler(schedulers, this::getTimeoutShardKey);
+    }
+  }
+  
+  /**
+   *  Derives the shard of a timeout task from the activation that issued the request. Direct asks all share
+   *  the same request origin, and are spread by their sequence number instead.
+   *  
+   *  @param task The timeout task.
+   *  @return The shard key.
+   */
+  private long getTimeoutShardKey(TimedTask task) {
+    final TimeoutTask timeoutTask = (TimeoutTask) task;
+    final long activationId = timeoutTask.getActivationId();
+    return activationId != directAskOrigin ? activationId : timeoutTask.getRequestSeq();
+  }
+  
+  private Scheduler createTimeoutScheduler(String threadName) {
+    return config.timeoutScheduler.apply(new SchedulerParams(threadName, 
+                                                             config.timerTickMicros,
+                                                             config.timeoutBatchExpiry,
+                                                             config.timeoutExpiryFanOut ? globalExecutor : null));
+  }
+  
   private void registerStandardActors() {
     on(INGRESS).cue(StatelessLambdaActor::agent);
     on(EGRESS).withConfig(new ActorConfig() {{ ephemeral = true; }}).cue(StatelessLambdaActor::agent);
@@ -93,6 +213,7 @@ public final class ActorSystem implements Endpoint {
   
   private void registerStandardExecutors() {
     addExecutor(ForkJoinPool.commonPool()).named(COMMON_EXECUTOR_NAME);
+    ifSet(virtualExecutor, executor -> addExecutor(executor).named(VIRTUAL_EXECUTOR_NAME));
   }
   
   String getIdAsHex() {
@@ -121,12 +242,51 @@ public final class ActorSystem implements Endpoint {
     return new IngressBuilder(this);
   }
   
+  ActorRef[] getIngressRefs() {
+    return ingressRefs;
+  }
+  
+  /**
+   *  Starts a batch of messages to be sent from outside the actor system.
+   *  
+   *  @return A builder for the batch.
+   */
+  public BatchBuilder batch() {
+    return new BatchBuilder(this);
+  }
+  
   void registerActor(String role, Supplier<? extends Actor> factory, ActorConfig actorConfig) {
-    final ActorSetup existing = setupRegistry.put(role, new ActorSetup(factory, actorConfig));
-    if (existing != null) {
-      setupRegistry.put(role, existing);
+    if (actorConfig.threads != 0) {
+      if (actorConfig.threads < 0) {
+        throw new IllegalArgumentException("Number of threads for role " + role + " cannot be negative");
+      }
+      if (actorConfig.executorName != null) {
+        throw new IllegalArgumentException("Role " + role + " cannot have both dedicated threads and a named executor");
+      }
+      if (config.executor == ActorSystemConfig.ExecutorChoice.VIRTUAL_THREADS) {
+        throw new IllegalArgumentException("Role " + role + " cannot have dedicated threads when the system runs on virtual threads");
+      }
+    }
+    if (VIRTUAL_EXECUTOR_NAME.equals(actorConfig.executorName) && virtualExecutor == null) {
+      throw new UnsupportedOperationException("Role " + role + " cannot use the " + VIRTUAL_EXECUTOR_NAME + 
+                                              " executor, as virtual threads cannot be used with this JVM version");
+    }
+    if (actorConfig.maxBias != 0 && actorConfig.maxBias < actorConfig.bias) {
+      throw new IllegalArgumentException("Max bias for role " + role + " cannot be less than its bias");
+    }
+    if (actorConfig.turnSliceMicros < 0) {
+      throw new IllegalArgumentException("Turn slice for role " + role + " cannot be negative");
+    }
+    if (actorConfig.turnSliceMicros != 0 && actorConfig.turnSliceCheckInterval <= 0) {
+      throw new IllegalArgumentException("Turn slice check interval for role " + role + " must be positive");
+    }
+    if (setupRegistry.containsKey(role)) {
       throw new DuplicateRoleException("Factory for actor of role " + role + " has already been registered");
     }
+    
+    final ExecutorService dedicatedExecutor = actorConfig.threads != 0 
+        ? config.executor.apply(new ExecutorParams(actorConfig.threads, jvmVersion)) : null;
+    setupRegistry.put(role, new ActorSetup(factory, actorConfig, dedicatedExecutor));
   }
   
   public final class LocalExecutorBuilder {
@@ -160,11 +320,16 @@ public final class ActorSystem implements Endpoint {
   }
   
   void send(Message message, String preferredExecutorName) {
+    if (isDirectAskResponse(message)) {
+      respondToDirectAsk(message);
+      return;
+    }
+    
     final Executor preferredExecutor = preferredExecutorName != null ? getNamedExecutor(preferredExecutorName) : null;
     
     for (;;) {
       final Activation a = activate(message.to(), preferredExecutor);
-      if (a.enqueue(message)) {
+      if (a.measuredEnqueue(message)) {
         return;
       } else {
         message.to().setCachedActivation(null);
@@ -172,6 +337,39 @@ public final class ActorSystem implements Endpoint {
     }
   }
   
+  /**
+   *  Sends a group of messages, which may be bound for any number of actors. The messages are grouped
+   *  by their target, and each group is enqueued in one operation, scheduling the target at most once.
+   *  Messages bound for the same target are enqueued in the order given. See also {@link #batch()}.
+   *  
+   *  @param messages The messages to send.
+   */
+  public void sendAll(Collection<Message> messages) {
+    final Map<ActorRef, List<Message>> groups = new HashMap<>();
+    for (Message message : messages) {
+      if (isDirectAskResponse(message)) {
+        respondToDirectAsk(message);
+        continue;
+      }
+      groups.computeIfAbsent(message.to(), ref -> new ArrayList<>()).add(message);
+    }
+    
+    for (List<Message> group : groups.values()) {
+      final ActorRef to = group.get(0).to();
+      final int size = group.size();
+      int sent = 0;
+      for (;;) {
+        final Activation a = activate(to, null);
+        sent += a.measuredEnqueueAll(sent == 0 ? group : group.subList(sent, size));
+        if (sent == size) {
+          break;
+        } else {
+          to.setCachedActivation(null);
+        }
+      }
+    }
+  }
+  
   Executor getNamedExecutor(String name) {
     final Executor executor = localExecutors.get(name);
     if (executor == null) {
@@ -180,6 +378,57 @@ public final class ActorSystem implements Endpoint {
     return executor;
   }
   
+  public ActorRef ref(String role) {
+    return ref(role, null);
+  }
+  
+  /**
+   *  Obtains the canonical ref for the given role and key, which is the same instance for the lifetime
+   *  of this actor system. A canonical ref caches a pointer to the current activation, so that
+   *  repeated sends to a known actor skip the activation lookup. Activations created through a canonical
+   *  ref also adopt it as their own, so that replies benefit likewise.<p>
+   *  
+   *  Canonical refs are never released; this method is intended for actors that are addressed
+   *  repeatedly, rather than for one-off sends to transient keys.
+   *  
+   *  @param role The role.
+   *  @param key The key (may be {@code null}).
+   *  @return The canonical ref.
+   */
+  public ActorRef ref(String role, String key) {
+    final ActorRef ref = ActorRef.of(role, key);
+    final ActorRef existing = canonicalRefs.putIfAbsent(ref, ref);
+    return existing != null ? existing : ref;
+  }
+  
+  /**
+   *  Sends a message if it can be accepted without blocking, i.e. if the target actor's backlog
+   *  is below capacity.
+   *  
+   *  @param message The message to send.
+   *  @return True if the message was sent, or false if sending would have blocked.
+   */
+  public boolean trySend(Message message) {
+    if (isDirectAskResponse(message)) {
+      respondToDirectAsk(message);
+      return true;
+    }
+    
+    for (;;) {
+      final Activation a = activate(message.to(), null);
+      switch (a.measuredTryEnqueue(message)) {
+        case ENQUEUED:
+          return true;
+          
+        case WOULD_BLOCK:
+          return false;
+          
+        default:
+          message.to().setCachedActivation(null);
+      }
+    }
+  }
+  
   public void tell(ActorRef ref) {
     tell(ref, null);
   }
@@ -188,6 +437,10 @@ public final class ActorSystem implements Endpoint {
     send(new Message(null, ref, body, null, false));
   }
   
+  public boolean tryTell(ActorRef ref, Object body) {
+    return trySend(new Message(null, ref, body, null, false));
+  }
+  
   public <T> CompletableFuture<T> ask(ActorRef ref) {
     return ask(ref, null);
   }
@@ -225,7 +478,11 @@ public final class ActorSystem implements Endpoint {
    *  @return A future.
    */
   public <T> CompletableFuture<T> ask(ActorRef ref, long timeoutMillisUpperBound, Object requestBody) {
-    final TaskScheduler timeoutScheduler = getTimeoutScheduler();
+    if (config.directAsk) {
+      return askDirect(ref, timeoutMillisUpperBound, requestBody);
+    }
+    
+    final Scheduler timeoutScheduler = getTimeoutScheduler();
     final CompletableFuture<T> future = new CompletableFuture<>();
     
     final AtomicBoolean taskRegion = new AtomicBoolean();
@@ -263,6 +520,48 @@ public final class ActorSystem implements Endpoint {
     return future;
   }
   
+  /**
+   *  Sends a request straight to the target actor, on behalf of a randomly chosen ingress actor, registering 
+   *  a future to be completed by the response. Unless the timeout is zero (meaning that the request never
+   *  times out), it is scheduled alongside, and completes the future in the same manner.
+   */
+  private <T> CompletableFuture<T> askDirect(ActorRef ref, long timeoutMillisUpperBound, Object requestBody) {
+    final ActorRef from = ingressRefs[ThreadLocalRandom.current().nextInt(ingressRefs.length)];
+    final long seq = nextDirectAskSeq.getAndIncrement();
+    final TimeoutTask timeoutTask;
+    if (timeoutMillisUpperBound != 0) {
+      timeoutTask = new TimeoutTask(System.nanoTime() + timeoutMillisUpperBound * 1_000_000l,
+                                    directAskOrigin, seq, from, this);
+    } else {
+      timeoutTask = null;
+    }
+    final DirectAsk<T> future = new DirectAsk<>(seq, timeoutTask);
+    directAsks.put(seq, future);
+    if (timeoutTask != null) {
+      getTimeoutScheduler().schedule(timeoutTask);
+    }
+    send(new Message(from, ref, requestBody, directAskOrigin, seq, false));
+    return future;
+  }
+  
+  private boolean isDirectAskResponse(Message message) {
+    return message.isResponse() && message.requestOrigin() == directAskOrigin;
+  }
+  
+  /**
+   *  Completes the direct ask that the given message responds to. Responses to asks that have already
+   *  been completed (including by a timeout) or cancelled are discarded.
+   *  
+   *  @param message The response, fault or timeout message.
+   */
+  private void respondToDirectAsk(Message message) {
+    assert config.diagnostics.traceMacro("AS.respondToDirectAsk: m=%s", message);
+    final DirectAsk<?> ask = directAsks.remove(message.requestSeq());
+    if (ask != null) {
+      ask.respond(message);
+    }
+  }
+  
   void addToDeadLetterQueue(Fault fault) {
     deadLetterQueue.add(fault);
     if (deadLetterQueue.size() > config.deadLetterQueueSize) {
@@ -280,6 +579,9 @@ public final class ActorSystem implements Endpoint {
   
   void decBusyActors() {
     busyActors.add(-1);
+    if (awaitingQuiescence) {
+      signalIfQuiescent();
+    }
   }
   
   void addError(Throwable t) {
@@ -311,6 +613,25 @@ public final class ActorSystem implements Endpoint {
   public void forceTimeout() {
     getTimeoutScheduler().forceExecute();
   }
+
+  /**
+   *  Obtains the lag of the timeout scheduler, being the time by which timeouts were signalled
+   *  after they came due.
+   *
+   *  @return The timeout lag statistics.
+   */
+  public LagStats getTimeoutLag() {
+    return getTimeoutScheduler().getLag();
+  }
+  
+  /**
+   *  Obtains the sink collecting this actor system's metrics.
+   *  
+   *  @return The metrics sink, or {@code null} if metrics are disabled.
+   */
+  public MetricsSink getMetricsSink() {
+    return metricsSink;
+  }
   
   /**
    *  Waits until all actors have completely drained their mailbox backlog, returning an approximation
@@ -323,29 +644,85 @@ public final class ActorSystem implements Endpoint {
    *  @throws UnhandledMultiException If any unhandled exceptions were accumulated.
    */
   public long drain(long timeoutMillis) throws InterruptedException {
-    final long deadline = timeoutMillis != 0 ? System.currentTimeMillis() + timeoutMillis : 0;
-    final Integral64.Sum sum = new Integral64.Sum();
-    int yields = DRAIN_MAX_YIELDS;
-    for (;;) {
-      if (Thread.interrupted()) throw new InterruptedException();
-      
-      busyActors.sum(sum);
-      if (forciblyTerminated || (sum.isCertain() && sum.get() == 0)) {
-        checkUncaughtExceptions();
-        return 0;
-      } else if (yields > 0) {
-        Thread.yield();
-        yields--;
+    if (Thread.interrupted()) throw new InterruptedException();
+    
+    final CompletableFuture<Void> quiescent = whenQuiescent();
+    try {
+      if (timeoutMillis != 0) {
+        quiescent.get(timeoutMillis, TimeUnit.MILLISECONDS);
       } else {
-        Thread.sleep(DRAIN_SLEEP_MILLIS);
+        quiescent.get();
       }
+    } catch (TimeoutException e) {
+      removeQuiescenceWaiter(quiescent);
+      final Integral64.Sum sum = busyActors.sum(new Integral64.Sum());
+      assert config.diagnostics.traceMacro("AS.drain: sum=%s, executor=%s\n", sum, globalExecutor);
+      checkUncaughtExceptions();
+      return sum.isCertain() ? sum.get() : Math.min(Math.max(1, sum.get()), activations.size());
+    } catch (InterruptedException e) {
+      removeQuiescenceWaiter(quiescent);
+      throw e;
+    } catch (ExecutionException e) {
+      throw new FrameworkError("Unexpected error awaiting quiescence: " + e.getCause());
+    }
+    
+    checkUncaughtExceptions();
+    return 0;
+  }
+  
+  /**
+   *  Obtains a future that completes when all actors have completely drained their mailbox backlog,
+   *  including any outstanding requests. If the actor system is already quiescent, the returned future
+   *  is complete. The future is also completed if the actor system is forcibly terminated.<p>
+   *  
+   *  Unlike {@link #drain(long)}, this method doesn't block, nor does it check for unhandled exceptions.
+   *  Note that dependent actions attached to the future may be executed by a dispatcher thread, unless
+   *  one of the asynchronous variants is used.
+   *  
+   *  @return A future signalling quiescence.
+   */
+  public CompletableFuture<Void> whenQuiescent() {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    synchronized (quiescenceLock) {
+      quiescenceWaiters.add(future);
+      awaitingQuiescence = true;
+    }
+    // the system may have become quiescent before the future was registered
+    signalIfQuiescent();
+    return future;
+  }
+  
+  private void removeQuiescenceWaiter(CompletableFuture<Void> future) {
+    synchronized (quiescenceLock) {
+      quiescenceWaiters.remove(future);
+      awaitingQuiescence = ! quiescenceWaiters.isEmpty();
+    }
+  }
+  
+  /**
+   *  Completes all futures awaiting quiescence if no actors are busy. This is invoked whenever an actor
+   *  parks while there are waiters, by which time the actor has taken itself off the busy count. The
+   *  count is only conclusive if no other thread is concurrently adjusting it; should there be a concurrent
+   *  adjustment, the thread responsible will check again once done.<p>
+   *  
+   *  The count is taken under the lock, so that only those waiters registered before the count are
+   *  completed. The futures are completed outside of the lock, as they may have dependent actions.
+   */
+  private void signalIfQuiescent() {
+    final List<CompletableFuture<Void>> quiescent;
+    synchronized (quiescenceLock) {
+      if (quiescenceWaiters.isEmpty()) return;
       
-      if (deadline != 0 && System.currentTimeMillis() > deadline) {
-        busyActors.sum(sum);
-        assert config.diagnostics.traceMacro("AS.drain: sum=%s, executor=%s\n", sum, globalExecutor);
-        checkUncaughtExceptions();
-        return sum.isCertain() ? sum.get() : Math.min(Math.max(1, sum.get()), activations.size());
-      }
+      final Integral64.Sum sum = busyActors.sum(new Integral64.Sum());
+      if (! forciblyTerminated && ! (sum.isCertain() && sum.get() == 0)) return;
+      
+      quiescent = quiescenceWaiters;
+      quiescenceWaiters = new ArrayList<>();
+      awaitingQuiescence = false;
+    }
+    
+    for (CompletableFuture<Void> future : quiescent) {
+      future.complete(null);
     }
   }
   
@@ -375,17 +752,68 @@ public final class ActorSystem implements Endpoint {
       ref.setCachedActivation(existing);
       return existing;
     } else {
-      synchronized (activations) {
-        final Activation existing2 = activations.get(ref);
-        if (existing2 != null) {
-          ref.setCachedActivation(existing2);
-          return existing2;
-        } else {
-          final Activation created = createActivation(ref, preferredExecutor != null ? preferredExecutor : globalExecutor);
-          activations.put(ref, created);
-          ref.setCachedActivation(created);
-          return created;
-        }
+      final Activation activation = activateNew(ref, preferredExecutor != null ? preferredExecutor : globalExecutor);
+      ref.setCachedActivation(activation);
+      return activation;
+    }
+  }
+  
+  /** An activation in the process of being created. */
+  private static final class Creation {
+    final Thread creator = Thread.currentThread();
+    
+    final CompletableFuture<Activation> future = new CompletableFuture<>();
+  }
+  
+  /**
+   *  Creates an activation for the given ref, unless one already exists. The actor's factory and the 
+   *  activation's constructor run without holding any lock, while the activation map only sees the 
+   *  insertion of the finished activation. Concurrent callers for the same ref wait for the first one to 
+   *  finish, so that the actor is still constructed exactly once.
+   *  
+   *  @param ref The ref.
+   *  @param executor The executor to use, unless the role specifies its own.
+   *  @return The activation.
+   */
+  private Activation activateNew(ActorRef ref, Executor executor) {
+    final Creation creation = new Creation();
+    final Creation existingCreation = creations.putIfAbsent(ref, creation);
+    if (existingCreation != null) {
+      return awaitCreation(ref, existingCreation);
+    }
+    
+    try {
+      // the activation may have been inserted (and the creation retired) after the caller's lookup
+      Activation activation = activations.get(ref);
+      if (activation == null) {
+        activation = createActivation(canonicalRefs.getOrDefault(ref, ref), executor);
+        activations.put(ref, activation);
+      }
+      creation.future.complete(activation);
+      return activation;
+    } catch (Throwable e) {
+      creation.future.completeExceptionally(e);
+      throw e;
+    } finally {
+      creations.remove(ref, creation);
+    }
+  }
+  
+  private static Activation awaitCreation(ActorRef ref, Creation creation) {
+    if (creation.creator == Thread.currentThread()) {
+      throw new IllegalStateException("Cannot activate " + ref + " while constructing its actor");
+    }
+    
+    try {
+      return creation.future.join();
+    } catch (CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
       }
     }
   }
@@ -393,13 +821,18 @@ public final class ActorSystem implements Endpoint {
   void dispose(ActorRef ref) {
     final Activation activation = activations.remove(ref);
     activation.dispose();
+    activation.ref.clearCachedActivation(activation);
+    final ActorRef canonical = canonicalRefs.get(ref);
+    if (canonical != null) {
+      canonical.clearCachedActivation(activation);
+    }
   }
   
-  TaskScheduler getTimeoutScheduler() {
+  Scheduler getTimeoutScheduler() {
     return mustExist(timeoutScheduler, withMessage("Timeout scheduler is not in use", IllegalStateException::new));
   }
   
-  TaskScheduler getBackgroundScheduler() {
+  Scheduler getBackgroundScheduler() {
     return mustExist(backgroundScheduler, withMessage("Background scheduler is not in use", IllegalStateException::new));
   }
   
@@ -415,9 +848,17 @@ public final class ActorSystem implements Endpoint {
     final ActorSetup setup = setupRegistry.get(ref.role());
     if (setup == null) throw new NoSuchRoleException("No setup for actor of role " + ref.role());
     final Actor actor = setup.factory.get();
-    final Activation activation = setup.actorConfig.activationFactory.create(nextActivationId++, 
+    final Executor roleExecutor;
+    if (setup.dedicatedExecutor != null) {
+      roleExecutor = setup.dedicatedExecutor;
+    } else if (setup.actorConfig.executorName != null) {
+      roleExecutor = getNamedExecutor(setup.actorConfig.executorName);
+    } else {
+      roleExecutor = executor;
+    }
+    final Activation activation = setup.actorConfig.activationFactory.create(nextActivationId.getAndIncrement(), 
                                                                              ref, this, setup.actorConfig, 
-                                                                             actor, executor);
+                                                                             actor, roleExecutor);
     return activation;
   }
   
@@ -452,10 +893,11 @@ public final class ActorSystem implements Endpoint {
   }
   
   void terminate() {
-    ifSet(timeoutScheduler, TaskScheduler::clear);
-    ifSet(backgroundScheduler, TaskScheduler::clear);
+    ifSet(timeoutScheduler, Scheduler::clear);
+    ifSet(backgroundScheduler, Scheduler::clear);
     shutdownSilently(false);
     forciblyTerminated = true;
+    signalIfQuiescent();
   }
   
   /**
@@ -479,11 +921,16 @@ public final class ActorSystem implements Endpoint {
     if (drain) {
       drain(0);
     }
-    ifSet(timeoutScheduler, TaskScheduler::forceExecute);
-    ifSet(timeoutScheduler, TaskScheduler::terminate);
-    ifSet(backgroundScheduler, TaskScheduler::forceExecute);
-    ifSet(backgroundScheduler, TaskScheduler::terminate);
+    ifSet(timeoutScheduler, Scheduler::forceExecute);
+    ifSet(timeoutScheduler, Scheduler::terminate);
+    ifSet(backgroundScheduler, Scheduler::forceExecute);
+    ifSet(backgroundScheduler, Scheduler::terminate);
     globalExecutor.shutdown();
+    ifSet(virtualExecutor, ExecutorService::shutdown);
+    for (ActorSetup setup : setupRegistry.values()) {
+      ifSet(setup.dedicatedExecutor, ExecutorService::shutdown);
+    }
+    ifSet(metricsSink, MetricsSink::stop);
     running = false;
   }
   
@@ -4,10 +4,14 @@ import java.io.*;
 import java.util.concurrent.*;
 import java.util.function.*;
 
+import com.obsidiandynamics.indigo.metrics.*;
+import com.obsidiandynamics.indigo.task.*;
 import com.obsidiandynamics.indigo.util.*;
 
 import static com.obsidiandynamics.indigo.ActorSystemConfig.ExceptionHandlerChoice.*;
 import static com.obsidiandynamics.indigo.ActorSystemConfig.ExecutorChoice.*;
+import static com.obsidiandynamics.indigo.ActorSystemConfig.MetricsSinkChoice.*;
+import static com.obsidiandynamics.indigo.ActorSystemConfig.SchedulerChoice.*;
 import static com.obsidiandynamics.indigo.ActorSystemConfig.Key.*;
 import static com.obsidiandynamics.indigo.util.PropertyUtils.*;
 
@@ -16,10 +20,18 @@ public class ActorSystemConfig {
     public static final String PARALLELISM = "indigo.system.parallelism";
     public static final String INGRESS_COUNT = "indigo.system.ingressCount";
     public static final String DEFAULT_ASK_TIMEOUT_MILLIS = "indigo.system.defaultAskTimeoutMillis";
+    public static final String DIRECT_ASK = "indigo.system.directAsk";
     public static final String EXECUTOR = "indigo.system.executor";
     public static final String EXCEPTION_HANDLER = "indigo.system.exceptionHandler";
     public static final String DEAD_LETTER_QUEUE_SIZE = "indigo.system.deadLetterQueueSize";
     public static final String REAPER_PERIOD_MILLIS = "indigo.system.reaperPeriodMillis";
+    public static final String TIMEOUT_SCHEDULER = "indigo.system.timeoutScheduler";
+    public static final String TIMER_TICK_MICROS = "indigo.system.timerTickMicros";
+    public static final String TIMEOUT_BATCH_EXPIRY = "indigo.system.timeoutBatchExpiry";
+    public static final String TIMEOUT_EXPIRY_FAN_OUT = "indigo.system.timeoutExpiryFanOut";
+    public static final String TIMEOUT_SCHEDULER_SHARDS = "indigo.system.timeoutSchedulerShards";
+    public static final String METRICS_SINK = "indigo.system.metricsSink";
+    public static final String MESSAGE_TIMING = "indigo.system.messageTiming";
     private Key() {}
   }
   
@@ -41,10 +53,25 @@ public class ActorSystemConfig {
   /** The default timeout when asking from outside the actor system. */
   public int defaultAskTimeoutMillis = get(DEFAULT_ASK_TIMEOUT_MILLIS, Integer::parseInt, 60_000);
   
+  /** Whether asks from outside the actor system should bypass the ingress actors, with the request sent straight
+   *  to the target and the returned future completed by the thread of the responding actor. This saves two message
+   *  hops per ask. Note that dependent actions attached to the future may then be executed by a dispatcher thread,
+   *  and that outstanding external asks no longer hold up quiescence. */
+  public boolean directAsk = get(DIRECT_ASK, Boolean::parseBoolean, false);
+  
   public enum ExecutorChoice implements Function<ExecutorParams, ExecutorService> {
     AUTO(params -> Threads.autoPool(params.parallelism, params.version)),
     FORK_JOIN_POOL(params -> Threads.cappedForkJoinPool(params.parallelism, params.version)),
-    FIXED_THREAD_POOL(params -> Threads.prestartedFixedThreadPool(params.parallelism));
+    FIXED_THREAD_POOL(params -> Threads.prestartedFixedThreadPool(params.parallelism)),
+    /** Pins each actor to one of a fixed set of worker threads, keeping its turns on the same core. An actor that
+     *  blocks (e.g. when sending to a full backlog) also holds up every other actor pinned to the same worker. */
+    AFFINITY(params -> new AffinityExecutor(params.parallelism, false)),
+    /** As per {@link #AFFINITY}, with idle workers stealing turns queued on busy workers. */
+    AFFINITY_STEALING(params -> new AffinityExecutor(params.parallelism, true)),
+    /** Runs each turn on a fresh virtual thread, so that actors blocking on I/O don't tie up platform threads.
+     *  Requires Java 21 or newer; see also {@link ActorConfig#executorName} for confining blocking roles to
+     *  virtual threads while the remaining roles run on a pooled executor. */
+    VIRTUAL_THREADS(params -> Threads.virtualThreadPool(params.version));
     
     private final Function<ExecutorParams, ExecutorService> func;
     private ExecutorChoice(Function<ExecutorParams, ExecutorService> func) { this.func = func; }
@@ -86,6 +113,26 @@ public class ActorSystemConfig {
   /** In-memory diagnostics. */
   public Diagnostics diagnostics = new Diagnostics();
   
+  public enum MetricsSinkChoice implements Supplier<MetricsSink> {
+    /** Disables metrics collection, sparing the hot path from timestamping each message. */
+    NONE(() -> null),
+    /** Collects metrics per role, publishing them over JMX. */
+    JMX(JmxMetricsSink::new);
+    
+    private final Supplier<MetricsSink> supplier;
+    private MetricsSinkChoice(Supplier<MetricsSink> supplier) { this.supplier = supplier; }
+    @Override public MetricsSink get() { return supplier.get(); }
+  }
+  
+  /** Creates the sink for collecting metrics, such as mailbox depths, queuing latencies and service times. A
+   *  <code>null</code> sink disables metrics. */
+  public Supplier<MetricsSink> metricsSink = get(METRICS_SINK, MetricsSinkChoice::valueOf, NONE);
+  
+  /** Whether the metrics sink should also be given a breakdown of each message's latency, separating the time
+   *  spent in the mailbox, awaiting a thread after dispatch and awaiting earlier messages in the same turn. This
+   *  costs two additional timestamps per turn. Requires a {@link #metricsSink}. */
+  public boolean messageTiming = get(MESSAGE_TIMING, Boolean::parseBoolean, false);
+  
   /** The default actor configuration. */
   public ActorConfig defaultActorConfig = new ActorConfig();
   
@@ -96,6 +143,45 @@ public class ActorSystemConfig {
    *  actor systems that don't need timeout scheduling capabilities. */
   public boolean enableTimeoutScheduler = true;
   
+  public enum SchedulerChoice implements Function<SchedulerParams, Scheduler> {
+    /** Keeps tasks in a skip list, executing them close to their scheduled time. Scheduling and aborting a task
+     *  takes logarithmic time. */
+    SKIP_LIST(params -> new TaskScheduler(params.threadName, params.batchExpiry, params.expiryExecutor)),
+    /** Keeps tasks in a hierarchical timing wheel, turning once every {@link ActorSystemConfig#timerTickMicros}.
+     *  Scheduling and aborting a task takes constant time, but tasks may be executed up to a tick late. */
+    TIMING_WHEEL(params -> new TimingWheelScheduler(params.threadName, params.tickMicros * 1_000l, params.expiryExecutor));
+    
+    private final Function<SchedulerParams, Scheduler> func;
+    private SchedulerChoice(Function<SchedulerParams, Scheduler> func) { this.func = func; }
+    @Override public Scheduler apply(SchedulerParams params) { return func.apply(params); }
+  }
+  
+  /** Creates the scheduler used for timing out requests. */
+  public Function<SchedulerParams, Scheduler> timeoutScheduler = get(TIMEOUT_SCHEDULER, SchedulerChoice::valueOf, SKIP_LIST);
+  
+  /** The resolution of the timeout scheduler, where the scheduler operates in discrete ticks (as is the case with
+   *  {@link SchedulerChoice#TIMING_WHEEL}). */
+  public int timerTickMicros = get(TIMER_TICK_MICROS, Integer::parseInt, 1_000);
+  
+  /** Whether the timeout scheduler should execute all timeouts that have come due in a single pass, rather than
+   *  one timeout at a time. This only applies to {@link SchedulerChoice#SKIP_LIST}, as the timing wheel always 
+   *  expires timeouts in batches. */
+  public boolean timeoutBatchExpiry = get(TIMEOUT_BATCH_EXPIRY, Boolean::parseBoolean, false);
+  
+  /** Whether timeouts that have come due should be handed off to the dispatcher pool, rather than being signalled 
+   *  by the timeout scheduler thread. This keeps the scheduler responsive when signalling is slow, for example
+   *  when the requesting actors' backlogs are at capacity. */
+  public boolean timeoutExpiryFanOut = get(TIMEOUT_EXPIRY_FAN_OUT, Boolean::parseBoolean, false);
+  
+  /** The number of timeout schedulers, each with its own thread. Timeouts are routed to a scheduler by the ID
+   *  of the requesting activation, so that timeout registration and cancellation aren't bottlenecked on a
+   *  single scheduler.<p>
+   *  
+   *  Positive number: number of schedulers;
+   *  Zero: set to the number of cores on the machine;
+   *  Negative number: subtracts the number from the number of cores, so a -1 on an 8-core machine gives 7 schedulers. */
+  public int timeoutSchedulerShards = get(TIMEOUT_SCHEDULER_SHARDS, Integer::parseInt, 1);
+  
   /** Whether the background scheduler should be enabled. Disabling the background scheduler allows for stripped-down
    *  actor systems that don't need background scheduling capabilities. */
   public boolean enableBackgroundScheduler = true;
@@ -112,6 +198,10 @@ public class ActorSystemConfig {
     return ingressCount > 0 ? ingressCount : getNumProcessors() - ingressCount;
   }
   
+  final int getTimeoutSchedulerShards() {
+    return timeoutSchedulerShards > 0 ? timeoutSchedulerShards : Math.max(1, getNumProcessors() + timeoutSchedulerShards);
+  }
+  
   final void init() {
     if (exceptionHandler == SYSTEM) {
       throw new IllegalArgumentException(String.format("Cannot use %s.%s as a top level exception handler", 
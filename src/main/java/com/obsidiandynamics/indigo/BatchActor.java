@@ -0,0 +1,23 @@
+package com.obsidiandynamics.indigo;
+
+import java.util.*;
+
+/**
+ *  An actor that can act on a batch of messages in a single call. Batches are only formed if
+ *  {@link ActorConfig#batchDrain} is set; otherwise, and for actors that don't implement this interface,
+ *  messages are handed to {@link #act(Activation, Message)} one at a time.
+ */
+public interface BatchActor extends Actor {
+  /**
+   *  Handles a batch of unsolicited messages drained from the mailbox in a single pass.<p>
+   *  
+   *  The given list is only valid for the duration of the call. As the batch is handed over in its 
+   *  entirety, a stash or passivation requested by the actor only applies to the messages that follow 
+   *  the batch, and a fault (including an exception thrown by this method) is raised against every 
+   *  message in the batch.
+   *  
+   *  @param a The activation.
+   *  @param messages The messages, in order of arrival.
+   */
+  void actBatch(Activation a, List<Message> messages);
+}
@@ -0,0 +1,59 @@
+package com.obsidiandynamics.indigo;
+
+import java.util.*;
+
+/**
+ *  Accumulates messages to be sent from outside the actor system, sending them together on
+ *  {@link #send()}. The messages are grouped by their target, and each group is enqueued with a
+ *  single mailbox operation, scheduling the target actor at most once for the entire group.<p>
+ *
+ *  Messages bound for the same actor are delivered in the order in which they were added; no
+ *  ordering is implied between messages bound for different actors.
+ */
+public final class BatchBuilder {
+  private final ActorSystem system;
+
+  private final List<Message> messages = new ArrayList<>();
+
+  BatchBuilder(ActorSystem system) {
+    this.system = system;
+  }
+
+  public BatchBuilder tell(ActorRef ref) {
+    return tell(ref, null);
+  }
+
+  public BatchBuilder tell(ActorRef ref, Object body) {
+    messages.add(new Message(null, ref, body, null, false));
+    return this;
+  }
+
+  public BatchBuilder tellAll(ActorRef ref, Collection<?> bodies) {
+    for (Object body : bodies) {
+      tell(ref, body);
+    }
+    return this;
+  }
+
+  /**
+   *  Obtains the number of messages accumulated so far.
+   *
+   *  @return The number of messages.
+   */
+  public int size() {
+    return messages.size();
+  }
+
+  /**
+   *  Sends the accumulated messages, clearing the batch so that the builder may be reused.
+   *
+   *  @return The actor system, for chaining.
+   */
+  public ActorSystem send() {
+    if (! messages.isEmpty()) {
+      system.sendAll(messages);
+      messages.clear();
+    }
+    return system;
+  }
+}
@@ -3,66 +3,634 @@ package com.obsidiandynamics.indigo;
 import static com.obsidiandynamics.indigo.util.PropertyUtils.*;
 
 import java.io.*;
+import java.lang.invoke.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 import com.obsidiandynamics.assertion.*;
 
+/**
+ *  An in-memory trace log, recording each entry in a preallocated ring buffer belonging to the calling
+ *  thread. Recording an entry is lock-free and wait-free, and defers formatting until the log is read;
+ *  the fixed-arity overloads of {@link #trace} also avoid allocating an argument array.<p>
+ *
+ *  Each ring buffer holds the most recent {@link #ringSize} entries of its thread, starting small and growing
+ *  as the thread traces, so that short-lived threads don't preallocate a full ring. When the log is read,
+ *  the buffers are merged in order of the entries' timestamps, and truncated to the most recent
+ *  {@link #logSize} entries. Reading the log while threads are still tracing is safe, but the entries
+ *  being overwritten at the time may be missed.<p>
+ *
+ *  The buffer of a thread that has terminated is reclaimed the next time the log is read, or once
+ *  {@link #RECLAIM_THRESHOLD} further threads have started tracing; its entries are retained, up to a total 
+ *  of {@link #logSize}, and merged with those of the live threads.
+ */
 public class Diagnostics {
   public static final class Key {
     public static final String TRACE_ENABLED = "indigo.diagnostics.traceEnabled";
     public static final String LOG_SIZE = "indigo.diagnostics.logSize";
+    public static final String RING_SIZE = "indigo.diagnostics.ringSize";
     private Key() {}
   }
-  
+
+  /** Identifies a binary dump. */
+  private static final int DUMP_MAGIC = 0x49445447;
+
+  private static final int DUMP_VERSION = 2;
+
+  /** Written in place of a string index to introduce a string that hasn't been written before. */
+  private static final int NEW_STRING = -1;
+
+  /** Written in place of a string index to denote a {@code null} string. */
+  private static final int NULL_STRING = -2;
+
+  private static final Object[] NO_ARGS = {};
+
+  /** The number of arguments that can be stored in a ring buffer slot without allocating an array. */
+  private static final int INLINE_ARGS = 3;
+
+  /** The initial capacity of a ring buffer, which doubles as it fills, up to {@link #ringSize}. */
+  private static final int INITIAL_RING_CAPACITY = 64;
+
+  /** The number of rings created between attempts to reclaim the rings of terminated threads, if the log
+   *  isn't read in the meantime. */
+  static final int RECLAIM_THRESHOLD = 64;
+
+  /** Orders the loads that precede it before the loads and stores that follow it. */
+  private static final MethodHandle ACQUIRE_FENCE = findAcquireFence();
+
   /** Whether tracing should be enabled. */
   public boolean traceEnabled = get(Key.TRACE_ENABLED, Boolean::parseBoolean, false);
-  
+
   /** The upper bound on the size of the trace log. Beyond this, truncation from the head (least recent) occurs. */
   public int logSize = get(Key.LOG_SIZE, Integer::parseInt, 100_000);
-  
-  private final BlockingQueue<LogEntry> log = new LinkedBlockingQueue<>();
-  
+
+  /** The number of entries retained for each tracing thread, rounded up to a power of two. */
+  public int ringSize = get(Key.RING_SIZE, Integer::parseInt, 16_384);
+
+  private final Queue<Ring> rings = new ConcurrentLinkedQueue<>();
+
+  /** The number of rings created since the last reclamation. */
+  private final AtomicInteger ringsSinceReclaim = new AtomicInteger();
+
+  private final Lock reclaimLock = new ReentrantLock();
+
+  /** The entries of the threads whose rings have been reclaimed, sorted by time; guarded by {@link #reclaimLock}. */
+  private List<LogEntry> retired = Collections.emptyList();
+
+  private final ThreadLocal<Ring> localRing = ThreadLocal.withInitial(this::createRing);
+
   final void init() {
     if (traceEnabled && ! Assertions.areEnabled()) {
       throw new IllegalStateException("Assertions need to be enabled for tracing, run JVM with -ea flag");
     }
   }
-  
+
   public static final class LogEntry {
+    private final long time;
+    private final long threadId;
+    private final String threadName;
     private final String format;
     private final Object[] args;
-    
+
     LogEntry(String format, Object ... args) {
+      this(0, 0, null, format, args);
+    }
+
+    LogEntry(long time, long threadId, String threadName, String format, Object[] args) {
+      this.time = time;
+      this.threadId = threadId;
+      this.threadName = threadName;
       this.format = format;
       this.args = args;
     }
-    
+
+    /**
+     *  Obtains the time at which the entry was recorded, as per {@link System#nanoTime()}.
+     *
+     *  @return The timestamp.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    public long getThreadId() {
+      return threadId;
+    }
+
+    public String getThreadName() {
+      return threadName;
+    }
+
+    public String getFormat() {
+      return format;
+    }
+
     @Override public String toString() {
       return String.format(format, args);
     }
   }
 
+  /**
+   *  The storage of a ring, which is replaced by a larger one as the ring grows. A ring only grows before
+   *  it first wraps around, so that the storage it replaces is never overwritten.
+   */
+  private static final class Slots {
+    final int mask;
+    final long[] times;
+    final String[] formats;
+    final byte[] arities;
+    final Object[] args;
+
+    Slots(int capacity) {
+      mask = capacity - 1;
+      times = new long[capacity];
+      formats = new String[capacity];
+      arities = new byte[capacity];
+      args = new Object[capacity * INLINE_ARGS];
+    }
+
+    Slots grow(int capacity) {
+      final Slots grown = new Slots(capacity);
+      final int length = mask + 1;
+      System.arraycopy(times, 0, grown.times, 0, length);
+      System.arraycopy(formats, 0, grown.formats, 0, length);
+      System.arraycopy(arities, 0, grown.arities, 0, length);
+      System.arraycopy(args, 0, grown.args, 0, length * INLINE_ARGS);
+      return grown;
+    }
+  }
+
+  /**
+   *  The trace entries of a single thread. Only the owning thread writes to the ring; the count of
+   *  written entries is published with release semantics, so that readers see every slot below the count.
+   *  A slot is claimed before it is overwritten, allowing readers to discard the entries they may have 
+   *  copied while the owner was overwriting them.<p>
+   *
+   *  The owning thread is only weakly referenced, so that the ring doesn't prevent it from being collected.
+   */
+  private static final class Ring {
+    final WeakReference<Thread> owner;
+    final long threadId;
+    final String threadName;
+    final int maxCapacity;
+
+    /** The current storage, replaced before the count is published beyond the capacity of its predecessor. */
+    volatile Slots slots;
+
+    /** The storage, as seen by the owning thread. */
+    Slots ownSlots;
+
+    /** The number of entries written, as seen by the owning thread. */
+    long written;
+
+    /** 
+     *  The number of slots claimed for writing, published with a volatile store before the slot is 
+     *  overwritten, so that the claim can't be reordered with the slot writes that follow it. 
+     */
+    final AtomicLong claimed = new AtomicLong();
+
+    /** The number of entries written, published once the slot has been written. */
+    final AtomicLong published = new AtomicLong();
+
+    Ring(Thread thread, int size) {
+      owner = new WeakReference<>(thread);
+      threadId = thread.getId();
+      threadName = thread.getName();
+      maxCapacity = Integer.highestOneBit(Math.max(1, size) * 2 - 1);
+      slots = ownSlots = new Slots(Math.min(INITIAL_RING_CAPACITY, maxCapacity));
+    }
+
+    void add(String format, int arity, Object arg0, Object arg1, Object arg2) {
+      final long seq = written;
+      Slots s = ownSlots;
+      if (seq == s.mask + 1 && seq != maxCapacity) {
+        slots = ownSlots = s = s.grow((int) seq << 1);
+      }
+      final int slot = (int) seq & s.mask;
+      claimed.set(seq + 1);
+      s.times[slot] = System.nanoTime();
+      s.formats[slot] = format;
+      s.arities[slot] = (byte) arity;
+      final int base = slot * INLINE_ARGS;
+      s.args[base] = arg0;
+      s.args[base + 1] = arg1;
+      s.args[base + 2] = arg2;
+      written = seq + 1;
+      published.lazySet(seq + 1);
+    }
+
+    boolean isOwnerAlive() {
+      final Thread thread = owner.get();
+      return thread != null && thread.isAlive();
+    }
+
+    void collect(List<LogEntry> entries) {
+      final long end = published.get();
+      final Slots s = slots;
+      final long start = Math.max(0, end - s.mask - 1);
+      final int offset = entries.size();
+      for (long seq = start; seq < end; seq++) {
+        final int slot = (int) seq & s.mask;
+        entries.add(new LogEntry(s.times[slot], threadId, threadName, s.formats[slot], getArgs(s, slot)));
+      }
+
+      // discard entries that may have been overwritten while they were being copied; storage that has 
+      // since been replaced was never overwritten
+      acquireFence();
+      final long firstIntact = claimed.get() - s.mask - 1;
+      if (firstIntact > start && slots == s) {
+        entries.subList(offset, offset + (int) Math.min(firstIntact - start, end - start)).clear();
+      }
+    }
+
+    private static Object[] getArgs(Slots s, int slot) {
+      final int arity = s.arities[slot];
+      final int base = slot * INLINE_ARGS;
+      if (arity > INLINE_ARGS) {
+        return (Object[]) s.args[base];
+      } else {
+        final Object[] slotArgs = new Object[arity];
+        System.arraycopy(s.args, base, slotArgs, 0, arity);
+        return slotArgs;
+      }
+    }
+  }
+
+  /**
+   *  Orders the preceding loads before the following ones, so that a reader re-checking a ring's claimed 
+   *  count does so only after it has copied the slots. The fence is looked up reflectively, so that this 
+   *  class remains loadable on JVMs that predate {@link VarHandle}.
+   */
+  private static void acquireFence() {
+    try {
+      ACQUIRE_FENCE.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle findAcquireFence() {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    final MethodType type = MethodType.methodType(void.class);
+    try {
+      return lookup.findStatic(Class.forName("java.lang.invoke.VarHandle"), "acquireFence", type);
+    } catch (ReflectiveOperationException e) {
+      try {
+        final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        return lookup.findVirtual(unsafeClass, "loadFence", type).bindTo(theUnsafe.get(null));
+      } catch (ReflectiveOperationException e2) {
+        throw new ExceptionInInitializerError(e2);
+      }
+    }
+  }
+
+  /**
+   *  Creates a ring for the calling thread. Every {@link #RECLAIM_THRESHOLD} rings, the rings of terminated 
+   *  threads are reclaimed, unless a reclamation is already underway; the log may otherwise go unread 
+   *  while threads come and go, e.g. when running actors on virtual threads.
+   *  
+   *  @return The ring.
+   */
+  private Ring createRing() {
+    final Ring ring = new Ring(Thread.currentThread(), ringSize);
+    rings.add(ring);
+    if (ringsSinceReclaim.incrementAndGet() >= RECLAIM_THRESHOLD && reclaimLock.tryLock()) {
+      try {
+        reclaimRings();
+      } finally {
+        reclaimLock.unlock();
+      }
+    }
+    return ring;
+  }
+
+  /**
+   *  Reclaims the rings of the threads that have terminated, folding their entries into the 
+   *  retired entries. A terminated thread's writes are visible to any thread that has observed its 
+   *  termination, so its ring can be collected in full. The caller must hold {@link #reclaimLock}.
+   *  
+   *  @return The retired entries, sorted by time.
+   */
+  private List<LogEntry> reclaimRings() {
+    ringsSinceReclaim.set(0);
+    List<List<LogEntry>> reclaimed = null;
+    for (Iterator<Ring> it = rings.iterator(); it.hasNext(); ) {
+      final Ring ring = it.next();
+      if (! ring.isOwnerAlive()) {
+        if (reclaimed == null) {
+          reclaimed = new ArrayList<>();
+          reclaimed.add(retired);
+        }
+        final List<LogEntry> entries = new ArrayList<>();
+        ring.collect(entries);
+        reclaimed.add(entries);
+        it.remove();
+      }
+    }
+
+    if (reclaimed != null) {
+      retired = truncate(merge(reclaimed));
+    }
+    return retired;
+  }
+
+  int countRings() {
+    return rings.size();
+  }
+
+  public boolean traceMacro(String format) {
+    trace(format);
+    return true;
+  }
+
+  public boolean traceMacro(String format, Object arg0) {
+    trace(format, arg0);
+    return true;
+  }
+
+  public boolean traceMacro(String format, Object arg0, Object arg1) {
+    trace(format, arg0, arg1);
+    return true;
+  }
+
+  public boolean traceMacro(String format, Object arg0, Object arg1, Object arg2) {
+    trace(format, arg0, arg1, arg2);
+    return true;
+  }
+
   public boolean traceMacro(String format, Object ... args) {
     trace(format, args);
     return true;
   }
-  
+
+  public void trace(String format) {
+    if (traceEnabled) {
+      localRing.get().add(format, 0, null, null, null);
+    }
+  }
+
+  public void trace(String format, Object arg0) {
+    if (traceEnabled) {
+      localRing.get().add(format, 1, arg0, null, null);
+    }
+  }
+
+  public void trace(String format, Object arg0, Object arg1) {
+    if (traceEnabled) {
+      localRing.get().add(format, 2, arg0, arg1, null);
+    }
+  }
+
+  public void trace(String format, Object arg0, Object arg1, Object arg2) {
+    if (traceEnabled) {
+      localRing.get().add(format, 3, arg0, arg1, arg2);
+    }
+  }
+
   public void trace(String format, Object ... args) {
     if (traceEnabled) {
-      log.add(new LogEntry(format, args));
-      if (log.size() > logSize) {
-        log.poll();
+      if (args == null) args = NO_ARGS;
+      if (args.length > INLINE_ARGS) {
+        localRing.get().add(format, args.length, args, null, null);
+      } else {
+        localRing.get().add(format, args.length,
+                            args.length > 0 ? args[0] : null,
+                            args.length > 1 ? args[1] : null,
+                            args.length > 2 ? args[2] : null);
       }
     }
   }
-  
+
+  /**
+   *  Obtains the most recent entries across all threads, in the order in which they were recorded.
+   *
+   *  @return The log entries.
+   */
   public LogEntry[] getLog() {
-    return log.toArray(new LogEntry[log.size()]);
+    final List<List<LogEntry>> perThread = new ArrayList<>();
+    reclaimLock.lock();
+    try {
+      perThread.add(reclaimRings());
+    } finally {
+      reclaimLock.unlock();
+    }
+    for (Ring ring : rings) {
+      final List<LogEntry> entries = new ArrayList<>();
+      ring.collect(entries);
+      perThread.add(entries);
+    }
+
+    final List<LogEntry> truncated = truncate(merge(perThread));
+    return truncated.toArray(new LogEntry[truncated.size()]);
   }
-  
+
+  /**
+   *  Truncates a sorted list to the most recent {@link #logSize} entries.
+   *
+   *  @param entries The sorted entries.
+   *  @return The truncated list.
+   */
+  private List<LogEntry> truncate(List<LogEntry> entries) {
+    final int from = Math.max(0, entries.size() - logSize);
+    return from == 0 ? entries : new ArrayList<>(entries.subList(from, entries.size()));
+  }
+
+  /**
+   *  Merges lists that are individually sorted by time into a single sorted list.
+   *
+   *  @param lists The sorted lists.
+   *  @return The merged list.
+   */
+  private static List<LogEntry> merge(List<List<LogEntry>> lists) {
+    int total = 0;
+    for (List<LogEntry> list : lists) total += list.size();
+    final List<LogEntry> merged = new ArrayList<>(total);
+    final PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+        (a, b) -> Long.compare(lists.get(a[0]).get(a[1]).time, lists.get(b[0]).get(b[1]).time));
+    for (int i = 0; i < lists.size(); i++) {
+      if (! lists.get(i).isEmpty()) {
+        heads.add(new int[] { i, 0 });
+      }
+    }
+
+    for (int[] head; (head = heads.poll()) != null; ) {
+      final List<LogEntry> list = lists.get(head[0]);
+      merged.add(list.get(head[1]));
+      if (++head[1] < list.size()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
   public void print(PrintStream out) {
+    for (LogEntry entry : getLog()) {
+      out.println(entry.time + " [" + entry.threadName + "] " + entry);
+    }
+  }
+
+  /**
+   *  Writes the log to the given file in a compact binary form, deferring the formatting of its entries
+   *  until the dump is loaded with {@link #load(File)}.
+   *
+   *  @param file The file to write to.
+   *  @throws IOException If an I/O error occurs.
+   */
+  public void dump(File file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      dump(out);
+    }
+  }
+
+  /**
+   *  Writes the log to the given stream in a compact binary form. Repeated strings, such as formats and
+   *  thread names, are written once and subsequently referenced by their index. Numeric and boolean arguments
+   *  retain their types; all other arguments are written as strings.
+   *
+   *  @param out The stream to write to.
+   *  @throws IOException If an I/O error occurs.
+   */
+  public void dump(OutputStream out) throws IOException {
+    final LogEntry[] log = getLog();
+    final DataOutputStream data = new DataOutputStream(out);
+    final Map<String, Integer> strings = new HashMap<>();
+    data.writeInt(DUMP_MAGIC);
+    data.writeInt(DUMP_VERSION);
+    data.writeInt(log.length);
     for (LogEntry entry : log) {
-      out.println(entry);
+      data.writeLong(entry.time);
+      data.writeLong(entry.threadId);
+      writeString(data, entry.threadName, strings);
+      writeString(data, entry.format, strings);
+      data.writeInt(entry.args.length);
+      for (Object arg : entry.args) {
+        writeArg(data, arg, strings);
+      }
+    }
+    data.flush();
+  }
+
+  private static void writeArg(DataOutputStream data, Object arg, Map<String, Integer> strings) throws IOException {
+    if (arg == null) {
+      data.writeByte('N');
+    } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+      data.writeByte('I');
+      data.writeInt(((Number) arg).intValue());
+    } else if (arg instanceof Long) {
+      data.writeByte('J');
+      data.writeLong((Long) arg);
+    } else if (arg instanceof Double || arg instanceof Float) {
+      data.writeByte('D');
+      data.writeDouble(((Number) arg).doubleValue());
+    } else if (arg instanceof Boolean) {
+      data.writeByte('Z');
+      data.writeBoolean((Boolean) arg);
+    } else {
+      data.writeByte('S');
+      writeString(data, String.valueOf(arg), strings);
+    }
+  }
+
+  private static void writeString(DataOutputStream data, String str, Map<String, Integer> strings) throws IOException {
+    if (str == null) {
+      data.writeInt(NULL_STRING);
+      return;
+    }
+    
+    final Integer index = strings.get(str);
+    if (index != null) {
+      data.writeInt(index);
+    } else {
+      strings.put(str, strings.size());
+      final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      data.writeInt(NEW_STRING);
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+  }
+
+  /**
+   *  Loads the log entries from a file previously written by {@link #dump(File)}.
+   *
+   *  @param file The file to read from.
+   *  @return The log entries.
+   *  @throws IOException If an I/O error occurs, or if the file isn't a valid dump.
+   */
+  public static LogEntry[] load(File file) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      return load(in);
+    }
+  }
+
+  /**
+   *  Loads the log entries from a stream previously written by {@link #dump(OutputStream)}.
+   *
+   *  @param in The stream to read from.
+   *  @return The log entries.
+   *  @throws IOException If an I/O error occurs, or if the stream isn't a valid dump.
+   */
+  public static LogEntry[] load(InputStream in) throws IOException {
+    final DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != DUMP_MAGIC) {
+      throw new IOException("Not a diagnostics dump");
+    }
+    final int version = data.readInt();
+    if (version != DUMP_VERSION) {
+      throw new IOException("Unsupported dump version " + version);
+    }
+
+    final List<String> strings = new ArrayList<>();
+    final LogEntry[] log = new LogEntry[data.readInt()];
+    for (int i = 0; i < log.length; i++) {
+      final long time = data.readLong();
+      final long threadId = data.readLong();
+      final String threadName = readString(data, strings);
+      final String format = readString(data, strings);
+      final int argCount = data.readInt();
+      if (argCount < 0) {
+        throw new IOException("Invalid argument count " + argCount);
+      }
+      final Object[] args = new Object[argCount];
+      for (int j = 0; j < args.length; j++) {
+        args[j] = readArg(data, strings);
+      }
+      log[i] = new LogEntry(time, threadId, threadName, format, args);
+    }
+    return log;
+  }
+
+  private static Object readArg(DataInputStream data, List<String> strings) throws IOException {
+    final int tag = data.readByte();
+    switch (tag) {
+      case 'N': return null;
+      case 'I': return data.readInt();
+      case 'J': return data.readLong();
+      case 'D': return data.readDouble();
+      case 'Z': return data.readBoolean();
+      case 'S': return readString(data, strings);
+      default: throw new IOException("Unsupported argument tag " + tag);
+    }
+  }
+
+  private static String readString(DataInputStream data, List<String> strings) throws IOException {
+    final int index = data.readInt();
+    if (index == NULL_STRING) {
+      return null;
+    } else if (index != NEW_STRING) {
+      return strings.get(index);
+    } else {
+      final byte[] bytes = new byte[data.readInt()];
+      data.readFully(bytes);
+      final String str = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(str);
+      return str;
     }
   }
 }
@@ -1,6 +1,5 @@
 package com.obsidiandynamics.indigo;
 
-import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
 
@@ -11,17 +10,17 @@ public final class EgressBuilder<I, O> extends MessageBuilder {
 
   EgressBuilder(Activation activation, Function<I, CompletableFuture<O>> func) {
     super(activation);
-    serial().withCommonPool().target((body, requestId) -> {
+    serial().withCommonPool().target((body, request, requestSeq, priority) -> {
       activation.stashIfTransitioning();
       if (parallel) {
         // execute directly on the given executor, with the response going back as a message
         // into the actor system
         final Executor executor = activation.system.getNamedExecutor(executorName);
-        executor.execute(() -> processEgress(func, body, requestId));
+        executor.execute(() -> processEgress(func, body, request, requestSeq));
       } else {
         // execute using an egress agent within the fundamental rules of an actor system (such
         // full serialisation), but using the given executor (rather than the global executor)
-        final Consumer<Activation> agent = a -> processEgress(func, body, requestId);
+        final Consumer<Activation> agent = a -> processEgress(func, body, request, requestSeq);
         final ActorRef egressRef = ActorRef.of(ActorRef.EGRESS, executorName + "-" + activation.ref.encode());
         activation.system.send(new Message(activation.ref, egressRef, agent, null, false), executorName);
       }
@@ -74,33 +73,33 @@ public final class EgressBuilder<I, O> extends MessageBuilder {
   }
   
   @SuppressWarnings("unchecked")
-  private void processEgress(Function<I, CompletableFuture<O>> func, Object body, UUID requestId) {
+  private void processEgress(Function<I, CompletableFuture<O>> func, Object body, boolean request, long requestSeq) {
     final CompletableFuture<O> future;
     try {
       future = func.apply((I) body);
     } catch (Throwable t) {
-      handleError(requestId, t);
+      handleError(request, requestSeq, t);
       return;
     }
     
     future.whenComplete((out, t) -> {
       if (t == null) {
-        if (requestId != null) {
-          final Message resp = new Message(null, activation.ref, out, requestId, true);
+        if (request) {
+          final Message resp = new Message(null, activation.ref, out, activation.getId(), requestSeq, true);
           activation.system.send(resp);
         }
       } else {
-        handleError(requestId, t);
+        handleError(request, requestSeq, t);
       }
     });
   }
   
-  private void handleError(UUID requestId, Throwable t) {
+  private void handleError(boolean request, long requestSeq, Throwable t) {
     activation.actorConfig.exceptionHandler.accept(activation.system, t);
     final Fault fault = new Fault(FaultType.ON_EGRESS, null, t);
     activation.system.addToDeadLetterQueue(fault);
-    if (requestId != null) {
-      final Message resp = new Message(null, activation.ref, fault, requestId, true);
+    if (request) {
+      final Message resp = new Message(null, activation.ref, fault, activation.getId(), requestSeq, true);
       activation.system.send(resp);
     }
   }
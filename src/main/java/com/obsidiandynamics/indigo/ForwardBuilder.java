@@ -11,6 +11,6 @@ public final class ForwardBuilder {
   }
   
   public void to(ActorRef to) {
-    activation.send(new Message(message.from(), to, message.body(), message.requestId(), message.isResponse()));
+    activation.send(Message.correlated(message.from(), to, message.body(), message, message.isResponse()));
   }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.obsidiandynamics.indigo;
 
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 
 public final class IngressBuilder {
@@ -7,6 +9,8 @@ public final class IngressBuilder {
   
   private int iterations = 1;
   
+  private boolean batch;
+  
   IngressBuilder(ActorSystem system) {
     this.system = system;
   }
@@ -16,15 +20,39 @@ public final class IngressBuilder {
     return this;
   }
   
+  /**
+   *  Submits all iterations in one batch, spreading them evenly over the ingress actors, so that each
+   *  ingress actor is enqueued to and scheduled once, rather than once per iteration. As with individually
+   *  submitted iterations, no ordering is implied between iterations executed by different ingress actors.
+   *  
+   *  @return This builder, for chaining.
+   */
+  public IngressBuilder batch() {
+    batch = true;
+    return this;
+  }
+  
   public ActorSystem act(Consumer<Activation> act) {
     return act((a, i) -> act.accept(a));
   }
   
   public ActorSystem act(BiConsumer<Activation, Integer> act) {
-    for (int i = 0; i < iterations; i++) {
-      final int _i = i;
-      system.ingress(a -> act.accept(a, _i));
+    if (batch) {
+      final ActorRef[] ingressRefs = system.getIngressRefs();
+      final int offset = ThreadLocalRandom.current().nextInt(ingressRefs.length);
+      final List<Message> messages = new ArrayList<>(iterations);
+      for (int i = 0; i < iterations; i++) {
+        final int _i = i;
+        final Consumer<Activation> iteration = a -> act.accept(a, _i);
+        messages.add(new Message(null, ingressRefs[(offset + i) % ingressRefs.length], iteration, null, false));
+      }
+      system.sendAll(messages);
+    } else {
+      for (int i = 0; i < iterations; i++) {
+        final int _i = i;
+        system.ingress(a -> act.accept(a, _i));
+      }
     }
     return system;
   }
-}
\ No newline at end of file
+}
@@ -10,16 +10,61 @@ public final class Message {
   
   private final Object body;
   
-  private final UUID requestId;
+  /** The request ID is held as its constituent parts, and only materialised as a {@link UUID} on demand. */
+  private final long requestOrigin;
+  
+  private final long requestSeq;
+  
+  private final boolean hasRequestId;
   
   private final boolean response;
+  
+  private final boolean priority;
 
   Message(ActorRef from, ActorRef to, Object body, UUID requestId, boolean response) {
+    this(from, to, body, requestId, response, false);
+  }
+  
+  Message(ActorRef from, ActorRef to, Object body, UUID requestId, boolean response, boolean priority) {
+    this(from, to, body, requestId != null, 
+         requestId != null ? requestId.getMostSignificantBits() : 0, 
+         requestId != null ? requestId.getLeastSignificantBits() : 0, 
+         response, priority);
+  }
+  
+  Message(ActorRef from, ActorRef to, Object body, long requestOrigin, long requestSeq, boolean response) {
+    this(from, to, body, requestOrigin, requestSeq, response, false);
+  }
+  
+  Message(ActorRef from, ActorRef to, Object body, long requestOrigin, long requestSeq, boolean response, boolean priority) {
+    this(from, to, body, true, requestOrigin, requestSeq, response, priority);
+  }
+  
+  private Message(ActorRef from, ActorRef to, Object body, boolean hasRequestId, long requestOrigin, long requestSeq, 
+                  boolean response, boolean priority) {
     this.from = from;
     this.to = to;
     this.body = body;
-    this.requestId = requestId;
+    this.hasRequestId = hasRequestId;
+    this.requestOrigin = requestOrigin;
+    this.requestSeq = requestSeq;
     this.response = response;
+    this.priority = priority;
+  }
+  
+  /**
+   *  Creates a message bearing the same request ID (and priority) as the given message, if it has one.
+   *  
+   *  @param from The sender.
+   *  @param to The recipient.
+   *  @param body The body.
+   *  @param correlated The message whose request ID is to be carried over.
+   *  @param response Whether the new message is a response.
+   *  @return The new message.
+   */
+  static Message correlated(ActorRef from, ActorRef to, Object body, Message correlated, boolean response) {
+    return new Message(from, to, body, correlated.hasRequestId, correlated.requestOrigin, correlated.requestSeq, 
+                       response, correlated.priority);
   }
   
   public ActorRef from() {
@@ -31,13 +76,40 @@ public final class Message {
   }
 
   public UUID requestId() {
-    return requestId;
+    return hasRequestId ? new UUID(requestOrigin, requestSeq) : null;
+  }
+  
+  boolean hasRequestId() {
+    return hasRequestId;
+  }
+  
+  /**
+   *  Obtains the ID of the activation that issued the request.
+   *  
+   *  @return The request origin.
+   */
+  long requestOrigin() {
+    return requestOrigin;
+  }
+  
+  long requestSeq() {
+    return requestSeq;
   }
   
   public boolean isResponse() {
     return response;
   }
   
+  /**
+   *  Determines whether the message was sent with priority, in which case it may overtake ordinary messages
+   *  queued for an actor with a priority lane. See {@link ActorConfig#priorityLane}.
+   *  
+   *  @return True if this is a priority message.
+   */
+  public boolean isPriority() {
+    return priority;
+  }
+  
   boolean isFault() {
     return body instanceof Fault;
   }
@@ -50,14 +122,16 @@ public final class Message {
   public static final class MessageBuilder {
     private ActorRef from, to;
     private Object body;
+    private boolean priority;
     
     public MessageBuilder from(ActorRef from) { this.from = from; return this; }
     public MessageBuilder to(ActorRef to) { this.to = to; return this; }
     public MessageBuilder body(Object body) { this.body = body; return this; }
+    public MessageBuilder priority(boolean priority) { this.priority = priority; return this; }
     
     public Message build() {
       if (to == null) throw new IllegalArgumentException("Destination not specified");
-      return new Message(from, to, body, null, false);
+      return new Message(from, to, body, null, false, priority);
     }
   }
   
@@ -113,6 +187,7 @@ public final class Message {
   @Override
   public String toString() {
     return "Message [from=" + from + ", to=" + to + ", body=" + body + 
-        (requestId != null ? ", requestId=" + requestId + ", response=" + response : "") + "]";
+        (hasRequestId ? ", requestId=" + requestId() + ", response=" + response : "") + 
+        (priority ? ", priority=true" : "") + "]";
   }
 }
@@ -6,7 +6,7 @@ import java.util.function.*;
 public class MessageBuilder {
   @FunctionalInterface
   interface MessageTarget {
-    void send(Object body, UUID requestId);
+    void send(Object body, boolean request, long requestSeq, boolean priority);
   }
   
   protected final Activation activation;
@@ -15,6 +15,8 @@ public class MessageBuilder {
   
   private int copies = 1;
   
+  private boolean priority;
+  
   private Object requestBody;
   
   private long timeoutMillis;
@@ -39,9 +41,21 @@ public class MessageBuilder {
     return this;
   }
   
+  /**
+   *  Sends the message with priority, allowing it to overtake the ordinary messages queued for a recipient
+   *  that has a priority lane (see {@link ActorConfig#priorityLane}). Has no effect on egress.
+   *  
+   *  @param priority Whether the message should be sent with priority.
+   *  @return This builder instance for chaining.
+   */
+  public final MessageBuilder priority(boolean priority) {
+    this.priority = priority;
+    return this;
+  }
+  
   public final void tell(Object body) {
     for (int i = copies; --i >= 0;) {
-      target.send(body, null);
+      target.send(body, false, 0, priority);
     }
   }
   
@@ -75,18 +89,19 @@ public class MessageBuilder {
     }
     
     for (int i = copies; --i >= 0;) {
-      final UUID requestId = new UUID(activation.getId(), activation.getAndIncrementRequestCounter());
-      final PendingRequest req = new PendingRequest(onResponse, onTimeout, onFault);
-      target.send(requestBody, requestId);
-      activation.pending.put(requestId, req);
+      final long requestSeq = activation.getAndIncrementRequestCounter();
+      target.send(requestBody, true, requestSeq, priority);
       
       if (timeoutMillis != 0) {
         timeoutTask = new TimeoutTask(System.nanoTime() + timeoutMillis * 1_000_000l,
-                                      requestId,
+                                      activation.getId(), 
+                                      requestSeq,
                                       activation.ref,
                                       activation.system);
-        req.setTimeoutTask(timeoutTask);
+        activation.pending.put(requestSeq, onResponse, onTimeout, onFault, timeoutTask);
         activation.system.getTimeoutScheduler().schedule(timeoutTask);
+      } else {
+        activation.pending.put(requestSeq, onResponse, onTimeout, onFault, null);
       }
     }
   }
@@ -2,6 +2,7 @@ package com.obsidiandynamics.indigo;
 
 import static com.obsidiandynamics.indigo.ActivationState.*;
 
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
@@ -18,10 +19,33 @@ final class NodeQueueActivation extends Activation {
   private static final class Node extends AtomicReference<Node> {
     private static final long serialVersionUID = 1L;
 
-    private final Message m;
+    /** The message, or <code>null</code> if the node has been placed in the priority lane and its message has
+     *  already been processed from there. */
+    private Message m;
+    
+    /** The time at which the message was sent, if metrics are enabled. */
+    private long sentAt;
+    
+    /** Whether the node has been placed in the priority lane. Set before the node enters the lane, so that
+     *  a dispatch thread reaching the node through the queue can tell it apart from an ordinary node. */
+    private boolean priority;
 
-    Node(Message m) { this.m = m; }
+    Node(Message m, long sentAt) { 
+      this.m = m;
+      this.sentAt = sentAt;
+    }
+  }
+  
+  /** The maximum number of recycled nodes held in a thread's {@link NodeCache}. */
+  private static final int NODE_CACHE_CAPACITY = 256;
+  
+  /** A per-thread cache of recycled nodes, linked through their successor references. The cache is only 
+   *  replenished once empty, and holds at most {@link #NODE_CACHE_CAPACITY} nodes. */
+  private static final class NodeCache {
+    private Node head;
   }
+  
+  private static final ThreadLocal<NodeCache> nodeCache = ThreadLocal.withInitial(NodeCache::new);
 
   private final AtomicReference<Node> tail = new AtomicReference<>();
   
@@ -33,28 +57,164 @@ final class NodeQueueActivation extends Activation {
   private volatile byte disposalState;
   
   private final AtomicInteger backlogSize;
+  
+  /** Producers parked on a full backlog; only used if {@link ActorConfig#backlogParking} is set. */
+  private final ParkingLot backlogWaiters;
+  
+  private final long backlogLowWatermark;
+  
+  /** A stack of nodes released by the dispatch thread, pending reuse by producers; only used if 
+   *  {@link ActorConfig#poolNodes} is set. The stack is only ever pushed by the dispatch thread, while 
+   *  producers take it in its entirety, which makes it immune to the ABA problem. */
+  private final AtomicReference<Node> freeNodes;
+  
+  /** Nodes served ahead of the node queue; only used if {@link ActorConfig#priorityLane} is set. A node in the
+   *  lane is also linked into the queue, where it schedules the activation as an ordinary message would. The lane
+   *  is drained before every message taken from the queue, so that a priority message is processed either then or, 
+   *  at the latest, when its node is reached in the queue. Either way, the message is cleared from the node once 
+   *  processed, leaving the node to be skipped in the queue. Priority messages don't count towards the backlog. */
+  private final Queue<Node> priorityLane;
+  
+  /** The node that the next run starts at, written prior to dispatching and cleared by the run. */
+  private Node runHead;
+  
+  /** Whether the next run should skip the message at its head node, which has already been processed. */
+  private boolean runSkipCurrent;
 
   NodeQueueActivation(long id, ActorRef ref, ActorSystem system, ActorConfig actorConfig, Actor actor, Executor executor) {
     super(id, ref, system, actorConfig, actor, executor);
     backlogSize = actorConfig.backlogThrottleCapacity != Integer.MAX_VALUE ? new AtomicInteger() : null;
+    backlogWaiters = actorConfig.backlogParking && backlogSize != null ? new ParkingLot() : null;
+    backlogLowWatermark = getBacklogLowWatermark();
+    freeNodes = actorConfig.poolNodes ? new AtomicReference<>() : null;
+    priorityLane = actorConfig.priorityLane ? new ConcurrentLinkedQueue<>() : null;
   }
 
   @Override
-  boolean enqueue(Message m) {
+  boolean enqueue(Message m, long sentAt) {
     assert diagnostics().traceMacro("NQA.enqueue: m=%s", m);
 
-    if (! m.isResponse() && shouldThrottle()) {
-      assert diagnostics().traceMacro("NQA.enqueue: throttling m=%s, t=%s", m, Thread.currentThread());
-      Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+    if (priorityLane != null && isPriority(m)) {
+      return insertPriority(m, sentAt);
+    } else if (isExempt(m)) {
+      if (backlogSize != null) backlogSize.incrementAndGet();
+    } else if (backlogWaiters != null) {
+      if (! tryReserveBacklog()) {
+        assert diagnostics().traceMacro("NQA.enqueue: parking m=%s, t=%s", m, Thread.currentThread());
+        backlogWaiters.await(this::tryReserveBacklog);
+      }
+    } else {
+      if (shouldThrottle()) {
+        assert diagnostics().traceMacro("NQA.enqueue: throttling m=%s, t=%s", m, Thread.currentThread());
+        Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+      }
+      if (backlogSize != null) backlogSize.incrementAndGet();
     }
-
-    if (backlogSize != null) backlogSize.incrementAndGet();
-
-    final Node t = new Node(m);
-    final Node t1 = tail.getAndSet(t);
+    
+    return insert(m, sentAt);
+  }
+  
+  @Override
+  Offer tryEnqueue(Message m, long sentAt) {
+    assert diagnostics().traceMacro("NQA.tryEnqueue: m=%s", m);
+    
+    if (priorityLane != null && isPriority(m)) {
+      return insertPriority(m, sentAt) ? Offer.ENQUEUED : Offer.DISPOSED;
+    } else if (backlogSize != null) {
+      if (isExempt(m)) {
+        backlogSize.incrementAndGet();
+      } else if (! tryReserveBacklog()) {
+        return Offer.WOULD_BLOCK;
+      }
+    }
+    
+    return insert(m, sentAt) ? Offer.ENQUEUED : Offer.DISPOSED;
+  }
+  
+  /**
+   *  Enqueues the group of messages as a single chain of nodes, linked in with one tail swap, so that the 
+   *  activation is scheduled at most once for the entire group. When producers park on a full backlog, 
+   *  the messages are enqueued one at a time instead, as a producer could otherwise reserve backlog 
+   *  capacity that is only released once the group has been enqueued. When throttling, the producer is 
+   *  throttled at most once for the entire group.
+   */
+  @Override
+  int enqueueAll(List<Message> messages, long sentAt) {
+    if (backlogWaiters != null || priorityLane != null && anyPriority(messages)) {
+      return super.enqueueAll(messages, sentAt);
+    }
+    
+    assert diagnostics().traceMacro("NQA.enqueueAll: ref=%s, size=%d", ref, messages.size());
+    final int size = messages.size();
+    if (backlogSize != null) {
+      if (shouldThrottle() && ! allExempt(messages)) {
+        assert diagnostics().traceMacro("NQA.enqueueAll: throttling ref=%s, t=%s", ref, Thread.currentThread());
+        Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+      }
+      backlogSize.addAndGet(size);
+    }
+    
+    final Node first = newNode(messages.get(0), sentAt);
+    Node last = first;
+    for (int i = 1; i < size; i++) {
+      final Node next = newNode(messages.get(i), sentAt);
+      last.lazySet(next);
+      last = next;
+    }
+    return insert(first, last) ? size : 0;
+  }
+  
+  private static boolean anyPriority(List<Message> messages) {
+    for (Message m : messages) {
+      if (isPriority(m)) return true;
+    }
+    return false;
+  }
+  
+  private boolean allExempt(List<Message> messages) {
+    for (Message m : messages) {
+      if (! isExempt(m)) return false;
+    }
+    return true;
+  }
+  
+  private Node newNode(Message m, long sentAt) {
+    return freeNodes != null ? acquireNode(m, sentAt) : new Node(m, sentAt);
+  }
+  
+  private boolean insert(Message m, long sentAt) {
+    final Node t = newNode(m, sentAt);
+    return insert(t, t);
+  }
+  
+  /**
+   *  Places a message in the priority lane, and then links its node into the queue. Should the activation
+   *  turn out to have been disposed, the node is withdrawn from the lane, unless it has already been 
+   *  processed (having been drained ahead of an earlier message) &mdash; in which case it counts as enqueued.
+   *  
+   *  @param m The message.
+   *  @param sentAt The time at which the message was sent.
+   *  @return True if the message was enqueued, or false if the activation has been disposed.
+   */
+  private boolean insertPriority(Message m, long sentAt) {
+    final Node n = newNode(m, sentAt);
+    n.priority = true;
+    priorityLane.add(n);
+    return insert(n, n) || ! priorityLane.remove(n);
+  }
+  
+  /**
+   *  Appends a chain of linked nodes to the queue, scheduling the activation if the queue was empty.
+   *  
+   *  @param first The first node in the chain.
+   *  @param last The last node in the chain, which becomes the new tail.
+   *  @return True if the chain was appended, or false if the activation has been disposed.
+   */
+  private boolean insert(Node first, Node last) {
+    final Node t1 = tail.getAndSet(last);
 
     if (isDisposing()) {
-      assert diagnostics().traceMacro("NQA.enqueue: awaiting disposal m=%s", m);
+      assert diagnostics().traceMacro("NQA.enqueue: awaiting disposal m=%s", first.m);
       while (disposalState != DISPOSAL_STATE_COMPLETE) {
         Thread.yield();
       }
@@ -65,13 +225,147 @@ final class NodeQueueActivation extends Activation {
       if (pending.isEmpty()) {
         system.incBusyActors();
       }
-      assert diagnostics().traceMacro("NQA.enqueue: scheduling m=%s", m);
-      scheduleRunStart(t);
+      assert diagnostics().traceMacro("NQA.enqueue: scheduling m=%s", first.m);
+      scheduleRunStart(first);
     } else {
-      t1.lazySet(t);
+      t1.lazySet(first);
     }
     return true;
   }
+  
+  /**
+   *  Determines whether the message bypasses backpressure. Responses are always exempt; when parking,
+   *  so are signals and messages that the actor sends to itself, as parking these could never be undone.
+   *  
+   *  @param m The message.
+   *  @return True if the message is exempt.
+   */
+  private boolean isExempt(Message m) {
+    return m.isResponse() || backlogWaiters != null && (m.body() instanceof Signal || ref.equals(m.from()));
+  }
+  
+  /**
+   *  Atomically increments the backlog size if it is below capacity.
+   *  
+   *  @return True if the backlog size was incremented.
+   */
+  private boolean tryReserveBacklog() {
+    for (;;) {
+      final int size = backlogSize.get();
+      if (size >= actorConfig.backlogThrottleCapacity) {
+        return false;
+      } else if (backlogSize.compareAndSet(size, size + 1)) {
+        return true;
+      }
+    }
+  }
+  
+  /**
+   *  Accounts for processed messages ahead of the end of the run if producers are parked, waking them
+   *  once the backlog has drained to the low watermark.
+   *  
+   *  @param cycles The number of processed messages that have not yet been accounted for.
+   *  @return The number of processed messages that remain unaccounted for.
+   */
+  private int settleBacklog(int cycles) {
+    if (backlogWaiters != null && backlogWaiters.hasWaiters()) {
+      if (backlogSize.addAndGet(-cycles) <= backlogLowWatermark) {
+        backlogWaiters.release();
+      }
+      return 0;
+    } else {
+      return cycles;
+    }
+  }
+
+  /**
+   *  Obtains a node from the current thread's cache, replenishing the cache from this activation's
+   *  stack of released nodes if necessary, and only allocating a new node if both are exhausted. As the 
+   *  stack is taken in its entirety, any nodes beyond the cache's capacity are left to the GC.<p>
+   *  
+   *  A virtual thread seldom outlives the turn that it runs, and would rarely hit in its own cache; it takes 
+   *  a node straight from the stack instead, pushing the remainder of the stack back for other producers. 
+   *  As every taker empties the stack outright, rather than popping a node by its successor, the push-back 
+   *  is free of ABA.
+   *  
+   *  @param m The message to assign to the node.
+   *  @param sentAt The time at which the message was sent.
+   *  @return The node.
+   */
+  private Node acquireNode(Message m, long sentAt) {
+    final Thread thread = Thread.currentThread();
+    final NodeCache cache = Threads.isVirtual(thread) ? null : nodeCache.get();
+    Node n = cache != null ? cache.head : null;
+    if (n == null) {
+      n = freeNodes.get() != null ? freeNodes.getAndSet(null) : null;
+      if (n == null) {
+        return new Node(m, sentAt);
+      }
+      final Node last = truncate(n, NODE_CACHE_CAPACITY);
+      if (cache == null && last != n) {
+        pushFree(n.get(), last);
+      }
+    }
+    if (cache != null) cache.head = n.get();
+    n.m = m;
+    n.sentAt = sentAt;
+    n.priority = false;
+    n.lazySet(null);
+    return n;
+  }
+  
+  /**
+   *  Truncates a chain of free nodes to the given length.
+   *  
+   *  @param first The first node in the chain.
+   *  @param maxLength The maximum length of the chain.
+   *  @return The last node in the truncated chain.
+   */
+  private static Node truncate(Node first, int maxLength) {
+    Node last = first;
+    for (int length = 1; length < maxLength; length++) {
+      final Node next = last.get();
+      if (next == null) return last;
+      last = next;
+    }
+    last.lazySet(null);
+    return last;
+  }
+  
+  /**
+   *  Pushes a chain of free nodes onto the stack of free nodes in one operation.
+   *  
+   *  @param first The first node in the chain.
+   *  @param last The last node in the chain.
+   */
+  private void pushFree(Node first, Node last) {
+    for (;;) {
+      final Node top = freeNodes.get();
+      last.lazySet(top);
+      if (freeNodes.compareAndSet(top, first)) break;
+    }
+  }
+  
+  /**
+   *  Releases a chain of consumed nodes for reuse, starting at the given node and ending just before
+   *  the given limit. The entire chain is pushed onto the stack of free nodes in one operation.
+   *  
+   *  @param first The first node to release.
+   *  @param limit The node following the last one to release, or {@code null} to release the whole chain.
+   */
+  private void releaseNodes(Node first, Node limit) {
+    if (freeNodes == null || first == limit) return;
+    
+    Node last = first;
+    for (;;) {
+      last.m = null;
+      final Node next = last.get();
+      if (next == limit) break;
+      last = next;
+    }
+    
+    pushFree(first, last);
+  }
 
   private boolean isDisposing() {
     for (;;) {
@@ -87,11 +381,23 @@ final class NodeQueueActivation extends Activation {
   }
 
   private void scheduleRunStart(Node n) {
-    dispatch(() -> run(n, false));
+    runHead = n;
+    runSkipCurrent = false;
+    dispatch();
   }
   
   private void scheduleRunContinue(Node n) {
-    dispatch(() -> run(n, true));
+    runHead = n;
+    runSkipCurrent = true;
+    dispatch();
+  }
+  
+  @Override
+  void run() {
+    final Node h = runHead;
+    // cleared, so that the nodes consumed by this run (and their messages) aren't retained once it ends
+    runHead = null;
+    run(h, runSkipCurrent);
   }
 
   private boolean park(Node n) {
@@ -123,34 +429,53 @@ final class NodeQueueActivation extends Activation {
   private void run(Node h, boolean skipCurrent) {
     assert diagnostics().traceMacro("NQA.run: h.m=%s, skipCurrent=%b", h.m, skipCurrent);
 
+    final long deadline = getSliceDeadline();
     Node head = h;
+    int turns = 0;
     int cycles = 0;
     if (! skipCurrent) {
-      cycles++;
-      processMessage(head.m);
+      turns++;
+      if (isBatchDrain()) {
+        head = drainBatch(head);
+        cycles += processBatch();
+      } else {
+        if (processNode(head)) cycles++;
+      }
+      cycles = settleBacklog(cycles);
     }
 
-    final int bias = actorConfig.bias;
+    final int bias = getBias();
     int yields = 0;
     boolean attemptedPark = false;
     try {
       for (;;) {
         final Node h1 = head.get();
         if (h1 != null) {
-          if (cycles < bias) {
-            head = h1;
-            cycles++;
-            processMessage(head.m);
+          if (turns < bias && ! isSliceSpent(deadline, turns)) {
+            turns++;
+            if (isBatchDrain()) {
+              head = drainBatch(h1);
+              cycles += processBatch();
+            } else {
+              head = h1;
+              if (processNode(head)) cycles++;
+            }
+            cycles = settleBacklog(cycles);
             yields = 0;
             attemptedPark = false;
           } else {
             assert diagnostics().traceMacro("NQA.run: scheduling ref=%s", ref);
+            if (turns == bias) {
+              adaptBias();
+            }
+            releaseNodes(h, h1);
             scheduleRunStart(h1);
             return;
           }
         } else if (! attemptedPark) {
           passivateIfScheduled();
           if (park(head)) {
+            releaseNodes(h, null);
             return;
           } else {
             attemptedPark = true;
@@ -159,13 +484,88 @@ final class NodeQueueActivation extends Activation {
           Thread.yield();
           yields++;
         } else {
+          releaseNodes(h, head);
           scheduleRunContinue(head);
           return;
         }
       }
     } finally {
-      if (backlogSize != null) backlogSize.addAndGet(-cycles);
+      if (backlogSize != null) {
+        final int remaining = backlogSize.addAndGet(-cycles);
+        if (backlogWaiters != null && remaining <= backlogLowWatermark) {
+          backlogWaiters.release();
+        }
+      }
+    }
+  }
+
+  /**
+   *  Processes the message held by the given node, having first processed any messages waiting in the
+   *  priority lane.
+   *  
+   *  @param n The node.
+   *  @return True if the node held an ordinary message, or false if it had been placed in the priority lane
+   *          (in which case its message has been processed from there).
+   */
+  private boolean processNode(Node n) {
+    processPriorityLane();
+    if (n.m != null) {
+      processMessage(n.m, n.sentAt);
+      return true;
+    } else {
+      return false;
+    }
+  }
+  
+  private void processPriorityLane() {
+    if (priorityLane != null) {
+      for (Node n; (n = priorityLane.poll()) != null;) {
+        processPriorityNode(n);
+      }
+    }
+  }
+  
+  private void processPriorityNode(Node n) {
+    final Message m = n.m;
+    n.m = null;
+    processMessage(m, n.sentAt);
+  }
+  
+  /**
+   *  Adds the message held by the given node to the batch, unless the node has been placed in the priority 
+   *  lane. A priority node may have entered the lane after the lane was last drained, in which case it is 
+   *  claimed by withdrawing it from the lane and processed ahead of the batch; otherwise its message has 
+   *  already been processed from the lane. Either way, the node is left to be skipped by the lane, and 
+   *  doesn't count towards the backlog.
+   *  
+   *  @param n The node.
+   */
+  private void drainNode(Node n) {
+    if (! n.priority) {
+      addToBatch(n.m, n.sentAt);
+    } else if (priorityLane.remove(n)) {
+      processPriorityNode(n);
+    }
+  }
+
+  /**
+   *  Drains the chain of linked nodes, starting at the given node, in one pass, accumulating their messages
+   *  in a batch that the caller is to process with {@link #processBatch()}. Any messages waiting in the priority
+   *  lane are processed first, and priority nodes are never added to the batch; see {@link #drainNode(Node)}.
+   *  
+   *  @param first The first node to drain.
+   *  @return The last node drained, which becomes the new head.
+   */
+  private Node drainBatch(Node first) {
+    processPriorityLane();
+    Node last = first;
+    drainNode(first);
+    for (Node next; (next = last.get()) != null; last = next) {
+      drainNode(next);
     }
+    
+    assert diagnostics().traceMacro("NQA.drainBatch: ref=%s", ref);
+    return last;
   }
 
   private boolean shouldThrottle() {
@@ -0,0 +1,181 @@
+package com.obsidiandynamics.indigo;
+
+import java.util.function.*;
+
+/**
+ *  Tracks the requests awaiting a response, keyed by their sequence number within the issuing
+ *  activation.<p>
+ *
+ *  This is an open-addressing hash table with linear probing and backward-shift deletion, holding
+ *  the request handlers in parallel arrays, so that issuing and completing a request allocates
+ *  neither keys nor entries. Sequence numbers are consecutive, and so hash to consecutive slots.
+ *  The arrays are only allocated when the first request is made.<p>
+ *
+ *  Entries are addressed by their slot index, which is only valid until the table is next modified.
+ */
+final class PendingRequests {
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int size;
+
+  private int mask;
+
+  private long[] seqs;
+
+  private boolean[] occupied;
+
+  private Consumer<Message>[] onResponses;
+
+  private Runnable[] onTimeouts;
+
+  private Consumer<Fault>[] onFaults;
+
+  private TimeoutTask[] timeoutTasks;
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void put(long seq, Consumer<Message> onResponse, Runnable onTimeout, Consumer<Fault> onFault, TimeoutTask timeoutTask) {
+    if (seqs == null) {
+      allocate(INITIAL_CAPACITY);
+    } else if (size + 1 > seqs.length >> 1) {
+      resize(seqs.length << 1);
+    }
+
+    int index = slotFor(seq);
+    while (occupied[index]) {
+      if (seqs[index] == seq) {
+        throw new IllegalStateException("Duplicate request sequence " + seq);
+      }
+      index = (index + 1) & mask;
+    }
+    store(index, seq, onResponse, onTimeout, onFault, timeoutTask);
+    size++;
+  }
+
+  /**
+   *  Locates the slot holding the given sequence number.
+   *
+   *  @param seq The sequence number.
+   *  @return The slot index, or {@code -1} if there is no such request.
+   */
+  int indexOf(long seq) {
+    if (size == 0) return -1;
+
+    for (int index = slotFor(seq); occupied[index]; index = (index + 1) & mask) {
+      if (seqs[index] == seq) return index;
+    }
+    return -1;
+  }
+
+  Consumer<Message> getOnResponse(int index) {
+    return onResponses[index];
+  }
+
+  Runnable getOnTimeout(int index) {
+    return onTimeouts[index];
+  }
+
+  Consumer<Fault> getOnFault(int index) {
+    return onFaults[index];
+  }
+
+  TimeoutTask getTimeoutTask(int index) {
+    return timeoutTasks[index];
+  }
+
+  /**
+   *  Removes the entry at the given slot, shifting any displaced entries that follow it back
+   *  towards their home slots.
+   *
+   *  @param index The slot index.
+   */
+  void removeAt(int index) {
+    int gap = index;
+    for (int i = (gap + 1) & mask; occupied[i]; i = (i + 1) & mask) {
+      final int home = slotFor(seqs[i]);
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        store(gap, seqs[i], onResponses[i], onTimeouts[i], onFaults[i], timeoutTasks[i]);
+        gap = i;
+      }
+    }
+    clear(gap);
+    size--;
+  }
+
+  /**
+   *  Removes all entries, passing any timeout tasks to the given consumer.
+   *
+   *  @param timeoutTaskConsumer Receives the timeout tasks of the removed entries.
+   */
+  void clear(Consumer<TimeoutTask> timeoutTaskConsumer) {
+    if (size == 0) return;
+
+    for (int i = 0; i < seqs.length; i++) {
+      if (occupied[i]) {
+        if (timeoutTasks[i] != null) {
+          timeoutTaskConsumer.accept(timeoutTasks[i]);
+        }
+        clear(i);
+      }
+    }
+    size = 0;
+  }
+
+  private int slotFor(long seq) {
+    return (int) seq & mask;
+  }
+
+  private void store(int index, long seq, Consumer<Message> onResponse, Runnable onTimeout, Consumer<Fault> onFault, TimeoutTask timeoutTask) {
+    seqs[index] = seq;
+    occupied[index] = true;
+    onResponses[index] = onResponse;
+    onTimeouts[index] = onTimeout;
+    onFaults[index] = onFault;
+    timeoutTasks[index] = timeoutTask;
+  }
+
+  private void clear(int index) {
+    occupied[index] = false;
+    onResponses[index] = null;
+    onTimeouts[index] = null;
+    onFaults[index] = null;
+    timeoutTasks[index] = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void allocate(int capacity) {
+    mask = capacity - 1;
+    seqs = new long[capacity];
+    occupied = new boolean[capacity];
+    onResponses = new Consumer[capacity];
+    onTimeouts = new Runnable[capacity];
+    onFaults = new Consumer[capacity];
+    timeoutTasks = new TimeoutTask[capacity];
+  }
+
+  private void resize(int capacity) {
+    final long[] oldSeqs = seqs;
+    final boolean[] oldOccupied = occupied;
+    final Consumer<Message>[] oldOnResponses = onResponses;
+    final Runnable[] oldOnTimeouts = onTimeouts;
+    final Consumer<Fault>[] oldOnFaults = onFaults;
+    final TimeoutTask[] oldTimeoutTasks = timeoutTasks;
+    allocate(capacity);
+
+    for (int i = 0; i < oldSeqs.length; i++) {
+      if (oldOccupied[i]) {
+        int index = slotFor(oldSeqs[i]);
+        while (occupied[index]) {
+          index = (index + 1) & mask;
+        }
+        store(index, oldSeqs[i], oldOnResponses[i], oldOnTimeouts[i], oldOnFaults[i], oldTimeoutTasks[i]);
+      }
+    }
+  }
+}
@@ -65,7 +65,7 @@ final class Reaper {
           final long overdueBy = now - a.getLastMessageTime() - a.actorConfig.reapTimeoutMillis;
           if (overdueBy > 0) {
             assert system.getConfig().diagnostics.traceMacro("R.reap: ref=%s, overdue=%d\n", a.ref, overdueBy);
-            a.enqueue(new Message(null, a.ref, SleepingPill.instance(), null, false));
+            a.measuredEnqueue(new Message(null, a.ref, SleepingPill.instance(), null, false));
           }
         }
       }
@@ -16,13 +16,13 @@ public final class ReplyBuilder {
   }
   
   public void tell(Object responseBody) {
-    final boolean isResponse = message.requestId() != null;
+    final boolean isResponse = message.hasRequestId();
     // Solicited responses go through, but unsolicited ones are silently dropped. This relieves
     // services from having to program defensively, only sending replies when the consumer has
     // requested them with an <code>ask()</code>. It also prevents a consumer using <code>tell()</code>
     // from receiving an unsolicited message.
     if (isResponse) {
-      activation.send(new Message(activation.ref, message.from(), responseBody, message.requestId(), true));
+      activation.send(Message.correlated(activation.ref, message.from(), responseBody, message, true));
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,345 @@
+package com.obsidiandynamics.indigo;
+
+import static com.obsidiandynamics.indigo.ActivationState.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+final class RingQueueActivation extends Activation {
+  /** The base value of a sealed size, to which the dispatch thread sets the size when proposing disposal; the 
+   *  number of the seal is held in the upper word, and producers arriving after the seal count up in the lower. */
+  private static final long SEALED = Long.MIN_VALUE;
+
+  /** A message in the control lane, paired with the time at which it was sent; only used if metrics are
+   *  enabled, as the lane holds bare messages otherwise. */
+  private static final class Stamped {
+    final Message m;
+
+    final long sentAt;
+
+    Stamped(Message m, long sentAt) {
+      this.m = m;
+      this.sentAt = sentAt;
+    }
+  }
+
+  /** The ring, stamped with the times at which messages were sent if metrics are enabled. */
+  private final MpscRing<Message> ring;
+
+  /** An unbounded lane, consumed in preference to the ring. Holds priority messages if a priority lane is in
+   *  use, and otherwise the exempt messages that overflow a full ring. Holds {@link Stamped} messages if 
+   *  metrics are enabled, and bare messages otherwise. */
+  private final Queue<Object> controlLane = new ConcurrentLinkedQueue<>();
+
+  /** The time at which the message last returned by {@link #poll()} was sent. */
+  private long polledSentAt;
+
+  /** The number of enqueued messages that are yet to be accounted for by the dispatch thread. A producer
+   *  that raises this from zero is responsible for scheduling the dispatch thread.<p>
+   *  
+   *  A producer raises the size only after placing its message, and the dispatch thread takes whichever 
+   *  message is at the head, so the message consumed on account of one producer's increment may be that 
+   *  of another producer, which is yet to raise the size. The size therefore never exceeds the number of
+   *  messages present, but may fall short of it; see {@link #park(long)} for how this affects disposal.<p>
+   *  
+   *  A negative size is {@link #SEALED}, marking a proposed disposal. */
+  private final AtomicLong size = new AtomicLong();
+
+  /** Producers blocked on a full ring, woken by the dispatch thread as it frees up slots. */
+  private final ParkingLot capacityWaiters = new ParkingLot();
+
+  /** The number of seals applied to the size so far; only accessed by the dispatch thread. */
+  private int seals;
+
+  /** The number of the last seal that was lifted without disposing of the activation. */
+  private volatile int liftedSeal;
+
+  /** Whether the activation has been disposed of. */
+  private volatile boolean disposed;
+
+  RingQueueActivation(long id, ActorRef ref, ActorSystem system, ActorConfig actorConfig, Actor actor, Executor executor) {
+    super(id, ref, system, actorConfig, actor, executor);
+    ring = new MpscRing<>(actorConfig.ringCapacity, isStamping());
+  }
+
+  @Override
+  boolean enqueue(Message m, long sentAt) {
+    assert diagnostics().traceMacro("RQA.enqueue: m=%s", m);
+
+    if (jumpsQueue(m)) {
+      addControl(m, sentAt);
+    } else if (! ring.offer(m, sentAt)) {
+      if (isExempt(m)) {
+        addControl(m, sentAt);
+      } else {
+        assert diagnostics().traceMacro("RQA.enqueue: blocking m=%s, t=%s", m, Thread.currentThread());
+        awaitCapacity(m, sentAt);
+      }
+    }
+
+    return publish(m);
+  }
+
+  @Override
+  Offer tryEnqueue(Message m, long sentAt) {
+    assert diagnostics().traceMacro("RQA.tryEnqueue: m=%s", m);
+
+    if (jumpsQueue(m)) {
+      addControl(m, sentAt);
+    } else if (! ring.offer(m, sentAt)) {
+      if (isExempt(m)) {
+        addControl(m, sentAt);
+      } else {
+        return disposed ? Offer.DISPOSED : Offer.WOULD_BLOCK;
+      }
+    }
+
+    return publish(m) ? Offer.ENQUEUED : Offer.DISPOSED;
+  }
+
+  private void addControl(Message m, long sentAt) {
+    controlLane.add(isStamping() ? new Stamped(m, sentAt) : m);
+  }
+
+  /**
+   *  Determines whether the message is served from the control lane ahead of the ring, which is only
+   *  the case for priority messages when a priority lane is in use.
+   *  
+   *  @param m The message.
+   *  @return True if the message jumps the queue.
+   */
+  private boolean jumpsQueue(Message m) {
+    return actorConfig.priorityLane && isPriority(m);
+  }
+
+  /**
+   *  Determines whether the message bypasses the capacity bound, overflowing into the control lane
+   *  when the ring is full. Responses, signals and messages that the actor sends to itself are always
+   *  exempt, as blocking on these could deadlock the actor on its own mailbox; so are priority messages
+   *  when a priority lane is in use.
+   *  
+   *  @param m The message.
+   *  @return True if the message is exempt.
+   */
+  private boolean isExempt(Message m) {
+    return m.isResponse() || m.body() instanceof Signal || ref.equals(m.from()) || jumpsQueue(m);
+  }
+
+  /**
+   *  Accounts for a message that has been placed in the ring or the control lane, scheduling the
+   *  dispatch thread if necessary.
+   *
+   *  @param m The message.
+   *  @return True if the message was accepted, or false if the activation has been disposed.
+   */
+  private boolean publish(Message m) {
+    final long previousSize = size.getAndIncrement();
+
+    if (previousSize < 0) {
+      return awaitSeal(m, previousSize);
+    }
+
+    if (previousSize == 0) {
+      if (pending.isEmpty()) {
+        system.incBusyActors();
+      }
+      assert diagnostics().traceMacro("RQA.enqueue: scheduling m=%s", m);
+      dispatch();
+    }
+    return true;
+  }
+
+  /**
+   *  Waits for the dispatch thread to either lift the seal that was in place when the size was raised, 
+   *  in which case the dispatch thread will go on to consume the message, or to dispose of the activation, 
+   *  in which case the message is undelivered.
+   *  
+   *  @param m The message.
+   *  @param previousSize The sealed size, prior to being raised.
+   *  @return True if the seal was lifted, or false if the activation has been disposed.
+   */
+  private boolean awaitSeal(Message m, long previousSize) {
+    assert diagnostics().traceMacro("RQA.enqueue: awaiting seal m=%s", m);
+    final int seal = (int) ((previousSize - SEALED) >>> 32);
+    for (;;) {
+      if (liftedSeal >= seal) {
+        return true;
+      } else if (disposed) {
+        return false;
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   *  Blocks the producer until the given message can be placed in the ring, parking it until the dispatch 
+   *  thread frees up a slot. Blocking is managed, so that a {@link ForkJoinPool} may compensate for the
+   *  blocked worker. An interrupt doesn't abort the wait, and is restored once the message has been placed.<p>
+   *  
+   *  The wait is also abandoned if the activation is disposed of in the meantime, as the ring would never be
+   *  consumed again; the message is then left for {@link #publish(Message)} to report as undelivered.
+   *
+   *  @param m The message to enqueue.
+   *  @param sentAt The time at which the message was sent.
+   */
+  private void awaitCapacity(Message m, long sentAt) {
+    capacityWaiters.await(() -> ring.offer(m, sentAt) || disposed);
+  }
+
+  /**
+   *  Wakes any producers blocked on a full ring, once the dispatch thread has freed up a slot.
+   */
+  private void releaseCapacityWaiters() {
+    if (capacityWaiters.hasWaiters()) {
+      capacityWaiters.release();
+    }
+  }
+
+  /**
+   *  Attempts to park the dispatch thread, having consumed the given number of messages, disposing of the 
+   *  activation if it has been passivated. Parking is an atomic read-modify-write, ordering the slots freed 
+   *  by the dispatch thread before the check for blocked producers.
+   *  
+   *  @param consumed The number of messages consumed since the size was last adjusted.
+   *  @return True if the dispatch thread was parked.
+   */
+  private boolean park(long consumed) {
+    assert diagnostics().traceMacro("RQA.park: ref=%s, pending=%d", ref, pending.size());
+    final boolean noPending = pending.isEmpty();
+    if (noPending && getState() == PASSIVATED) {
+      return parkAndDispose(consumed);
+    }
+
+    final boolean parked = size.compareAndSet(consumed, 0);
+    if (parked) {
+      assert diagnostics().traceMacro("RQA.park: parked ref=%s", ref);
+      releaseCapacityWaiters();
+      if (noPending) {
+        system.decBusyActors();
+      }
+    }
+    return parked;
+  }
+
+  /**
+   *  Attempts to park the dispatch thread and dispose of a passivated activation, by sealing the size. A 
+   *  producer that raises a sealed size waits for the seal to be either lifted or followed by disposal.<p>
+   *  
+   *  As the size may fall short of the messages present, the seal may be applied while a message remains in
+   *  the ring or the control lane. Its producer is yet to raise the size, and another producer's message 
+   *  may have been consumed in its stead, so disposal would lose the former and report the latter as 
+   *  undelivered. The seal is therefore lifted while any message remains, with the size restored to account 
+   *  for producers that arrived in the meantime. Once the ring and the lane are found to be empty under 
+   *  the seal, every message that was accounted for prior to the seal has been consumed, and every message 
+   *  accounted for after it will never be.
+   *  
+   *  @param consumed The number of messages consumed since the size was last adjusted.
+   *  @return True if the dispatch thread was parked.
+   */
+  private boolean parkAndDispose(long consumed) {
+    final int seal = seals + 1;
+    final long sealed = SEALED + ((long) seal << 32);
+    if (! size.compareAndSet(consumed, sealed)) {
+      return false;
+    }
+    
+    seals = seal;
+    releaseCapacityWaiters();
+    if (ring.size() == 0 && controlLane.isEmpty()) {
+      assert diagnostics().traceMacro("RQA.park: disposed ref=%s", ref);
+      system.dispose(ref);
+      disposed = true;
+      releaseCapacityWaiters();
+      system.decBusyActors();
+      return true;
+    }
+    
+    assert diagnostics().traceMacro("RQA.park: lifted seal ref=%s", ref);
+    size.addAndGet(consumed - sealed);
+    liftedSeal = seal;
+    if (size.compareAndSet(consumed, 0)) {
+      system.decBusyActors();
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  void run() {
+    assert diagnostics().traceMacro("RQA.run: ref=%s", ref);
+
+    final int bias = getBias();
+    final long deadline = getSliceDeadline();
+    long available = size.get();
+    long consumed = 0;
+    int turns = 0;
+    for (;;) {
+      if (consumed != available) {
+        if (turns == bias || turns != 0 && isSliceSpent(deadline, turns)) {
+          assert diagnostics().traceMacro("RQA.run: scheduling ref=%s", ref);
+          if (turns == bias) {
+            adaptBias();
+          }
+          size.addAndGet(-consumed);
+          dispatch();
+          return;
+        }
+
+        turns++;
+        if (isBatchDrain()) {
+          do {
+            final Message m = poll();
+            addToBatch(m, polledSentAt);
+          } while (++consumed != available);
+          assert diagnostics().traceMacro("RQA.run: ref=%s, batch size=%d", ref, consumed);
+          processBatch();
+        } else {
+          consumed++;
+          final Message m = poll();
+          processMessage(m, polledSentAt);
+        }
+      } else {
+        passivateIfScheduled();
+        if (park(consumed)) {
+          return;
+        }
+        available = size.get();
+      }
+    }
+  }
+
+  /**
+   *  Obtains the next message, favouring the control lane. The caller must have established that a
+   *  message is available; if the producer that has claimed the head of the ring is yet to publish its
+   *  message, this method yields until it does. The time at which the message was sent is left in
+   *  {@link #polledSentAt}.
+   *
+   *  @return The next message.
+   */
+  private Message poll() {
+    for (;;) {
+      final Object control = controlLane.poll();
+      if (control instanceof Stamped) {
+        final Stamped stamped = (Stamped) control;
+        polledSentAt = stamped.sentAt;
+        return stamped.m;
+      } else if (control != null) {
+        return (Message) control;
+      }
+
+      final Message m = ring.poll();
+      if (m != null) {
+        polledSentAt = ring.getPolledStamp();
+        releaseCapacityWaiters();
+        return m;
+      }
+
+      Thread.yield();
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.obsidiandynamics.indigo;
+
+import java.util.concurrent.*;
+
+public final class SchedulerParams {
+  public final String threadName;
+  public final int tickMicros;
+  public final boolean batchExpiry;
+  public final Executor expiryExecutor;
+  
+  public SchedulerParams(String threadName, int tickMicros, boolean batchExpiry, Executor expiryExecutor) {
+    this.threadName = threadName;
+    this.tickMicros = tickMicros;
+    this.batchExpiry = batchExpiry;
+    this.expiryExecutor = expiryExecutor;
+  }
+}
@@ -8,20 +8,78 @@ import java.util.concurrent.*;
 import com.obsidiandynamics.indigo.util.*;
 
 final class SyncQueueActivation extends Activation {
-  private final Queue<Message> backlog = new ArrayDeque<>(1);
+  /** A deque of times, kept in step with a deque of messages. */
+  private static final class SentAtDeque {
+    private long[] elements = new long[4];
+    
+    private int head;
+    
+    private int size;
+    
+    void add(long sentAt) {
+      ensureCapacity();
+      elements[(head + size++) & (elements.length - 1)] = sentAt;
+    }
+    
+    void addFirst(long sentAt) {
+      ensureCapacity();
+      head = (head - 1) & (elements.length - 1);
+      elements[head] = sentAt;
+      size++;
+    }
+    
+    long remove() {
+      final long sentAt = elements[head];
+      head = (head + 1) & (elements.length - 1);
+      size--;
+      return sentAt;
+    }
+    
+    private void ensureCapacity() {
+      if (size == elements.length) {
+        final long[] grown = new long[size << 1];
+        for (int i = 0; i < size; i++) {
+          grown[i] = elements[(head + i) & (elements.length - 1)];
+        }
+        elements = grown;
+        head = 0;
+      }
+    }
+  }
+  
+  private final Deque<Message> backlog = new ArrayDeque<>(1);
+  
+  /** Messages served ahead of the backlog; only used if {@link ActorConfig#priorityLane} is set. Guarded
+   *  by the backlog lock. */
+  private final Deque<Message> priorityBacklog;
+  
+  /** The times at which the messages in the backlog (and the priority backlog) were sent, kept in step with 
+   *  the respective backlog; only used if metrics are enabled. Guarded by the backlog lock. */
+  private final SentAtDeque backlogSentAt, priorityBacklogSentAt;
   
   private boolean on;
   
   private boolean disposed;
   
+  /** Producers parked on a full backlog; only used if {@link ActorConfig#backlogParking} is set. */
+  private final ParkingLot backlogWaiters;
+  
+  private final long backlogLowWatermark;
+  
   SyncQueueActivation(long id, ActorRef ref, ActorSystem system, ActorConfig actorConfig, Actor actor, Executor executor) {
     super(id, ref, system, actorConfig, actor, executor);
+    backlogWaiters = actorConfig.backlogParking && actorConfig.backlogThrottleCapacity != Integer.MAX_VALUE ? new ParkingLot() : null;
+    backlogLowWatermark = getBacklogLowWatermark();
+    priorityBacklog = actorConfig.priorityLane ? new ArrayDeque<>(1) : null;
+    backlogSentAt = isStamping() ? new SentAtDeque() : null;
+    priorityBacklogSentAt = isStamping() && priorityBacklog != null ? new SentAtDeque() : null;
   }
   
   @Override
-  boolean enqueue(Message m) {
+  boolean enqueue(Message m, long sentAt) {
     assert diagnostics().traceMacro("SQA.enqueue: m=%s", m);
     
+    final boolean exempt = isExempt(m);
     boolean throttledOnce = false;
     for (;;) {
       final boolean noBacklog;
@@ -32,53 +90,205 @@ final class SyncQueueActivation extends Activation {
           return false;
         }
         
-        noBacklog = ! on && backlog.isEmpty();
+        noBacklog = ! on && isBacklogEmpty();
         noPending = pending.isEmpty();
         
-        throttleBacklog = ! throttledOnce && ! m.isResponse() && shouldThrottle();
+        throttleBacklog = ! throttledOnce && ! exempt && shouldThrottle();
         if (! throttleBacklog) {
-          backlog.add(m);
+          add(m, sentAt);
         }
       }
       
       if (throttleBacklog) {
-        assert diagnostics().traceMacro("SQA.enqueue: throttling m=%s", m);
-        throttledOnce = true;
-        Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+        if (backlogWaiters != null) {
+          assert diagnostics().traceMacro("SQA.enqueue: parking m=%s", m);
+          backlogWaiters.await(this::hasBacklogCapacity);
+        } else {
+          assert diagnostics().traceMacro("SQA.enqueue: throttling m=%s", m);
+          throttledOnce = true;
+          Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+        }
         continue;
       }
     
-      if (noBacklog && noPending) {
-        system.incBusyActors();
+      schedule(m, noBacklog, noPending);
+      return true;
+    }
+  }
+  
+  @Override
+  Offer tryEnqueue(Message m, long sentAt) {
+    assert diagnostics().traceMacro("SQA.tryEnqueue: m=%s", m);
+    
+    final boolean noBacklog;
+    final boolean noPending;
+    synchronized (backlog) {
+      if (disposed) {
+        return Offer.DISPOSED;
+      } else if (! isExempt(m) && shouldThrottle()) {
+        return Offer.WOULD_BLOCK;
       }
       
-      if (noBacklog) {
-        assert diagnostics().traceMacro("SQA.enqueue: scheduling m=%s", m);
-        dispatch(this::run);
+      noBacklog = ! on && isBacklogEmpty();
+      noPending = pending.isEmpty();
+      add(m, sentAt);
+    }
+    
+    schedule(m, noBacklog, noPending);
+    return Offer.ENQUEUED;
+  }
+  
+  /**
+   *  Enqueues the group of messages under a single acquisition of the backlog lock, scheduling the 
+   *  activation at most once. As with {@link NodeQueueActivation}, the messages are enqueued one at a time
+   *  if producers park on a full backlog, and the producer is otherwise throttled at most once.
+   */
+  @Override
+  int enqueueAll(List<Message> messages, long sentAt) {
+    if (backlogWaiters != null) {
+      return super.enqueueAll(messages, sentAt);
+    }
+    
+    assert diagnostics().traceMacro("SQA.enqueueAll: ref=%s, size=%d", ref, messages.size());
+    if (shouldThrottle() && ! allExempt(messages)) {
+      assert diagnostics().traceMacro("SQA.enqueueAll: throttling ref=%s", ref);
+      Threads.throttle(this::shouldThrottle, actorConfig.backlogThrottleTries, actorConfig.backlogThrottleMillis);
+    }
+    
+    final boolean noBacklog;
+    final boolean noPending;
+    synchronized (backlog) {
+      if (disposed) {
+        return 0;
       }
       
-      return true;
+      noBacklog = ! on && isBacklogEmpty();
+      noPending = pending.isEmpty();
+      if (priorityBacklog != null || backlogSentAt != null) {
+        for (Message m : messages) {
+          add(m, sentAt);
+        }
+      } else {
+        backlog.addAll(messages);
+      }
+    }
+    
+    schedule(messages.get(0), noBacklog, noPending);
+    return messages.size();
+  }
+  
+  /**
+   *  Adds a message to the backlog, or to the priority backlog if it is eligible. Must be called while
+   *  holding the backlog lock.
+   *  
+   *  @param m The message.
+   *  @param sentAt The time at which the message was sent.
+   */
+  private void add(Message m, long sentAt) {
+    if (priorityBacklog != null && isPriority(m)) {
+      priorityBacklog.add(m);
+      if (priorityBacklogSentAt != null) priorityBacklogSentAt.add(sentAt);
+    } else {
+      backlog.add(m);
+      if (backlogSentAt != null) backlogSentAt.add(sentAt);
+    }
+  }
+  
+  /**
+   *  Removes the next message, favouring the priority backlog. Must be called while holding the backlog lock.
+   *  
+   *  @param sentAts Receives the time at which the removed message was sent, at the given index, if metrics
+   *                 are enabled.
+   *  @param index The index at which to store the time.
+   *  @return The next message.
+   */
+  private Message remove(long[] sentAts, int index) {
+    if (priorityBacklog != null) {
+      final Message m = priorityBacklog.poll();
+      if (m != null) {
+        if (sentAts != null) sentAts[index] = priorityBacklogSentAt.remove();
+        return m;
+      }
+    }
+    if (sentAts != null) sentAts[index] = backlogSentAt.remove();
+    return backlog.remove();
+  }
+  
+  private boolean isBacklogEmpty() {
+    return backlog.isEmpty() && (priorityBacklog == null || priorityBacklog.isEmpty());
+  }
+  
+  private boolean allExempt(List<Message> messages) {
+    for (Message m : messages) {
+      if (! isExempt(m)) return false;
+    }
+    return true;
+  }
+  
+  private void schedule(Message m, boolean noBacklog, boolean noPending) {
+    if (noBacklog && noPending) {
+      system.incBusyActors();
+    }
+    
+    if (noBacklog) {
+      assert diagnostics().traceMacro("SQA.enqueue: scheduling m=%s", m);
+      dispatch();
     }
   }
   
-  private void run() {
+  /**
+   *  Determines whether the message bypasses backpressure. Responses are always exempt, as are priority
+   *  messages when a priority lane is in use; when parking, so are signals and messages that the actor sends
+   *  to itself, as parking these could never be undone.
+   *  
+   *  @param m The message.
+   *  @return True if the message is exempt.
+   */
+  private boolean isExempt(Message m) {
+    return m.isResponse() || priorityBacklog != null && isPriority(m) || 
+        backlogWaiters != null && (m.body() instanceof Signal || ref.equals(m.from()));
+  }
+  
+  @Override
+  void run() {
     assert diagnostics().traceMacro("SQA.run: ref=%s", ref);
     final Message[] messages;
+    final long[] sentAts;
     final int backlogSize;
+    final int remaining;
     synchronized (backlog) {
       if (on) throw new FrameworkError("Actor " + ref + " was already entered");
 
-      backlogSize = backlog.size();
-      messages = new Message[Math.min(actorConfig.bias, backlogSize)];
+      backlogSize = priorityBacklog != null ? backlog.size() + priorityBacklog.size() : backlog.size();
+      messages = new Message[isBatchDrain() ? backlogSize : Math.min(getBias(), backlogSize)];
+      sentAts = backlogSentAt != null ? new long[messages.length] : null;
       for (int i = 0; i < messages.length; i++) {
-        messages[i] = backlog.remove();
+        messages[i] = remove(sentAts, i);
       }
+      remaining = backlog.size();
       on = true;
     }
+    
+    if (backlogWaiters != null && remaining <= backlogLowWatermark) {
+      backlogWaiters.release();
+    }
 
     int processed = 0;
-    for (; processed < messages.length; processed++) {
-      processMessage(messages[processed]);
+    if (isBatchDrain()) {
+      for (int i = 0; i < messages.length; i++) {
+        addToBatch(messages[i], sentAts != null ? sentAts[i] : 0);
+      }
+      processed = processBatch();
+    } else {
+      final long deadline = getSliceDeadline();
+      for (; processed < messages.length; processed++) {
+        if (processed != 0 && isSliceSpent(deadline, processed)) {
+          assert diagnostics().traceMacro("SQA.run: slice spent ref=%s, processed=%d", ref, processed);
+          requeue(messages, sentAts, processed);
+          break;
+        }
+        processMessage(messages[processed], sentAts != null ? sentAts[processed] : 0);
+      }
     }
     
     if (processed == backlogSize) {
@@ -91,7 +301,7 @@ final class SyncQueueActivation extends Activation {
       if (! on) throw new FrameworkError("Actor " + ref + " was already cleared");
 
       on = false;
-      noBacklog = backlog.isEmpty();
+      noBacklog = isBacklogEmpty();
       noPending = pending.isEmpty();
       
       if (noBacklog && getState() == PASSIVATED) {
@@ -107,10 +317,40 @@ final class SyncQueueActivation extends Activation {
       }
     } else {
       assert diagnostics().traceMacro("SQA.run: scheduling, ref=%s", ref);
-      dispatch(this::run);
+      if (processed == getBias()) {
+        adaptBias();
+      }
+      dispatch();
+    }
+  }
+  
+  /**
+   *  Returns messages taken from the backlog but left unprocessed to the head of the backlog, in their 
+   *  original order.
+   *  
+   *  @param messages The messages taken from the backlog.
+   *  @param sentAts The times at which the messages were sent, or {@code null} if metrics are disabled.
+   *  @param from The index of the first unprocessed message.
+   */
+  private void requeue(Message[] messages, long[] sentAts, int from) {
+    synchronized (backlog) {
+      for (int i = messages.length; --i >= from;) {
+        final Message m = messages[i];
+        if (priorityBacklog != null && isPriority(m)) {
+          priorityBacklog.addFirst(m);
+          if (sentAts != null) priorityBacklogSentAt.addFirst(sentAts[i]);
+        } else {
+          backlog.addFirst(m);
+          if (sentAts != null) backlogSentAt.addFirst(sentAts[i]);
+        }
+      }
     }
   }
   
+  private boolean hasBacklogCapacity() {
+    return ! shouldThrottle();
+  }
+  
   private boolean shouldThrottle() {
     synchronized (backlog) {
       return backlog.size() >= actorConfig.backlogThrottleCapacity;
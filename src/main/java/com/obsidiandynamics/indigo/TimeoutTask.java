@@ -4,24 +4,74 @@ import java.util.*;
 
 import com.obsidiandynamics.indigo.task.*;
 
-final class TimeoutTask extends Task<UUID> {
+/**
+ *  Times out a request. The request ID is held as its constituent parts, and only materialised as a 
+ *  {@link UUID} on demand, so that timing a request out doesn't allocate beyond the task itself.
+ */
+final class TimeoutTask extends TimedTask {
+  /** The ID of the activation that issued the request. */
+  private final long requestOrigin;
+  
+  private final long requestSeq;
+  
   private final ActorRef actorRef;
   
   private final Endpoint endpoint;
   
-  TimeoutTask(long expiresAt, UUID requestId, ActorRef actorRef, Endpoint endpoint) {
-    super(expiresAt, requestId);
+  TimeoutTask(long expiresAt, long requestOrigin, long requestSeq, ActorRef actorRef, Endpoint endpoint) {
+    super(expiresAt);
+    this.requestOrigin = requestOrigin;
+    this.requestSeq = requestSeq;
     this.actorRef = actorRef;
     this.endpoint = endpoint;
   }
   
+  /**
+   *  Obtains the ID of the activation that issued the request.
+   *  
+   *  @return The activation ID.
+   */
+  long getActivationId() {
+    return requestOrigin;
+  }
+  
+  long getRequestSeq() {
+    return requestSeq;
+  }
+  
+  UUID getRequestId() {
+    return new UUID(requestOrigin, requestSeq);
+  }
+  
+  @Override
+  protected int compareIdTo(TimedTask other) {
+    final TimeoutTask that = (TimeoutTask) other;
+    final int originComp = Long.compare(requestOrigin, that.requestOrigin);
+    return originComp != 0 ? originComp : Long.compare(requestSeq, that.requestSeq);
+  }
+  
+  @Override
+  protected boolean idEquals(TimedTask other) {
+    if (other instanceof TimeoutTask) {
+      final TimeoutTask that = (TimeoutTask) other;
+      return requestOrigin == that.requestOrigin && requestSeq == that.requestSeq;
+    } else {
+      return false;
+    }
+  }
+  
+  @Override
+  protected int idHashCode() {
+    return Long.hashCode(requestOrigin) * 31 + Long.hashCode(requestSeq);
+  }
+  
   @Override
   protected void execute() {
-    endpoint.send(new Message(null, actorRef, Timeout.instance(), getId(), true));
+    endpoint.send(new Message(null, actorRef, Timeout.instance(), requestOrigin, requestSeq, true));
   }
   
   @Override
   public String toString() {
-    return TimeoutTask.class.getSimpleName() + " [time=" + getTime() + ", id=" + getId() + ", actorRef=" + actorRef + "]";
+    return TimeoutTask.class.getSimpleName() + " [time=" + getTime() + ", id=" + getRequestId() + ", actorRef=" + actorRef + "]";
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.obsidiandynamics.indigo.metrics;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+
+import com.obsidiandynamics.indigo.*;
+
+/**
+ *  Collects metrics per role, publishing each role's {@link RoleMetrics} as an MXBean named
+ *  <code>com.obsidiandynamics.indigo:type=Role,system=&lt;system ID&gt;,role=&lt;role&gt;</code>. The
+ *  MXBeans are registered as roles are first activated, and are unregistered when the actor system
+ *  shuts down; the metrics remain readable through {@link #getRoles()} thereafter.
+ */
+public final class JmxMetricsSink implements MetricsSink {
+  public static final String DOMAIN = "com.obsidiandynamics.indigo";
+
+  private final MBeanServer server;
+
+  private final ConcurrentMap<String, RoleMetrics> roles = new ConcurrentHashMap<>();
+
+  private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+
+  private String systemId;
+
+  public JmxMetricsSink() {
+    this(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public JmxMetricsSink(MBeanServer server) {
+    this.server = server;
+  }
+
+  @Override
+  public void start(String systemId) {
+    this.systemId = systemId;
+  }
+
+  @Override
+  public Probe probe(ActorRef ref) {
+    final String role = ref.role();
+    final RoleMetrics existing = roles.get(role);
+    if (existing != null) {
+      return existing.probe(ref);
+    }
+    
+    final RoleMetrics created = new RoleMetrics(role);
+    final RoleMetrics raced = roles.putIfAbsent(role, created);
+    if (raced != null) {
+      return raced.probe(ref);
+    }
+    
+    register(role, created);
+    return created.probe(ref);
+  }
+
+  /**
+   *  Publishes the metrics for a role, outside of the roles map so that a slow MBean server doesn't hold up
+   *  the creation of other roles. A failure to register (for example, if another sink has already registered
+   *  under the same name) is reported on {@link System#err}; the metrics continue to be collected, and 
+   *  remain readable through {@link #getRoles()}.
+   *  
+   *  @param role The role.
+   *  @param metrics The role's metrics.
+   */
+  private void register(String role, RoleMetrics metrics) {
+    try {
+      final ObjectName name = getObjectName(systemId, role);
+      server.registerMBean(metrics, name);
+      registered.add(name);
+    } catch (JMException e) {
+      System.err.format("WARNING: cannot register metrics for role '%s': %s\n", role, e);
+    }
+  }
+
+  /**
+   *  Obtains the name under which the metrics for the given role are registered.
+   *
+   *  @param systemId The actor system ID.
+   *  @param role The role.
+   *  @return The object name.
+   *  @throws MalformedObjectNameException If the name could not be constructed.
+   */
+  public static ObjectName getObjectName(String systemId, String role) throws MalformedObjectNameException {
+    return new ObjectName(DOMAIN + ":type=Role,system=" + systemId + ",role=" + ObjectName.quote(role));
+  }
+
+  public String getSystemId() {
+    return systemId;
+  }
+
+  public Map<String, RoleMetrics> getRoles() {
+    return Collections.unmodifiableMap(roles);
+  }
+
+  public RoleMetrics getRole(String role) {
+    return roles.get(role);
+  }
+
+  @Override
+  public void stop() {
+    for (ObjectName name : registered) {
+      try {
+        server.unregisterMBean(name);
+      } catch (JMException e) {
+        throw new IllegalStateException("Error unregistering " + name, e);
+      }
+    }
+    registered.clear();
+  }
+}
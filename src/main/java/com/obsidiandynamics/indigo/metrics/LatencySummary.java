@@ -0,0 +1,62 @@
+package com.obsidiandynamics.indigo.metrics;
+
+import java.beans.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+/**
+ *  A summary of a latency distribution, in nanoseconds. Published over JMX as composite data.
+ */
+public final class LatencySummary {
+  private final long count;
+  private final double meanNanos;
+  private final long p50Nanos;
+  private final long p99Nanos;
+  private final long p999Nanos;
+  private final long maxNanos;
+  
+  @ConstructorProperties({"count", "meanNanos", "p50Nanos", "p99Nanos", "p999Nanos", "maxNanos"})
+  public LatencySummary(long count, double meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+    this.count = count;
+    this.meanNanos = meanNanos;
+    this.p50Nanos = p50Nanos;
+    this.p99Nanos = p99Nanos;
+    this.p999Nanos = p999Nanos;
+    this.maxNanos = maxNanos;
+  }
+  
+  static LatencySummary of(Histogram.Snapshot snapshot) {
+    return new LatencySummary(snapshot.getCount(), snapshot.getMean(), snapshot.getValueAtPercentile(50),
+                              snapshot.getValueAtPercentile(99), snapshot.getValueAtPercentile(99.9), snapshot.getMax());
+  }
+  
+  public long getCount() {
+    return count;
+  }
+  
+  public double getMeanNanos() {
+    return meanNanos;
+  }
+  
+  public long getP50Nanos() {
+    return p50Nanos;
+  }
+  
+  public long getP99Nanos() {
+    return p99Nanos;
+  }
+  
+  public long getP999Nanos() {
+    return p999Nanos;
+  }
+  
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return LatencySummary.class.getSimpleName() + " [count=" + count + ", meanNanos=" + meanNanos + ", p50Nanos=" + p50Nanos + 
+        ", p99Nanos=" + p99Nanos + ", p999Nanos=" + p999Nanos + ", maxNanos=" + maxNanos + "]";
+  }
+}
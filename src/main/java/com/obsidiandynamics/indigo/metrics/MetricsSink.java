@@ -0,0 +1,87 @@
+package com.obsidiandynamics.indigo.metrics;
+
+import com.obsidiandynamics.indigo.*;
+
+/**
+ *  Receives performance metrics from an actor system. A sink is bound to a single actor system for
+ *  its lifetime, and hands out a {@link Probe} to each activation, which the activation then
+ *  notifies of every message enqueued and processed, as well as of its life-cycle transitions.<p>
+ *
+ *  Probe methods are invoked on the messaging hot path, and must therefore be cheap and non-blocking.
+ */
+public interface MetricsSink {
+  /**
+   *  Instrumentation for a single activation.<p>
+   *
+   *  The {@link #enqueued()} method may be called concurrently by any number of senders; the remaining
+   *  methods are called serially, by whichever thread is processing the activation at the time.
+   */
+  interface Probe {
+    /**
+     *  Invoked after a message has been enqueued on the activation's mailbox.
+     */
+    void enqueued();
+
+    /**
+     *  Invoked when a message is taken from the mailbox, immediately before it is processed.
+     *
+     *  @param queueNanos The time the message spent in the mailbox.
+     */
+    void dequeued(long queueNanos);
+
+    /**
+     *  Invoked after the actor has processed one or more messages taken from its mailbox.
+     *
+     *  @param messages The number of messages processed.
+     *  @param serviceNanos The total time taken to process the messages.
+     */
+    void processed(int messages, long serviceNanos);
+
+    /**
+     *  Invoked in timing mode for each processed message, breaking down the time from the sending of the
+     *  message to the completion of its processing. The mailbox, executor and turn times, together with
+     *  the time taken to process the message itself, add up to the end-to-end time.
+     *
+     *  @param mailboxNanos The time spent in the mailbox before the activation was dispatched.
+     *  @param executorNanos The time between the activation being dispatched and it being run by a thread.
+     *  @param turnNanos The time spent waiting behind earlier messages processed in the same turn.
+     *  @param endToEndNanos The time from sending the message to the completion of its processing.
+     */
+    default void timed(long mailboxNanos, long executorNanos, long turnNanos, long endToEndNanos) {}
+
+    /**
+     *  Invoked when the actor has been activated.
+     */
+    void activated();
+
+    /**
+     *  Invoked when the actor has been passivated.
+     */
+    void passivated();
+
+    /**
+     *  Invoked when the activation has been disposed. The probe will not be used thereafter.
+     */
+    void disposed();
+  }
+
+  /**
+   *  Invoked when the actor system is created, prior to any activations.
+   *
+   *  @param systemId The ID of the actor system, unique within this JVM.
+   */
+  void start(String systemId);
+
+  /**
+   *  Obtains a probe for a newly created activation.
+   *
+   *  @param ref The activation's ref.
+   *  @return The probe.
+   */
+  Probe probe(ActorRef ref);
+
+  /**
+   *  Invoked once the actor system has shut down.
+   */
+  void stop();
+}
@@ -0,0 +1,297 @@
+package com.obsidiandynamics.indigo.metrics;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.obsidiandynamics.indigo.*;
+import com.obsidiandynamics.indigo.util.*;
+
+/**
+ *  Metrics for all activations of a given role. Counters and histograms are shared by the role's
+ *  activations and are updated on the messaging hot path; mailbox depths are tracked per activation,
+ *  and are only aggregated when read.
+ */
+public final class RoleMetrics implements RoleMetricsMXBean {
+  private static final long MIN_SAMPLE_INTERVAL_NANOS = 1_000_000_000l;
+
+  public final class ActivationMetrics implements MetricsSink.Probe {
+    private final ActorRef ref;
+
+    private final LongAdder enqueued = new LongAdder();
+
+    /** Only written to by the thread processing the activation. */
+    private volatile long dequeued;
+
+    ActivationMetrics(ActorRef ref) {
+      this.ref = ref;
+    }
+
+    public ActorRef getRef() {
+      return ref;
+    }
+
+    /**
+     *  Obtains the number of messages that have been enqueued, but are yet to be processed.
+     *
+     *  @return The mailbox depth.
+     */
+    public long getMailboxDepth() {
+      return Math.max(0, enqueued.sum() - dequeued);
+    }
+
+    public long getMessages() {
+      return dequeued;
+    }
+
+    @Override
+    public void enqueued() {
+      enqueued.increment();
+    }
+
+    @Override
+    public void dequeued(long queueNanos) {
+      dequeued++;
+      queueLatency.record(queueNanos);
+    }
+
+    @Override
+    public void processed(int messages, long serviceNanos) {
+      RoleMetrics.this.messages.add(messages);
+      serviceTime.record(serviceNanos / messages, messages);
+    }
+
+    @Override
+    public void timed(long mailboxNanos, long executorNanos, long turnNanos, long endToEndNanos) {
+      final TimingHistograms timing = timing();
+      timing.mailbox.record(mailboxNanos);
+      timing.executor.record(executorNanos);
+      timing.turn.record(turnNanos);
+      timing.endToEnd.record(endToEndNanos);
+    }
+
+    @Override
+    public void activated() {
+      activations.increment();
+    }
+
+    @Override
+    public void passivated() {
+      passivations.increment();
+    }
+
+    @Override
+    public void disposed() {
+      live.remove(this);
+    }
+  }
+
+  /** The breakdown of message latencies, only populated in timing mode. */
+  private static final class TimingHistograms {
+    final Histogram mailbox = new Histogram();
+    final Histogram executor = new Histogram();
+    final Histogram turn = new Histogram();
+    final Histogram endToEnd = new Histogram();
+  }
+
+  private final String role;
+
+  private final Set<ActivationMetrics> live = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder activations = new LongAdder();
+
+  private final LongAdder passivations = new LongAdder();
+
+  private final LongAdder messages = new LongAdder();
+
+  private final Histogram queueLatency = new Histogram();
+
+  private final Histogram serviceTime = new Histogram();
+
+  /** Allocated on first use, so as not to occupy memory outside of timing mode. */
+  private volatile TimingHistograms timing;
+
+  private long lastSampleNanos = System.nanoTime();
+
+  private long lastSampleMessages;
+
+  private double lastSampleRate = Double.NaN;
+
+  RoleMetrics(String role) {
+    this.role = role;
+  }
+
+  ActivationMetrics probe(ActorRef ref) {
+    final ActivationMetrics probe = new ActivationMetrics(ref);
+    live.add(probe);
+    return probe;
+  }
+
+  private TimingHistograms timing() {
+    final TimingHistograms existing = timing;
+    if (existing != null) {
+      return existing;
+    }
+
+    synchronized (this) {
+      if (timing == null) {
+        timing = new TimingHistograms();
+      }
+      return timing;
+    }
+  }
+
+  /**
+   *  Obtains the metrics of the live activations of this role.
+   *
+   *  @return The activation metrics.
+   */
+  public Collection<ActivationMetrics> getActivationMetrics() {
+    return Collections.unmodifiableSet(live);
+  }
+
+  public Histogram.Snapshot getQueueLatency() {
+    return queueLatency.snapshot();
+  }
+
+  public Histogram.Snapshot getServiceTime() {
+    return serviceTime.snapshot();
+  }
+
+  @Override
+  public String getRole() {
+    return role;
+  }
+
+  @Override
+  public long getActivations() {
+    return activations.sum();
+  }
+
+  @Override
+  public long getPassivations() {
+    return passivations.sum();
+  }
+
+  @Override
+  public int getLiveActivations() {
+    return live.size();
+  }
+
+  @Override
+  public long getMailboxDepth() {
+    long depth = 0;
+    for (ActivationMetrics probe : live) {
+      depth += probe.getMailboxDepth();
+    }
+    return depth;
+  }
+
+  @Override
+  public Map<String, Long> getMailboxDepths() {
+    final Map<String, Long> depths = new TreeMap<>();
+    for (ActivationMetrics probe : live) {
+      depths.put(probe.ref.toString(), probe.getMailboxDepth());
+    }
+    return depths;
+  }
+
+  @Override
+  public long getMessages() {
+    return messages.sum();
+  }
+
+  @Override
+  public synchronized double getMessagesPerSecond() {
+    final long now = System.nanoTime();
+    final long elapsed = now - lastSampleNanos;
+    if (elapsed >= MIN_SAMPLE_INTERVAL_NANOS || Double.isNaN(lastSampleRate) && elapsed > 0) {
+      final long messages = getMessages();
+      lastSampleRate = (double) (messages - lastSampleMessages) * 1_000_000_000l / elapsed;
+      lastSampleNanos = now;
+      lastSampleMessages = messages;
+    }
+    return Double.isNaN(lastSampleRate) ? 0 : lastSampleRate;
+  }
+
+  @Override
+  public double getQueueLatencyMeanNanos() {
+    return getQueueLatency().getMean();
+  }
+
+  @Override
+  public long getQueueLatencyP50Nanos() {
+    return getQueueLatency().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getQueueLatencyP99Nanos() {
+    return getQueueLatency().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getQueueLatencyP999Nanos() {
+    return getQueueLatency().getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public long getQueueLatencyMaxNanos() {
+    return getQueueLatency().getMax();
+  }
+
+  @Override
+  public double getServiceTimeMeanNanos() {
+    return getServiceTime().getMean();
+  }
+
+  @Override
+  public long getServiceTimeP50Nanos() {
+    return getServiceTime().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getServiceTimeP99Nanos() {
+    return getServiceTime().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getServiceTimeP999Nanos() {
+    return getServiceTime().getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public long getServiceTimeMaxNanos() {
+    return getServiceTime().getMax();
+  }
+
+  @Override
+  public LatencySummary getMailboxLatency() {
+    return summarise(timing != null ? timing.mailbox : null);
+  }
+
+  @Override
+  public LatencySummary getExecutorLatency() {
+    return summarise(timing != null ? timing.executor : null);
+  }
+
+  @Override
+  public LatencySummary getTurnLatency() {
+    return summarise(timing != null ? timing.turn : null);
+  }
+
+  @Override
+  public LatencySummary getEndToEndLatency() {
+    return summarise(timing != null ? timing.endToEnd : null);
+  }
+
+  private static LatencySummary summarise(Histogram histogram) {
+    return histogram != null ? LatencySummary.of(histogram.snapshot()) : new LatencySummary(0, 0, 0, 0, 0, 0);
+  }
+
+  @Override
+  public String toString() {
+    return RoleMetrics.class.getSimpleName() + " [role=" + role + ", activations=" + getActivations() +
+        ", passivations=" + getPassivations() + ", mailboxDepth=" + getMailboxDepth() + ", messages=" + getMessages() +
+        ", queueLatency=" + getQueueLatency() + ", serviceTime=" + getServiceTime() + "]";
+  }
+}
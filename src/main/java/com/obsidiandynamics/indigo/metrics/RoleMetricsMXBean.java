@@ -0,0 +1,64 @@
+package com.obsidiandynamics.indigo.metrics;
+
+import java.util.*;
+
+/**
+ *  The management interface for the metrics of a single role, as published by the {@link JmxMetricsSink}.
+ *  Latencies are in nanoseconds, and are accurate to within about 3%.
+ */
+public interface RoleMetricsMXBean {
+  String getRole();
+  
+  /** The number of times an actor of this role has been activated. */
+  long getActivations();
+  
+  /** The number of times an actor of this role has been passivated. */
+  long getPassivations();
+  
+  /** The number of activations currently in memory. */
+  int getLiveActivations();
+  
+  /** The total number of messages backlogged across all live activations. */
+  long getMailboxDepth();
+  
+  /** The number of messages backlogged for each live activation, keyed by the activation's ref. */
+  Map<String, Long> getMailboxDepths();
+  
+  /** The total number of messages processed. */
+  long getMessages();
+  
+  /** The rate at which messages were processed, sampled over an interval of at least a second. */
+  double getMessagesPerSecond();
+  
+  double getQueueLatencyMeanNanos();
+  
+  long getQueueLatencyP50Nanos();
+  
+  long getQueueLatencyP99Nanos();
+  
+  long getQueueLatencyP999Nanos();
+  
+  long getQueueLatencyMaxNanos();
+  
+  double getServiceTimeMeanNanos();
+  
+  long getServiceTimeP50Nanos();
+  
+  long getServiceTimeP99Nanos();
+  
+  long getServiceTimeP999Nanos();
+  
+  long getServiceTimeMaxNanos();
+  
+  /** The time spent in the mailbox before the activation was dispatched; only collected in timing mode. */
+  LatencySummary getMailboxLatency();
+  
+  /** The time spent waiting for a thread after the activation was dispatched; only collected in timing mode. */
+  LatencySummary getExecutorLatency();
+  
+  /** The time spent waiting behind earlier messages in the same turn; only collected in timing mode. */
+  LatencySummary getTurnLatency();
+  
+  /** The time from sending a message to the completion of its processing; only collected in timing mode. */
+  LatencySummary getEndToEndLatency();
+}
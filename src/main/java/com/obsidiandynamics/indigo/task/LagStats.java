@@ -0,0 +1,57 @@
+package com.obsidiandynamics.indigo.task;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ *  Accumulates the lag of a scheduler, being the time by which each task was executed after
+ *  its scheduled time. Tasks that were executed early (within the scheduler's tolerance) are
+ *  counted as having no lag. Forced executions are not recorded.
+ */
+public final class LagStats {
+  private final LongAdder count = new LongAdder();
+  
+  private final LongAdder totalNanos = new LongAdder();
+  
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  
+  void record(long lagNanos) {
+    final long positiveLagNanos = Math.max(0, lagNanos);
+    count.increment();
+    totalNanos.add(positiveLagNanos);
+    maxNanos.accumulate(positiveLagNanos);
+  }
+  
+  void add(LagStats other) {
+    count.add(other.getCount());
+    totalNanos.add(other.getTotalNanos());
+    maxNanos.accumulate(other.getMaxNanos());
+  }
+  
+  /**
+   *  Obtains the number of tasks executed at their scheduled time.
+   *  
+   *  @return The number of tasks.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+  
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+  
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+  
+  public double getMeanNanos() {
+    final long count = getCount();
+    return count != 0 ? (double) getTotalNanos() / count : 0;
+  }
+
+  @Override
+  public String toString() {
+    return LagStats.class.getSimpleName() + " [count=" + getCount() + ", meanNanos=" + getMeanNanos() + 
+        ", maxNanos=" + getMaxNanos() + "]";
+  }
+}
@@ -0,0 +1,65 @@
+package com.obsidiandynamics.indigo.task;
+
+/**
+ *  A scheduler for dispatching arbitrary tasks at some point in the future, backed by a
+ *  dedicated thread.
+ */
+public interface Scheduler {
+  /**
+   *  Starts the scheduler thread.
+   */
+  void start();
+
+  /**
+   *  Schedules a task for execution.
+   *
+   *  @param task The task to schedule.
+   */
+  void schedule(TimedTask task);
+
+  /**
+   *  Removes the given task from the schedule. Once definitively removed, the scheduler will
+   *  not execute the task.
+   *
+   *  @param task The task to abort.
+   *  @return Whether the task was in the schedule.
+   */
+  boolean abort(TimedTask task);
+
+  /**
+   *  Forces the execution of a given task.<p>
+   *
+   *  This method is asynchronous, returning as soon as the resulting signal is enqueued.
+   *
+   *  @param task The task to time out.
+   */
+  default void executeNow(TimedTask task) {
+    if (abort(task)) {
+      task.execute();
+    }
+  }
+
+  /**
+   *  Forces the immediate execution of all pending tasks, and all future tasks yet to be enqueued.
+   */
+  void forceExecute();
+
+  /**
+   *  Removes all pending tasks from the schedule, without executing them.
+   */
+  void clear();
+
+  /**
+   *  Obtains the lag incurred by the scheduler in executing tasks that have come due.
+   *
+   *  @return The lag statistics.
+   */
+  LagStats getLag();
+
+  /**
+   *  Terminates the scheduler, and awaits for its thread to end.
+   *
+   *  @throws InterruptedException If the thread is interrupted.
+   */
+  void terminate() throws InterruptedException;
+}
@@ -0,0 +1,83 @@
+package com.obsidiandynamics.indigo.task;
+
+import java.util.function.*;
+
+/**
+ *  Spreads tasks over a number of independent schedulers, each with its own thread, so that
+ *  scheduling and aborting tasks from many threads doesn't contend on a single scheduler.<p>
+ *
+ *  Tasks are routed to a shard by a key derived from the task, which must be stable for the
+ *  lifetime of the task.
+ */
+public final class ShardedScheduler implements Scheduler {
+  private final Scheduler[] shards;
+
+  private final ToLongFunction<TimedTask> shardKey;
+
+  /**
+   *  Creates a new sharded scheduler.
+   *
+   *  @param shards The underlying schedulers.
+   *  @param shardKey Derives the routing key from a task.
+   */
+  public ShardedScheduler(Scheduler[] shards, ToLongFunction<TimedTask> shardKey) {
+    if (shards.length == 0) throw new IllegalArgumentException("At least one shard is required");
+    this.shards = shards;
+    this.shardKey = shardKey;
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  private Scheduler shardFor(TimedTask task) {
+    return shards[(int) Long.remainderUnsigned(shardKey.applyAsLong(task), shards.length)];
+  }
+
+  @Override
+  public void start() {
+    for (Scheduler shard : shards) shard.start();
+  }
+
+  @Override
+  public void schedule(TimedTask task) {
+    shardFor(task).schedule(task);
+  }
+
+  @Override
+  public boolean abort(TimedTask task) {
+    return shardFor(task).abort(task);
+  }
+
+  @Override
+  public void executeNow(TimedTask task) {
+    shardFor(task).executeNow(task);
+  }
+
+  @Override
+  public void forceExecute() {
+    for (Scheduler shard : shards) shard.forceExecute();
+  }
+
+  @Override
+  public void clear() {
+    for (Scheduler shard : shards) shard.clear();
+  }
+
+  /**
+   *  Obtains a snapshot of the lag, aggregated across all shards.
+   *
+   *  @return The lag statistics.
+   */
+  @Override
+  public LagStats getLag() {
+    final LagStats lag = new LagStats();
+    for (Scheduler shard : shards) lag.add(shard.getLag());
+    return lag;
+  }
+
+  @Override
+  public void terminate() throws InterruptedException {
+    for (Scheduler shard : shards) shard.terminate();
+  }
+}
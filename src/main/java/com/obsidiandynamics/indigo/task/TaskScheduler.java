@@ -4,9 +4,9 @@ import java.util.*;
 import java.util.concurrent.*;
 
 /**
- *  A scheduler for dispatching arbitrary tasks.
+ *  A scheduler for dispatching arbitrary tasks, keeping the pending tasks in a skip list.
  */
-public final class TaskScheduler extends Thread {
+public final class TaskScheduler extends Thread implements Scheduler {
   /** Maximum sleep time. If the next task's time is longer, the sleep will be performed in a loop.
    *  This is also the default time that the scheduler sleeps for if it has no pending tasks. */
   private static final long MAX_SLEEP_NANOS = 1_000_000_000l;
@@ -18,7 +18,7 @@ public final class TaskScheduler extends Thread {
   private static final long ADJ_NANOS = 500_000l;
   
   /** List of pending tasks, ordered with the most immediate at the head. */
-  private final SortedSet<Task<?>> tasks = new ConcurrentSkipListSet<>();
+  private final SortedSet<TimedTask> tasks = new ConcurrentSkipListSet<>();
   
   /** Lock for the scheduler thread to sleep on; can be used to wake the thread. */
   private final Object sleepLock = new Object();
@@ -32,20 +32,40 @@ public final class TaskScheduler extends Thread {
   /** Whether execution should be forced for all tasks (regarding of their scheduled time), pending and future. */
   private volatile boolean forceExecute;
   
+  /** Whether all due tasks should be executed in a single cycle, rather than one task per cycle. */
+  private final boolean batchExpiry;
+  
+  /** The executor to hand due tasks off to, or {@code null} if tasks are executed by the scheduler thread. */
+  private final Executor expiryExecutor;
+  
+  private final LagStats lag = new LagStats();
+  
   public TaskScheduler(String threadName) {
+    this(threadName, false, null);
+  }
+  
+  /**
+   *  Creates a new scheduler.
+   *  
+   *  @param threadName The name of the scheduler thread.
+   *  @param batchExpiry Whether all due tasks should be executed in a single pass, rather than
+   *                     sleeping between each one.
+   *  @param expiryExecutor The executor to execute due tasks on, or {@code null} to execute them on
+   *                        the scheduler thread.
+   */
+  public TaskScheduler(String threadName, boolean batchExpiry, Executor expiryExecutor) {
     super(threadName);
+    this.batchExpiry = batchExpiry;
+    this.expiryExecutor = expiryExecutor;
     setDaemon(true);
   }
   
+  @Override
   public void clear() {
     tasks.clear();
   }
   
-  /**
-   *  Terminates the scheduler, and awaits for its thread to end.
-   *  
-   *  @throws InterruptedException If the thread is interrupted.
-   */
+  @Override
   public void terminate() throws InterruptedException {
     running = false;
     interrupt();
@@ -72,12 +92,8 @@ public final class TaskScheduler extends Thread {
     }
   }
   
-  /**
-   *  Schedules a task for execution.
-   *  
-   *  @param task The task to schedule.
-   */
-  public void schedule(Task<?> task) {
+  @Override
+  public void schedule(TimedTask task) {
     tasks.add(task);
     if (task.getTime() < nextWake) {
       synchronized (sleepLock) {
@@ -89,14 +105,8 @@ public final class TaskScheduler extends Thread {
     }
   }
   
-  /**
-   *  Removes the given task from the schedule. Once definitively removed, the scheduler will
-   *  not execute the task.
-   *  
-   *  @param task The task to abort.
-   *  @return Whether the task was in the schedule.
-   */
-  public boolean abort(Task<?> task) {
+  @Override
+  public boolean abort(TimedTask task) {
     return tasks.remove(task);
   }
   
@@ -126,9 +136,7 @@ public final class TaskScheduler extends Thread {
     }
   }
   
-  /**
-   *  Forces the immediate execution of all pending tasks, and all future tasks yet to be enqueued.
-   */
+  @Override
   public void forceExecute() {
     forceExecute = true;
     synchronized (sleepLock) {
@@ -136,32 +144,54 @@ public final class TaskScheduler extends Thread {
     }
   }
   
+  @Override
+  public LagStats getLag() {
+    return lag;
+  }
+  
   /**
-   *  Schedules a single task, if one is pending and its time has come.
+   *  Executes a single task if one is pending and its time has come or, if batch expiry is enabled,
+   *  all tasks whose time has come.
    */
   private void cycle() {
-    if (! tasks.isEmpty()) {
+    while (! tasks.isEmpty()) {
       try {
-        final Task<?> first = tasks.first();
-        if (forceExecute || System.nanoTime() >= first.getTime() - ADJ_NANOS) {
+        final TimedTask first = tasks.first();
+        final boolean forced = forceExecute;
+        if (forced || System.nanoTime() >= first.getTime() - ADJ_NANOS) {
           if (tasks.remove(first)) {
-            first.execute();
+            execute(first, forced);
           }
+          if (! batchExpiry) return;
+        } else {
+          return;
         }
       } catch (NoSuchElementException e) {} // in case the task was dequeued in the meantime
     }
   }
   
   /**
-   *  Forces the execution of a given task.<p>
-   *  
-   *  This method is asynchronous, returning as soon as the resulting signal is enqueued.
+   *  Executes the task, handing it off to the expiry executor if there is one. Forced tasks are always
+   *  executed on the scheduler thread, as forcing typically precedes the shutdown of the executor; likewise,
+   *  a task that the executor rejects is executed on the scheduler thread rather than being lost.
    *  
-   *  @param task The task to time out.
+   *  @param task The task.
+   *  @param forced Whether execution has been forced.
    */
-  public void executeNow(Task<?> task) {
-    if (abort(task)) {
-      task.execute();
+  private void execute(TimedTask task, boolean forced) {
+    if (expiryExecutor != null && ! forced) {
+      try {
+        expiryExecutor.execute(() -> executeAndRecord(task, false));
+        return;
+      } catch (RejectedExecutionException e) {}
+    }
+    executeAndRecord(task, forced);
+  }
+  
+  private void executeAndRecord(TimedTask task, boolean forced) {
+    if (! forced) {
+      lag.record(System.nanoTime() - task.getTime());
     }
+    task.execute();
   }
 }
@@ -0,0 +1,72 @@
+package com.obsidiandynamics.indigo.task;
+
+/**
+ *  A unit of work that is due for execution at a given time, and is ordered by that time and then by
+ *  an identity of the subclass's choosing. Most tasks derive their identity from a single ID object,
+ *  and should extend {@link Task}; this class is for tasks whose identity is held across primitive 
+ *  fields, and would otherwise have to allocate an ID object.
+ */
+public abstract class TimedTask implements Comparable<TimedTask> {
+  /** The scheduled execution time, in absolute nanoseconds. See {@link System#nanoTime()}. */
+  private final long time;
+  
+  /** Opaque state belonging to the scheduler that the task has been scheduled with, if that scheduler needs to
+   *  associate state with the task instance. Only accessed by that scheduler, and excluded from the task's identity. */
+  volatile Object schedulerState;
+  
+  protected TimedTask(long time) {
+    this.time = time;
+  }
+  
+  protected final long getTime() {
+    return time;
+  }
+  
+  protected abstract void execute();
+  
+  /**
+   *  Compares the identity of this task with that of another task scheduled for the same time.
+   *  
+   *  @param other The other task.
+   *  @return A negative integer, zero, or a positive integer as this task's identity is less than, 
+   *          equal to, or greater than the other's.
+   */
+  protected abstract int compareIdTo(TimedTask other);
+  
+  /**
+   *  Determines whether this task has the same identity as another task.
+   *  
+   *  @param other The other task.
+   *  @return True if the identities are equal.
+   */
+  protected abstract boolean idEquals(TimedTask other);
+  
+  protected abstract int idHashCode();
+
+  @Override
+  public final int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Long.hashCode(time);
+    result = prime * result + idHashCode();
+    return result;
+  }
+
+  @Override
+  public final boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (obj instanceof TimedTask) {
+      final TimedTask that = (TimedTask) obj;
+      return time == that.time && idEquals(that);
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public final int compareTo(TimedTask o) {
+    final int timeComp = Long.compare(time, o.time);
+    return timeComp != 0 ? timeComp : compareIdTo(o);
+  }
+}
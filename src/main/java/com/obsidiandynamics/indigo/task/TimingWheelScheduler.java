@@ -0,0 +1,458 @@
+package com.obsidiandynamics.indigo.task;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ *  A scheduler backed by a hierarchical hashed timing wheel, suited to large numbers of short-lived
+ *  tasks that are mostly aborted before they come due, such as request timeouts.<p>
+ *
+ *  The wheel comprises {@link #LEVELS} levels of {@link #SLOTS} slots each, with a slot in the lowest
+ *  level spanning a single tick, and a slot in each successive level spanning an entire rotation of the
+ *  level below. A task is placed in the lowest level that can accommodate its deadline, and cascades
+ *  down towards the lowest level as the wheel turns. Tasks are executed no earlier than their scheduled
+ *  time, and up to one tick later; tasks that fall due within the same tick are executed in no particular
+ *  order.<p>
+ *
+ *  Scheduling and aborting are lock-free, constant-time operations; scheduling allocates a single {@link Node}
+ *  to track the task, while aborting allocates nothing. Rather than touching the wheel directly, callers push
+ *  nodes onto intrusive stacks, which are drained by the scheduler thread at every tick. Tasks are tracked by
+ *  their instance (rather than by equality), and a task instance may only be scheduled once.
+ */
+public final class TimingWheelScheduler extends Thread implements Scheduler {
+  private static final int SLOT_BITS = 8;
+
+  /** The number of slots in each level. */
+  public static final int SLOTS = 1 << SLOT_BITS;
+
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  /** The number of levels in the wheel. */
+  public static final int LEVELS = 4;
+
+  /** The span of the entire wheel, in ticks. Tasks that are due beyond this are placed in the top level, and
+   *  re-inserted as it turns. */
+  private static final long MAX_SPAN = 1l << (SLOT_BITS * LEVELS);
+
+  /** Maximum sleep time when the wheel is empty. */
+  private static final long MAX_SLEEP_NANOS = 1_000_000_000l;
+
+  private static final int STATE_SCHEDULED = 1;
+
+  private static final int STATE_DONE = 2;
+
+  private static final AtomicIntegerFieldUpdater<Node> STATE = AtomicIntegerFieldUpdater.newUpdater(Node.class, "state");
+
+  /**
+   *  Tracks a scheduled task, holding its scheduling state and its linkage within the wheel and the
+   *  intrusive stacks. A node is referenced from its task's {@link TimedTask#schedulerState}.
+   */
+  static final class Node {
+    final TimedTask task;
+
+    /** The value of {@link TimingWheelScheduler#clearEpoch} when the task was scheduled. */
+    final long epoch;
+
+    volatile int state = STATE_SCHEDULED;
+
+    /** The tick at which the task is due; only accessed by the scheduler thread. */
+    long deadline;
+
+    /** The index of the slot holding the node, or <code>-1</code> if the node isn't in the wheel; only accessed
+     *  by the scheduler thread. */
+    int slot = -1;
+
+    /** Links within the slot's list; only accessed by the scheduler thread. */
+    Node prev, next;
+
+    /** Links within the {@link TimingWheelScheduler#scheduled} and {@link TimingWheelScheduler#aborted} stacks. */
+    Node nextScheduled, nextAborted;
+
+    Node(TimedTask task, long epoch) {
+      this.task = task;
+      this.epoch = epoch;
+    }
+  }
+
+  private final long tickNanos;
+
+  /** The origin of the tick count, in absolute nanoseconds. See {@link System#nanoTime()}. */
+  private final long startTime = System.nanoTime();
+
+  /** Heads of the doubly-linked task lists, one per slot, with the levels laid out consecutively. Only
+   *  accessed by the scheduler thread. */
+  private final Node[] slots = new Node[LEVELS * SLOTS];
+
+  /** The next tick to be processed. */
+  private long tick;
+
+  /** The number of tasks in the wheel. */
+  private int size;
+
+  /** The epoch that the contents of the wheel correspond to. */
+  private long epoch;
+
+  /** Tasks that have been scheduled, yet to be placed in the wheel. */
+  private final AtomicReference<Node> scheduled = new AtomicReference<>();
+
+  /** Tasks that have been aborted, yet to be removed from the wheel. */
+  private final AtomicReference<Node> aborted = new AtomicReference<>();
+
+  /** Incremented by {@link #clear()}, invalidating all tasks scheduled in prior epochs. */
+  private final AtomicLong clearEpoch = new AtomicLong();
+
+  /** The time until which the scheduler thread is parked, or {@link Long#MIN_VALUE} if it is running. Tasks
+   *  that are due before this time must wake the thread. */
+  private volatile long parkedUntil = Long.MIN_VALUE;
+
+  /** Whether the scheduler thread should be running. */
+  private volatile boolean running = true;
+
+  /** Whether execution should be forced for all tasks (regarding of their scheduled time), pending and future. */
+  private volatile boolean forceExecute;
+
+  /** The executor to hand due tasks off to, or {@code null} if tasks are executed by the scheduler thread. */
+  private final Executor expiryExecutor;
+
+  private final LagStats lag = new LagStats();
+
+  public TimingWheelScheduler(String threadName, long tickNanos) {
+    this(threadName, tickNanos, null);
+  }
+
+  /**
+   *  Creates a new scheduler.
+   *
+   *  @param threadName The name of the scheduler thread.
+   *  @param tickNanos The duration of a tick, which determines the resolution of the scheduler.
+   *  @param expiryExecutor The executor to execute due tasks on, or {@code null} to execute them on
+   *                        the scheduler thread.
+   */
+  public TimingWheelScheduler(String threadName, long tickNanos, Executor expiryExecutor) {
+    super(threadName);
+    if (tickNanos <= 0) throw new IllegalArgumentException("Tick duration must be positive");
+    this.tickNanos = tickNanos;
+    this.expiryExecutor = expiryExecutor;
+    setDaemon(true);
+  }
+
+  @Override
+  public void clear() {
+    clearEpoch.incrementAndGet();
+    LockSupport.unpark(this);
+  }
+
+  @Override
+  public void terminate() throws InterruptedException {
+    running = false;
+    interrupt();
+    if (Thread.interrupted()) throw new InterruptedException();
+    join();
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      if (Thread.interrupted()) return;
+
+      final long wakeTime;
+      if (forceExecute) {
+        executeAll();
+        wakeTime = Long.MAX_VALUE;
+      } else {
+        wakeTime = advance();
+      }
+
+      park(wakeTime);
+    }
+  }
+
+  @Override
+  public void schedule(TimedTask task) {
+    final Node node = new Node(task, clearEpoch.get());
+    task.schedulerState = node;
+
+    Node head;
+    do {
+      head = scheduled.get();
+      node.nextScheduled = head;
+    } while (! scheduled.compareAndSet(head, node));
+
+    if (task.getTime() < parkedUntil) {
+      LockSupport.unpark(this);
+    }
+  }
+
+  @Override
+  public boolean abort(TimedTask task) {
+    final Object state = task.schedulerState;
+    if (! (state instanceof Node)) return false;
+    final Node node = (Node) state;
+    if (! STATE.compareAndSet(node, STATE_SCHEDULED, STATE_DONE)) return false;
+    if (node.epoch != clearEpoch.get()) return false;
+
+    Node head;
+    do {
+      head = aborted.get();
+      node.nextAborted = head;
+    } while (! aborted.compareAndSet(head, node));
+    return true;
+  }
+
+  @Override
+  public void forceExecute() {
+    forceExecute = true;
+    LockSupport.unpark(this);
+  }
+
+  @Override
+  public LagStats getLag() {
+    return lag;
+  }
+
+  /**
+   *  Parks the scheduler thread until the given time, unless tasks were scheduled in the meantime.
+   *
+   *  @param until The wake time, in absolute nanoseconds (see {@link System#nanoTime()}).
+   */
+  private void park(long until) {
+    parkedUntil = until;
+    if (scheduled.get() == null) {
+      final long parkNanos = until == Long.MAX_VALUE ? MAX_SLEEP_NANOS : Math.min(MAX_SLEEP_NANOS, until - System.nanoTime());
+      if (parkNanos > 0) {
+        LockSupport.parkNanos(this, parkNanos);
+      }
+    }
+    parkedUntil = Long.MIN_VALUE;
+  }
+
+  /**
+   *  Processes all ticks that have elapsed, executing the tasks that have come due.
+   *
+   *  @return The time when the wheel next needs to turn, in absolute nanoseconds, or {@link Long#MAX_VALUE}
+   *          if the wheel is empty.
+   */
+  private long advance() {
+    resetIfCleared();
+    final long currentTick = (System.nanoTime() - startTime) / tickNanos;
+    if (size == 0) {
+      // an empty wheel can skip straight to the current tick, rather than turning through the elapsed ones
+      tick = Math.max(tick, currentTick);
+    }
+
+    transferScheduled();
+    removeAborted();
+    while (tick <= currentTick && size != 0) {
+      processTick();
+      tick++;
+    }
+
+    return size == 0 ? Long.MAX_VALUE : startTime + nextTick() * tickNanos;
+  }
+
+  /**
+   *  Determines the next tick that needs processing, which is either the next occupied slot in the lowest
+   *  level, or the next time that a higher level must be cascaded, whichever is sooner.
+   *
+   *  @return The next tick.
+   */
+  private long nextTick() {
+    if ((tick & SLOT_MASK) == 0) return tick;
+
+    final long boundary = (tick | SLOT_MASK) + 1;
+    for (long t = tick; t < boundary; t++) {
+      if (slots[(int) t & SLOT_MASK] != null) return t;
+    }
+    return boundary;
+  }
+
+  private void processTick() {
+    for (int level = LEVELS - 1; level > 0; level--) {
+      final int shift = SLOT_BITS * level;
+      if ((tick & ((1l << shift) - 1)) == 0) {
+        cascade(level * SLOTS + ((int) (tick >>> shift) & SLOT_MASK));
+      }
+    }
+
+    final int slot = (int) tick & SLOT_MASK;
+    Node node = slots[slot];
+    slots[slot] = null;
+    while (node != null) {
+      final Node next = node.next;
+      detach(node);
+      size--;
+      if (node.deadline > tick) {
+        insert(node);
+      } else {
+        fire(node, false);
+      }
+      node = next;
+    }
+  }
+
+  /**
+   *  Re-inserts the tasks in the given slot of a higher level, moving them down the wheel.
+   *
+   *  @param slot The slot index.
+   */
+  private void cascade(int slot) {
+    Node node = slots[slot];
+    slots[slot] = null;
+    while (node != null) {
+      final Node next = node.next;
+      detach(node);
+      size--;
+      if (node.state == STATE_SCHEDULED) {
+        insert(node);
+      }
+      node = next;
+    }
+  }
+
+  private void fire(Node node, boolean forced) {
+    if (node.epoch == clearEpoch.get() && STATE.compareAndSet(node, STATE_SCHEDULED, STATE_DONE)) {
+      final TimedTask task = node.task;
+      if (expiryExecutor != null && ! forced) {
+        try {
+          expiryExecutor.execute(() -> executeAndRecord(task, false));
+          return;
+        } catch (RejectedExecutionException e) {}
+      }
+      executeAndRecord(task, forced);
+    }
+  }
+
+  private void executeAndRecord(TimedTask task, boolean forced) {
+    if (! forced) {
+      lag.record(System.nanoTime() - task.getTime());
+    }
+    task.execute();
+  }
+
+  private void executeAll() {
+    resetIfCleared();
+    transferScheduled();
+    removeAborted();
+    if (size == 0) return;
+
+    final List<Node> due = new ArrayList<>(size);
+    for (int slot = 0; slot < slots.length; slot++) {
+      Node node = slots[slot];
+      slots[slot] = null;
+      while (node != null) {
+        final Node next = node.next;
+        detach(node);
+        due.add(node);
+        node = next;
+      }
+    }
+    size = 0;
+
+    due.sort(TimingWheelScheduler::byTask);
+    for (Node node : due) {
+      fire(node, true);
+    }
+  }
+
+  private void transferScheduled() {
+    Node node = scheduled.getAndSet(null);
+    while (node != null) {
+      final Node next = node.nextScheduled;
+      node.nextScheduled = null;
+      if (node.epoch == epoch && node.state == STATE_SCHEDULED) {
+        node.deadline = deadlineTick(node.task.getTime());
+        insert(node);
+      }
+      node = next;
+    }
+  }
+
+  private void removeAborted() {
+    Node node = aborted.getAndSet(null);
+    while (node != null) {
+      final Node next = node.nextAborted;
+      node.nextAborted = null;
+      if (node.slot != -1) {
+        unlink(node);
+        size--;
+      }
+      node = next;
+    }
+  }
+
+  /**
+   *  Empties the wheel if {@link #clear()} has been called since the wheel was last emptied.
+   */
+  private void resetIfCleared() {
+    final long clearEpoch = this.clearEpoch.get();
+    if (clearEpoch != epoch) {
+      for (int slot = 0; slot < slots.length; slot++) {
+        Node node = slots[slot];
+        slots[slot] = null;
+        while (node != null) {
+          final Node next = node.next;
+          detach(node);
+          node = next;
+        }
+      }
+      size = 0;
+      epoch = clearEpoch;
+    }
+  }
+
+  /**
+   *  Obtains the earliest tick at which a task scheduled for the given time may be executed.
+   *
+   *  @param time The scheduled time, in absolute nanoseconds (see {@link System#nanoTime()}).
+   *  @return The deadline tick.
+   */
+  private long deadlineTick(long time) {
+    final long offset = time - startTime;
+    if (offset <= 0) return 0;
+    final long ticks = offset / tickNanos;
+    return offset % tickNanos == 0 ? ticks : ticks + 1;
+  }
+
+  private void insert(Node node) {
+    final long placement = Math.min(Math.max(node.deadline, tick), tick + MAX_SPAN - 1);
+    final long delta = placement - tick;
+    int level = 0;
+    while (delta >= 1l << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+
+    final int slot = level * SLOTS + ((int) (placement >>> (SLOT_BITS * level)) & SLOT_MASK);
+    final Node head = slots[slot];
+    node.next = head;
+    if (head != null) {
+      head.prev = node;
+    }
+    slots[slot] = node;
+    node.slot = slot;
+    size++;
+  }
+
+  private void unlink(Node node) {
+    if (node.prev != null) {
+      node.prev.next = node.next;
+    } else {
+      slots[node.slot] = node.next;
+    }
+    if (node.next != null) {
+      node.next.prev = node.prev;
+    }
+    detach(node);
+  }
+
+  private static void detach(Node node) {
+    node.prev = node.next = null;
+    node.slot = -1;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static int byTask(Node n1, Node n2) {
+    return n1.task.compareTo(n2.task);
+  }
+}
@@ -0,0 +1,286 @@
+package com.obsidiandynamics.indigo.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ *  An executor with a fixed set of worker threads, each consuming from its own queue. Tasks submitted
+ *  through {@link #execute(Runnable, int)} are hashed onto a worker by their affinity key, so that tasks
+ *  sharing a key (e.g. the successive turns of an actor) keep running on the same thread, and thereby
+ *  the same core, for as long as the operating system keeps the thread there. Tasks submitted without
+ *  a key run on the submitting worker, if submitted from within the executor, or on a randomly
+ *  chosen worker otherwise.<p>
+ *
+ *  With work stealing enabled, a worker that has run out of tasks takes queued tasks from other workers
+ *  before going idle, and an idle worker is woken whenever a task is queued behind a busy worker. This
+ *  trades some affinity for throughput when the load is unevenly spread across the keys.
+ */
+public final class AffinityExecutor extends AbstractExecutorService {
+  private static final int SPINS = 64;
+
+  private final Worker[] workers;
+
+  private final boolean stealing;
+
+  /** The number of workers that are idle (or about to go idle); only maintained when stealing. */
+  private final AtomicInteger idleWorkers = new AtomicInteger();
+
+  private final CountDownLatch terminated;
+
+  private volatile boolean shutdown;
+
+  private final class Worker extends Thread {
+    private final int index;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    /** Set before parking, and re-tested by producers after queuing a task. */
+    private volatile boolean idle;
+
+    /** Set once the worker has stopped taking tasks from its queue, following shutdown. */
+    private volatile boolean exited;
+
+    Worker(String name, int index) {
+      super(name + "-" + index);
+      this.index = index;
+    }
+
+    AffinityExecutor getExecutor() {
+      return AffinityExecutor.this;
+    }
+
+    void wake() {
+      if (idle) {
+        LockSupport.unpark(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (;;) {
+          Runnable task = take();
+          if (task == null) {
+            if (shutdown) break;
+            park();
+          } else {
+            runTask(task);
+          }
+        }
+
+        // a task queued concurrently with the exit is either run here, or reclaimed by its producer
+        exited = true;
+        for (Runnable task; (task = queue.poll()) != null;) {
+          runTask(task);
+        }
+      } finally {
+        terminated.countDown();
+      }
+    }
+
+    private Runnable take() {
+      for (int spins = 0; spins < SPINS; spins++) {
+        final Runnable task = queue.poll();
+        if (task != null) return task;
+
+        if (stealing) {
+          final Runnable stolen = steal();
+          if (stolen != null) return stolen;
+        }
+      }
+      return null;
+    }
+
+    private Runnable steal() {
+      for (int i = 1; i < workers.length; i++) {
+        final Runnable task = workers[(index + i) % workers.length].queue.poll();
+        if (task != null) return task;
+      }
+      return null;
+    }
+
+    private void park() {
+      idle = true;
+      if (stealing) idleWorkers.incrementAndGet();
+      // a task queued before the idle flag was raised is picked up here, before parking
+      if (queue.isEmpty() && ! (stealing && hasQueuedTasks()) && ! shutdown) {
+        LockSupport.park(this);
+      }
+      if (stealing) idleWorkers.decrementAndGet();
+      idle = false;
+    }
+
+    private void runTask(Runnable task) {
+      try {
+        task.run();
+      } catch (Throwable e) {
+        getUncaughtExceptionHandler().uncaughtException(this, e);
+      }
+    }
+  }
+
+  /**
+   *  Creates an executor with the given number of workers.
+   *
+   *  @param threads The number of worker threads, which are started immediately.
+   *  @param stealing Whether idle workers should steal tasks queued on busy workers.
+   */
+  public AffinityExecutor(int threads, boolean stealing) {
+    this(threads, stealing, "AffinityExecutor");
+  }
+
+  public AffinityExecutor(int threads, boolean stealing, String threadName) {
+    if (threads < 1) throw new IllegalArgumentException("Number of threads must be at least 1");
+    this.stealing = stealing;
+    terminated = new CountDownLatch(threads);
+    workers = new Worker[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Worker(threadName, i);
+    }
+    for (Worker worker : workers) {
+      worker.start();
+    }
+  }
+
+  public int getThreads() {
+    return workers.length;
+  }
+
+  public boolean isStealing() {
+    return stealing;
+  }
+
+  /**
+   *  Obtains the index of the worker that tasks with the given affinity key are queued on.
+   *
+   *  @param affinity The affinity key.
+   *  @return The worker index.
+   */
+  public int workerOf(int affinity) {
+    final int spread = affinity ^ (affinity >>> 16);
+    return Math.floorMod(spread, workers.length);
+  }
+
+  /**
+   *  Executes a task on the worker assigned to the given affinity key.
+   *
+   *  @param command The task.
+   *  @param affinity The affinity key.
+   */
+  public void execute(Runnable command, int affinity) {
+    enqueue(workers[workerOf(affinity)], command);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    final Thread current = Thread.currentThread();
+    final Worker worker;
+    if (current instanceof Worker && ((Worker) current).getExecutor() == this) {
+      worker = (Worker) current;
+    } else {
+      worker = workers[ThreadLocalRandom.current().nextInt(workers.length)];
+    }
+    enqueue(worker, command);
+  }
+
+  private void enqueue(Worker worker, Runnable command) {
+    if (command == null) throw new NullPointerException();
+    if (shutdown) throw new RejectedExecutionException("Executor has been shut down");
+
+    worker.queue.add(command);
+    if (worker.exited && worker.queue.remove(command)) {
+      throw new RejectedExecutionException("Executor has been shut down");
+    }
+
+    if (worker.idle) {
+      worker.wake();
+    } else if (stealing && idleWorkers.get() != 0) {
+      wakeIdleWorker(worker.index);
+    }
+  }
+
+  private void wakeIdleWorker(int busyIndex) {
+    for (int i = 1; i < workers.length; i++) {
+      final Worker worker = workers[(busyIndex + i) % workers.length];
+      if (worker.idle) {
+        worker.wake();
+        return;
+      }
+    }
+  }
+
+  private boolean hasQueuedTasks() {
+    for (Worker worker : workers) {
+      if (! worker.queue.isEmpty()) return true;
+    }
+    return false;
+  }
+
+  /**
+   *  Determines whether there are any tasks queued on the worker assigned to the given affinity key,
+   *  in constant time.
+   *
+   *  @param affinity The affinity key.
+   *  @return True if the worker has queued tasks.
+   */
+  public boolean hasQueuedTasks(int affinity) {
+    return ! workers[workerOf(affinity)].queue.isEmpty();
+  }
+
+  /**
+   *  Obtains the number of tasks queued across all workers.
+   *
+   *  @return The number of queued tasks.
+   */
+  public int getQueuedTasks() {
+    int queued = 0;
+    for (Worker worker : workers) {
+      queued += worker.queue.size();
+    }
+    return queued;
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    for (Worker worker : workers) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown();
+    final List<Runnable> pending = new ArrayList<>();
+    for (Worker worker : workers) {
+      for (Runnable task; (task = worker.queue.poll()) != null;) {
+        pending.add(task);
+      }
+      worker.interrupt();
+    }
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return terminated.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return terminated.await(timeout, unit);
+  }
+
+  @Override
+  public String toString() {
+    return AffinityExecutor.class.getSimpleName() + " [threads=" + workers.length + ", stealing=" + stealing +
+        ", queuedTasks=" + getQueuedTasks() + ", shutdown=" + shutdown + ", terminated=" + isTerminated() + "]";
+  }
+}
@@ -0,0 +1,171 @@
+package com.obsidiandynamics.indigo.util;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ *  A concurrent histogram of non-negative <code>long</code> values, in the style of an HDR histogram.<p>
+ *
+ *  Values are grouped into log-linear buckets: each power of two is split into 32 equal sub-buckets,
+ *  so that a recorded value is resolved to within about 3% of its true value, with a constant memory
+ *  footprint regardless of the number of values recorded. Values of 2<sup>40</sup> and above are
+ *  clamped to the top bucket.<p>
+ *
+ *  To avoid contention between recording threads, the counts are striped across several arrays,
+ *  with each thread consistently mapped to one stripe. The stripes are only summed when taking
+ *  a {@link Snapshot}.
+ */
+public final class Histogram {
+  private static final int SUB_BUCKET_BITS = 5;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int MAX_EXPONENT = 39;
+
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private static final int MAX_STRIPES = 16;
+
+  private final int stripeMask;
+
+  private final AtomicLongArray counts;
+
+  private final LongAdder total = new LongAdder();
+
+  public Histogram() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public Histogram(int concurrency) {
+    final int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, concurrency) * 2 - 1));
+    stripeMask = stripes - 1;
+    counts = new AtomicLongArray(stripes * BUCKETS);
+  }
+
+  /**
+   *  Records a single value.
+   *
+   *  @param value The value; negative values are recorded as zero.
+   */
+  public void record(long value) {
+    record(value, 1);
+  }
+
+  /**
+   *  Records a value several times over.
+   *
+   *  @param value The value; negative values are recorded as zero.
+   *  @param count The number of times the value was observed.
+   */
+  public void record(long value, long count) {
+    final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+    counts.addAndGet(stripe * BUCKETS + bucketOf(value), count);
+    total.add(Math.max(0, value) * count);
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) Math.max(0, value);
+    }
+
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   *  Obtains the highest value that maps to the given bucket.
+   *
+   *  @param bucket The bucket index.
+   *  @return The highest equivalent value.
+   */
+  static long highestValueOf(int bucket) {
+    final int group = bucket >>> SUB_BUCKET_BITS;
+    if (group == 0) {
+      return bucket;
+    }
+
+    final int shift = group - 1;
+    final long lowest = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    return lowest + (1l << shift) - 1;
+  }
+
+  /**
+   *  Sums the stripes into a point-in-time view of the histogram. Values recorded concurrently
+   *  with this call may or may not be reflected in the snapshot.
+   *
+   *  @return The snapshot.
+   */
+  public Snapshot snapshot() {
+    final long[] buckets = new long[BUCKETS];
+    final int length = counts.length();
+    for (int i = 0; i < length; i++) {
+      buckets[i % BUCKETS] += counts.get(i);
+    }
+    return new Snapshot(buckets, total.sum());
+  }
+
+  public static final class Snapshot {
+    private final long[] buckets;
+
+    private final long count;
+
+    private final long total;
+
+    Snapshot(long[] buckets, long total) {
+      this.buckets = buckets;
+      this.total = total;
+      long count = 0;
+      for (long bucketCount : buckets) {
+        count += bucketCount;
+      }
+      this.count = count;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return count != 0 ? (double) total / count : 0;
+    }
+
+    /**
+     *  Obtains the value at or below which the given percentage of recorded values fall,
+     *  resolved to the highest value of the bucket in which the percentile lies.
+     *
+     *  @param percentile The percentile, in the range 0 to 100.
+     *  @return The value at the percentile, or 0 if no values were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (count == 0) return 0;
+
+      final long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+      long cumulative = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        cumulative += buckets[i];
+        if (cumulative >= target) {
+          return highestValueOf(i);
+        }
+      }
+      return getMax();
+    }
+
+    public long getMax() {
+      for (int i = buckets.length; --i >= 0;) {
+        if (buckets[i] != 0) return highestValueOf(i);
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return Snapshot.class.getSimpleName() + " [count=" + count + ", mean=" + getMean() +
+          ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) +
+          ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMax() + "]";
+    }
+  }
+}
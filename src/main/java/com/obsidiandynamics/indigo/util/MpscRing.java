@@ -0,0 +1,177 @@
+package com.obsidiandynamics.indigo.util;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ *  A bounded, preallocated, array-backed ring buffer that supports multiple concurrent producers
+ *  and a single consumer.<p>
+ *
+ *  Each slot carries a sequence number, which producers use to claim the slot and the consumer uses
+ *  to detect publication. The producer and consumer counters are padded to occupy their own cache
+ *  lines, so that producers contending on the tail do not invalidate the consumer's head (and vice versa).<p>
+ *
+ *  The consumer need not be the same thread throughout, provided that there is a <i>happens-before</i>
+ *  relationship between successive consumers.<p>
+ *
+ *  A ring may optionally be stamped, pairing each element with a <code>long</code> that is held in the
+ *  element's slot, saving the producer from having to wrap the element.
+ *
+ *  @param <E> The element type.
+ */
+public final class MpscRing<E> {
+  static class LhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+  }
+
+  static class Value extends LhsPadding {
+    protected volatile long value;
+  }
+
+  static final class PaddedCounter extends Value {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+  }
+
+  private static final AtomicLongFieldUpdater<Value> valueUpdater = AtomicLongFieldUpdater.newUpdater(Value.class, "value");
+
+  private final int capacity;
+
+  private final int mask;
+
+  private final Object[] elements;
+
+  private final AtomicLongArray sequences;
+
+  /** The stamps of the elements, by slot; {@code null} if the ring isn't stamped. */
+  private final long[] stamps;
+
+  /** The stamp of the element last returned by {@link #poll()}; only accessed by the consumer. */
+  private long polledStamp;
+
+  private final PaddedCounter producerIndex = new PaddedCounter();
+
+  private final PaddedCounter consumerIndex = new PaddedCounter();
+
+  /**
+   *  Creates a ring with at least the given capacity, rounded up to the next power of two.
+   *
+   *  @param minCapacity The minimum capacity.
+   */
+  public MpscRing(int minCapacity) {
+    this(minCapacity, false);
+  }
+
+  /**
+   *  Creates a ring with at least the given capacity, rounded up to the next power of two.
+   *
+   *  @param minCapacity The minimum capacity.
+   *  @param stamped Whether the elements are stamped.
+   */
+  public MpscRing(int minCapacity, boolean stamped) {
+    if (minCapacity < 1 || minCapacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+    }
+    capacity = Integer.highestOneBit(minCapacity - 1) << 1 | (minCapacity == 1 ? 1 : 0);
+    mask = capacity - 1;
+    elements = new Object[capacity];
+    sequences = new AtomicLongArray(capacity);
+    stamps = stamped ? new long[capacity] : null;
+    for (int i = 0; i < capacity; i++) {
+      sequences.lazySet(i, i);
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   *  Offers an element to the ring. This method may be called by any thread.
+   *
+   *  @param e The element to offer; must not be {@code null}.
+   *  @return True if the element was added, or false if the ring is full.
+   */
+  public boolean offer(E e) {
+    return offer(e, 0);
+  }
+
+  /**
+   *  Offers a stamped element to the ring. This method may be called by any thread.
+   *
+   *  @param e The element to offer; must not be {@code null}.
+   *  @param stamp The stamp, which is discarded if the ring isn't stamped.
+   *  @return True if the element was added, or false if the ring is full.
+   */
+  public boolean offer(E e, long stamp) {
+    for (;;) {
+      final long pos = producerIndex.value;
+      final int slot = (int) pos & mask;
+      final long seq = sequences.get(slot);
+      if (seq == pos) {
+        if (valueUpdater.compareAndSet(producerIndex, pos, pos + 1)) {
+          elements[slot] = e;
+          if (stamps != null) stamps[slot] = stamp;
+          sequences.lazySet(slot, pos + 1);
+          return true;
+        }
+      } else if (seq < pos) {
+        return false;
+      }
+      // otherwise another producer has claimed the slot in the meantime; try again
+    }
+  }
+
+  /**
+   *  Retrieves and removes the element at the head of the ring. This method may only be called by
+   *  the consumer.<p>
+   *
+   *  A {@code null} may be returned even if the ring is not empty, if the producer that has claimed
+   *  the head slot is yet to publish its element.
+   *
+   *  @return The head element, or {@code null} if no element has been published at the head.
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    final long pos = consumerIndex.value;
+    final int slot = (int) pos & mask;
+    if (sequences.get(slot) != pos + 1) {
+      return null;
+    }
+
+    final E e = (E) elements[slot];
+    elements[slot] = null;
+    if (stamps != null) polledStamp = stamps[slot];
+    sequences.lazySet(slot, pos + capacity);
+    valueUpdater.lazySet(consumerIndex, pos + 1);
+    return e;
+  }
+
+  /**
+   *  Obtains the stamp of the element last returned by {@link #poll()}. This method may only be called
+   *  by the consumer.
+   *
+   *  @return The stamp, or <code>0</code> if the ring isn't stamped.
+   */
+  public long getPolledStamp() {
+    return polledStamp;
+  }
+
+  /**
+   *  Determines whether the ring has at least one free slot. The result is only an approximation
+   *  in the presence of concurrent producers.
+   *
+   *  @return True if the ring has spare capacity.
+   */
+  public boolean hasCapacity() {
+    return producerIndex.value - consumerIndex.value < capacity;
+  }
+
+  /**
+   *  Obtains the number of claimed slots. The result is only an approximation in the presence of
+   *  concurrent producers and a concurrent consumer.
+   *
+   *  @return The approximate size.
+   */
+  public int size() {
+    return (int) Math.max(0, Math.min(capacity, producerIndex.value - consumerIndex.value));
+  }
+}
@@ -0,0 +1,110 @@
+package com.obsidiandynamics.indigo.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.ForkJoinPool.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ *  Parks waiting threads until a condition is met, relying on another party to {@link #release()}
+ *  the waiters whenever the condition may have changed in their favour.<p>
+ *
+ *  The releasing party must make its change visible (e.g. via an atomic or a lock) before calling
+ *  {@link #release()}, and a waiter re-tests the condition after registering itself, so that a
+ *  release cannot be lost.
+ */
+public final class ParkingLot {
+  private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+  /**
+   *  Blocks the calling thread until the given condition is met. The condition is evaluated
+   *  repeatedly until it returns {@code true}, and never again thereafter; it may therefore
+   *  have a side effect upon succeeding, such as acquiring a permit.<p>
+   *
+   *  Blocking is managed, so that a {@link ForkJoinPool} may compensate for the blocked worker.
+   *  Note: a fixed thread pool will not be expanded automatically.<p>
+   *
+   *  The wait is uninterruptible: an interrupt received while waiting is cleared, so that the
+   *  thread may continue to park, and restored once the condition has been met.
+   *
+   *  @param condition The condition to await.
+   */
+  public void await(BooleanSupplier condition) {
+    final Thread thread = Thread.currentThread();
+    final ManagedBlocker blocker = new ManagedBlocker() {
+      @Override public boolean block() {
+        waiters.add(thread);
+        final boolean met = condition.getAsBoolean();
+        if (! met) {
+          LockSupport.park(this);
+        }
+        waiters.remove(thread);
+        return met;
+      }
+
+      @Override public boolean isReleasable() {
+        return condition.getAsBoolean();
+      }
+    };
+    managedBlockUninterruptibly(blocker);
+  }
+
+  /**
+   *  Runs the given blocker via {@link ForkJoinPool#managedBlock(ManagedBlocker)}, clearing the 
+   *  calling thread's interrupt status each time the blocker unblocks, so that an interrupt can't 
+   *  cause the blocker to spin. The interrupt status is restored once the blocker is released.
+   *
+   *  @param blocker The blocker, which must not throw an {@link InterruptedException}.
+   */
+  public static void managedBlockUninterruptibly(ManagedBlocker blocker) {
+    final InterruptClearingBlocker clearing = new InterruptClearingBlocker(blocker);
+    boolean interrupted = false;
+    for (;;) {
+      try {
+        ForkJoinPool.managedBlock(clearing);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted || clearing.interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class InterruptClearingBlocker implements ManagedBlocker {
+    private final ManagedBlocker delegate;
+
+    /** Whether an interrupt was cleared after blocking. */
+    boolean interrupted;
+
+    InterruptClearingBlocker(ManagedBlocker delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public boolean block() throws InterruptedException {
+      final boolean released = delegate.block();
+      interrupted |= Thread.interrupted();
+      return released;
+    }
+
+    @Override public boolean isReleasable() {
+      return delegate.isReleasable();
+    }
+  }
+
+  public boolean hasWaiters() {
+    return ! waiters.isEmpty();
+  }
+
+  /**
+   *  Unparks all currently registered waiters, which will then re-test their conditions.
+   */
+  public void release() {
+    for (Thread waiter; (waiter = waiters.poll()) != null;) {
+      LockSupport.unpark(waiter);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.obsidiandynamics.indigo.util;
 
+import java.lang.invoke.*;
 import java.util.concurrent.*;
 import java.util.concurrent.ForkJoinPool.*;
 import java.util.function.*;
@@ -7,8 +8,36 @@ import java.util.function.*;
 import com.obsidiandynamics.indigo.util.JvmVersionProvider.*;
 
 public final class Threads {
+  /** Backs {@link #isVirtual(Thread)}; <code>null</code> on JVMs that predate virtual threads. */
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+  
   private Threads() {}
   
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+  
+  /**
+   *  Determines whether the given thread is a virtual thread. The check is looked up reflectively, so that 
+   *  this class remains loadable on JVMs that predate virtual threads, where it always yields false.
+   *  
+   *  @param thread The thread.
+   *  @return True if the thread is virtual.
+   */
+  public static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) return false;
+    
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+  
   public static void throttle(BooleanSupplier test, int tries, long penaltyMillis) {
     try {
       // If we throttle messages with insufficient threads in the pool, then poor throughput is possible
@@ -50,6 +79,37 @@ public final class Threads {
     return CappedForkJoinPool.isSafeFor(version) ? new CappedForkJoinPool(parallelism, null, true) : prestartedFixedThreadPool(parallelism);
   }
   
+  /**
+   *  Determines whether the given JVM version supports virtual threads, which became a final feature
+   *  in Java 21.
+   *  
+   *  @param version The JVM version.
+   *  @return True if virtual threads are supported.
+   */
+  public static boolean isVirtualThreadSupported(JvmVersion version) {
+    return version.major >= 21;
+  }
+  
+  /**
+   *  Creates an executor that starts a new virtual thread for each task. The executor is looked up 
+   *  reflectively, so that this class remains loadable on JVMs that predate virtual threads.
+   *  
+   *  @param version The JVM version.
+   *  @return The executor.
+   *  @throws UnsupportedOperationException If virtual threads aren't supported by the given JVM version.
+   */
+  public static ExecutorService virtualThreadPool(JvmVersion version) {
+    if (isVirtualThreadSupported(version)) {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new UnsupportedOperationException("Virtual threads cannot be used with this JVM", e);
+      }
+    } else {
+      throw new UnsupportedOperationException("Virtual threads cannot be used with this JVM version");
+    }
+  }
+  
   public static Thread asyncDaemon(Runnable r, String threadName) {
     final Thread t = new Thread(r, threadName);
     t.setDaemon(true);
@@ -3,6 +3,9 @@ package com.obsidiandynamics.indigo;
 import static com.obsidiandynamics.indigo.ActorSystemConfig.ExceptionHandlerChoice.*;
 import static junit.framework.TestCase.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import org.junit.*;
 
 import com.obsidiandynamics.indigo.util.*;
@@ -53,4 +56,37 @@ public final class ActivationApiTest implements TestSupport {
     })
     .drain(0);
   }
+  
+  /**
+   *  Tests an actor factory that activates other actors, which requires the factory to be called
+   *  without holding a lock on the activation map.
+   */
+  @Test
+  public void testActivateFromFactory() throws InterruptedException {
+    final int keys = 100;
+    final Set<ActorRef> received = new CopyOnWriteArraySet<>();
+    system
+    .on("inner").cue((a, m) -> received.add(a.self()))
+    .on(SINK).cue(() -> {
+      for (int i = 0; i < keys; i++) {
+        system.tell(ActorRef.of("inner", String.valueOf(i)));
+      }
+      return (a, m) -> {};
+    });
+    
+    system.tell(ActorRef.of(SINK));
+    system.drain(0);
+    assertEquals(keys, received.size());
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testActivateSelfFromFactory() {
+    system
+    .on(SINK).cue(() -> {
+      system.tell(ActorRef.of(SINK));
+      return (a, m) -> {};
+    });
+    
+    system.tell(ActorRef.of(SINK));
+  }
 }
@@ -0,0 +1,129 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.benchmark.*;
+import com.obsidiandynamics.indigo.util.*;
+import com.obsidiandynamics.threads.*;
+
+/**
+ *  Benchmarks the rate at which distinct actors can be activated upon first contact, with
+ *  several threads activating at once.
+ */
+public final class ActivationBenchmark implements TestSupport {
+  abstract static class Config implements Spec {
+    ExecutorChoice executorChoice = null;
+    int threads;
+    int refs;
+    boolean overlap;
+    LogConfig log;
+
+    @Override
+    public void init() {}
+
+    @Override
+    public LogConfig getLog() {
+      return log;
+    }
+
+    @Override
+    public String describe() {
+      return String.format("%d threads, %,d refs, %s",
+                           threads, refs, overlap ? "every thread activating every ref" : "refs partitioned among threads");
+    }
+
+    @Override
+    public Summary run() {
+      return new ActivationBenchmark().test(this);
+    }
+  }
+
+  @Test
+  public void testPartitioned() throws Exception {
+    new Config() {{
+      threads = Runtime.getRuntime().availableProcessors() * 2;
+      refs = 10_000;
+      overlap = false;
+      log = new LogConfig() {{
+        summary = stages = LOG;
+      }};
+    }}.test();
+  }
+
+  @Test
+  public void testOverlapping() throws Exception {
+    new Config() {{
+      threads = Runtime.getRuntime().availableProcessors() * 2;
+      refs = 10_000;
+      overlap = true;
+      log = new LogConfig() {{
+        summary = stages = LOG;
+      }};
+    }}.test();
+  }
+
+  private Summary test(Config c) {
+    final String SINK = "sink";
+    final AtomicInteger constructions = new AtomicInteger();
+
+    final ActorSystem system = new TestActorSystemConfig() {{
+      if (c.executorChoice != null) {
+        executor = c.executorChoice;
+      }
+      parallelism = c.threads;
+      reaperPeriodMillis = 0;
+    }}
+    .createActorSystem()
+    .on(SINK).cue(() -> {
+      constructions.incrementAndGet();
+      return (a, m) -> {};
+    });
+
+    final String[] keys = new String[c.refs];
+    for (int i = 0; i < c.refs; i++) {
+      keys[i] = String.valueOf(i);
+    }
+
+    // refs are created afresh for every message, so that activations are looked up rather than cached in the ref
+    if (c.log.stages) c.log.out.format("Starting timed run...\n");
+    final long took = TestSupport.took(
+      Parallel.blocking(c.threads, t -> {
+        if (c.overlap) {
+          // every thread visits the refs in the same order, racing the others to activate each one
+          for (int i = 0; i < c.refs; i++) {
+            system.tell(ActorRef.of(SINK, keys[i]));
+          }
+        } else {
+          for (int i = t; i < c.refs; i += c.threads) {
+            system.tell(ActorRef.of(SINK, keys[i]));
+          }
+        }
+      })
+    );
+
+    system.shutdownSilently();
+    assertEquals(c.refs, constructions.get());
+
+    final Summary summary = new Summary();
+    summary.timedOps = c.overlap ? (long) c.refs * c.threads : c.refs;
+    summary.avgTime = took;
+    return summary;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Config() {{
+      executorChoice = ActorSystemConfig.ExecutorChoice.FIXED_THREAD_POOL;
+      threads = Runtime.getRuntime().availableProcessors() * 2;
+      refs = 1_000_000;
+      overlap = false;
+      log = new LogConfig() {{
+        summary = true;
+      }};
+    }}.testPercentile(3, 5, 50, Summary::byThroughput);
+  }
+}
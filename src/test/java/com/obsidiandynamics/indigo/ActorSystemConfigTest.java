@@ -31,4 +31,40 @@ public final class ActorSystemConfigTest implements TestSupport {
       executor.shutdown();
     }
   }
+  
+  @Test
+  public void testAffinityExecutorFactory() {
+    final ExecutorParams params = new ExecutorParams(2, new JvmVersion(1, 8, 0, 65));
+    for (ActorSystemConfig.ExecutorChoice choice : new ActorSystemConfig.ExecutorChoice[] { 
+        ActorSystemConfig.ExecutorChoice.AFFINITY, ActorSystemConfig.ExecutorChoice.AFFINITY_STEALING }) {
+      final ExecutorService executor = choice.apply(params);
+      try {
+        assertTrue("executor.class=" + executor.getClass().getName(), executor instanceof AffinityExecutor);
+        assertEquals(2, ((AffinityExecutor) executor).getThreads());
+        assertEquals(choice == ActorSystemConfig.ExecutorChoice.AFFINITY_STEALING, ((AffinityExecutor) executor).isStealing());
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+  
+  @Test(expected=UnsupportedOperationException.class)
+  public void testVirtualThreadsExecutorFactoryUnsupported() {
+    final ExecutorParams params = new ExecutorParams(1, new JvmVersion(1, 8, 0, 65));
+    ActorSystemConfig.ExecutorChoice.VIRTUAL_THREADS.apply(params);
+  }
+  
+  @Test
+  public void testVirtualThreadsExecutorFactory() throws Exception {
+    final JvmVersion version = new JvmVersionProvider.DefaultProvider().get();
+    if (! Threads.isVirtualThreadSupported(version)) return;
+    
+    final ExecutorService executor = ActorSystemConfig.ExecutorChoice.VIRTUAL_THREADS.apply(new ExecutorParams(1, version));
+    try {
+      assertEquals(Boolean.TRUE, executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                   .get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
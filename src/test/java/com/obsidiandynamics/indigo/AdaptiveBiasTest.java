@@ -0,0 +1,152 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class AdaptiveBiasTest implements TestSupport {
+  private static final String BLOCK = "block";
+
+  private ActorSystem system;
+
+  @After
+  public void teardown() {
+    if (system != null) system.shutdownSilently();
+  }
+
+  private void createSystem(ExecutorChoice executorChoice) {
+    if (system != null) system.shutdownSilently();
+    system = new TestActorSystemConfig() {{
+      parallelism = 1;
+      executor = executorChoice;
+    }}.createActorSystem();
+  }
+
+  private void drain() {
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  private static ActorConfig config(ActivationChoice choice, int maxTurns) {
+    return new ActorConfig() {{
+      activationFactory = choice;
+      bias = 1;
+      maxBias = maxTurns;
+    }};
+  }
+
+  /**
+   *  Registers an actor that records the highest bias observed while processing its messages, blocking on
+   *  the first message while its backlog builds up.
+   *
+   *  @param role The role.
+   *  @param actorConfig The actor configuration.
+   *  @param blocked Counted down once the actor has blocked.
+   *  @param release Awaited by the blocked actor.
+   *  @param received Counts the processed messages.
+   *  @return The highest bias observed.
+   */
+  private AtomicInteger registerBacklogged(String role, ActorConfig actorConfig, CountDownLatch blocked,
+                                           CountDownLatch release, AtomicInteger received) {
+    final AtomicInteger maxObserved = new AtomicInteger();
+    system.on(role).withConfig(actorConfig).cue((a, m) -> {
+      if (BLOCK.equals(m.body())) {
+        blocked.countDown();
+        TestSupport.await(release);
+      } else {
+        received.incrementAndGet();
+        maxObserved.accumulateAndGet(a.getBias(), Math::max);
+      }
+    });
+    return maxObserved;
+  }
+
+  private int runAlone(ExecutorChoice executorChoice, ActorConfig actorConfig, int n) {
+    createSystem(executorChoice);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger received = new AtomicInteger();
+    final AtomicInteger maxObserved = registerBacklogged("solo", actorConfig, blocked, release, received);
+    system.tell(ActorRef.of("solo"), BLOCK);
+    TestSupport.await(blocked);
+    for (int i = 0; i < n; i++) {
+      system.tell(ActorRef.of("solo"), i);
+    }
+    release.countDown();
+    drain();
+    assertEquals(n, received.get());
+    return maxObserved.get();
+  }
+
+  /**
+   *  Tests that the bias of a backlogged actor grows to its upper bound when no other tasks are waiting.
+   */
+  @Test
+  public void testGrowWhenAlone() {
+    for (ExecutorChoice executorChoice : new ExecutorChoice[] { ExecutorChoice.FIXED_THREAD_POOL,
+                                                                ExecutorChoice.FORK_JOIN_POOL,
+                                                                ExecutorChoice.AFFINITY }) {
+      for (ActivationChoice choice : ActivationChoice.values()) {
+        assertEquals(executorChoice + "/" + choice, 64, runAlone(executorChoice, config(choice, 64), 1_000));
+      }
+    }
+  }
+
+  @Test
+  public void testFixedBias() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      assertEquals(choice.toString(), 1, runAlone(ExecutorChoice.FIXED_THREAD_POOL, config(choice, 0), 1_000));
+    }
+  }
+
+  /**
+   *  Tests that the bias of two backlogged actors sharing a single thread stays at its lower bound, as each
+   *  actor finds the other waiting at the end of every run.
+   */
+  @Test
+  public void testStayLowWhenContended() {
+    for (ExecutorChoice executorChoice : new ExecutorChoice[] { ExecutorChoice.FIXED_THREAD_POOL, ExecutorChoice.AFFINITY }) {
+      for (ActivationChoice choice : ActivationChoice.values()) {
+        createSystem(executorChoice);
+        final int n = 1_000;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        final List<AtomicInteger> maxObserved = Arrays.asList(
+            registerBacklogged("a", config(choice, 64), blocked, release, received),
+            registerBacklogged("b", config(choice, 64), blocked, release, received));
+
+        system.tell(ActorRef.of("a"), BLOCK);
+        TestSupport.await(blocked);
+        for (int i = 0; i < n; i++) {
+          system.tell(ActorRef.of("a"), i);
+          system.tell(ActorRef.of("b"), i);
+        }
+        release.countDown();
+        drain();
+        assertEquals(2 * n, received.get());
+        assertEquals(executorChoice + "/" + choice, 1, maxObserved.get(0).get());
+        assertEquals(executorChoice + "/" + choice, 1, maxObserved.get(1).get());
+      }
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testMaxBiasBelowBias() {
+    createSystem(ExecutorChoice.FIXED_THREAD_POOL);
+    system.on("a").withConfig(new ActorConfig() {{
+      bias = 4;
+      maxBias = 2;
+    }})
+    .cue((a, m) -> {});
+  }
+}
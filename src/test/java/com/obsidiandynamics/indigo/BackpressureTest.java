@@ -0,0 +1,141 @@
+package com.obsidiandynamics.indigo;
+
+import static java.util.concurrent.TimeUnit.*;
+import static junit.framework.TestCase.*;
+import static org.awaitility.Awaitility.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+public final class BackpressureTest implements TestSupport {
+  private static final String SINK = "sink";
+
+  private static ActorSystem createActorSystem(int capacity, boolean parking) {
+    return new TestActorSystemConfig() {{
+      defaultActorConfig = new ActorConfig() {{
+        backlogThrottleCapacity = capacity;
+        backlogParking = parking;
+        backlogLowWatermark = 0;
+        
+        // a ring enforces its capacity in place of the backlog throttle
+        ringCapacity = capacity;
+      }};
+    }}
+    .createActorSystem();
+  }
+
+  private static List<Integer> sequence(int runs) {
+    final List<Integer> sequence = new ArrayList<>(runs);
+    for (int i = 0; i < runs; i++) sequence.add(i);
+    return sequence;
+  }
+
+  /**
+   *  Tests that producers are parked while the backlog is at capacity, and are woken once it
+   *  drains, without the backlog ever overshooting the capacity.
+   */
+  @Test
+  public void testParking() {
+    final int capacity = 4;
+    final int runs = 20;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Integer> received = new CopyOnWriteArrayList<>();
+    final AtomicInteger sent = new AtomicInteger();
+
+    final ActorSystem system = createActorSystem(capacity, true)
+    .on(SINK).cue((a, m) -> {
+      TestSupport.await(start);
+      received.add(m.body());
+    });
+
+    final Thread producer = new Thread(() -> {
+      for (int i = 0; i < runs; i++) {
+        system.tell(ActorRef.of(SINK), i);
+        sent.incrementAndGet();
+      }
+    }, "BackpressureTestProducer");
+    producer.start();
+
+    // the message being processed by the blocked sink may or may not count towards the backlog
+    await().atMost(10, SECONDS).until(() -> sent.get() >= capacity);
+    TestSupport.sleep(10);
+    assertTrue("sent=" + sent.get(), sent.get() <= capacity + 1);
+
+    start.countDown();
+    try {
+      producer.join();
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+    system.shutdownSilently();
+
+    assertEquals(sequence(runs), received);
+  }
+
+  /**
+   *  Tests that an actor can send more messages to itself than its backlog capacity when parking
+   *  is enabled.
+   */
+  @Test
+  public void testParkingSelfExempt() {
+    final int runs = 10;
+    final AtomicInteger received = new AtomicInteger();
+
+    createActorSystem(2, true)
+    .on(SINK).cue((a, m) -> {
+      if ("start".equals(m.body())) {
+        for (int i = 0; i < runs; i++) {
+          a.toSelf().tell(i);
+        }
+      } else {
+        received.incrementAndGet();
+      }
+    })
+    .ingress(a -> a.to(ActorRef.of(SINK)).tell("start"))
+    .shutdownSilently();
+
+    assertEquals(runs, received.get());
+  }
+
+  @Test
+  public void testTrySendThrottling() {
+    testTrySend(false);
+  }
+
+  @Test
+  public void testTrySendParking() {
+    testTrySend(true);
+  }
+
+  /**
+   *  Tests that a non-blocking send reports that it would block once the backlog is at capacity,
+   *  and that every accepted message is delivered.
+   */
+  private void testTrySend(boolean parking) {
+    final int capacity = 4;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Integer> received = new CopyOnWriteArrayList<>();
+
+    final ActorSystem system = createActorSystem(capacity, parking)
+    .on(SINK).cue((a, m) -> {
+      TestSupport.await(start);
+      received.add(m.body());
+    });
+
+    int accepted = 0;
+    while (system.tryTell(ActorRef.of(SINK), accepted)) {
+      accepted++;
+      assertTrue("accepted=" + accepted, accepted <= capacity + 1);
+    }
+    assertTrue("accepted=" + accepted, accepted >= capacity);
+    assertFalse(system.tryTell(ActorRef.of(SINK), accepted));
+
+    start.countDown();
+    system.shutdownSilently();
+
+    assertEquals(sequence(accepted), received);
+  }
+}
@@ -0,0 +1,226 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class BatchDrainTest implements IndigoTestSupport {
+  private static final String SINK = "sink";
+  private static final String BLOCK = "block";
+  private static final String UNSTASH = "unstash";
+
+  private static final class BatchingActor implements BatchActor {
+    final List<Integer> sequence = new CopyOnWriteArrayList<>();
+
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void act(Activation a, Message m) {
+      fail("act() should not be called in batch drain mode");
+    }
+
+    @Override
+    public void actBatch(Activation a, List<Message> messages) {
+      batchSizes.add(messages.size());
+      for (Message m : messages) {
+        sequence.add(m.body());
+        a.reply(m).tell(m.body());
+      }
+    }
+  }
+
+  private static ActorSystem createActorSystem() {
+    return createActorSystem(ActivationChoice.NODE_QUEUE);
+  }
+
+  private static ActorSystem createActorSystem(ActivationChoice choice) {
+    return new TestActorSystemConfig() {{
+      exceptionHandler = TestException.BYPASS_DRAIN_HANDLER;
+      defaultActorConfig = new ActorConfig() {{
+        activationFactory = choice;
+        batchDrain = true;
+        bias = 10;
+      }};
+    }}
+    .createActorSystem();
+  }
+
+  /**
+   *  Blocks the sink on its first message while the given messages queue up behind it, then releases
+   *  the sink and waits for the backlog to drain.
+   *
+   *  @param system The actor system.
+   *  @param blocked Counted down by the sink once it has blocked.
+   *  @param release Awaited by the blocked sink.
+   *  @param bodies The message bodies to queue.
+   */
+  private static void sendBacklog(ActorSystem system, CountDownLatch blocked, CountDownLatch release, Object... bodies) {
+    system.tell(ActorRef.of(SINK), BLOCK);
+    TestSupport.await(blocked);
+    for (Object body : bodies) {
+      system.tell(ActorRef.of(SINK), body);
+    }
+    release.countDown();
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  @Test
+  public void testOrder() {
+    final int runs = 1_000;
+    final BatchingActor actor = new BatchingActor();
+
+    createActorSystem()
+    .on(SINK).cue(() -> actor)
+    .ingress(a -> {
+      for (int i = 0; i < runs; i++) a.to(ActorRef.of(SINK)).tell(i);
+    })
+    .shutdownSilently();
+
+    final List<Integer> expected = new ArrayList<>(runs);
+    for (int i = 0; i < runs; i++) expected.add(i);
+    assertEquals(expected, actor.sequence);
+
+    int total = 0;
+    for (int batchSize : actor.batchSizes) total += batchSize;
+    assertEquals(runs, total);
+  }
+
+  @Test
+  public void testRequestResponse() {
+    final int runs = 100;
+    final BatchingActor actor = new BatchingActor();
+    final Set<Integer> responses = new CopyOnWriteArraySet<>();
+
+    createActorSystem()
+    .on(SINK).cue(() -> actor)
+    .ingress(a -> {
+      for (int i = 0; i < runs; i++) {
+        a.to(ActorRef.of(SINK)).ask(i).onResponse(r -> responses.add(r.body()));
+      }
+    })
+    .shutdownSilently();
+
+    assertEquals(runs, responses.size());
+  }
+
+  @Test
+  public void testFault() {
+    final int runs = 100;
+    final ActorSystem system = new TestActorSystemConfig() {{
+      exceptionHandler = TestException.BYPASS_DRAIN_HANDLER;
+      defaultActorConfig = new ActorConfig() {{
+        batchDrain = true;
+      }};
+    }}
+    .createActorSystem()
+    .on(SINK).cue(() -> new BatchActor() {
+      @Override public void act(Activation a, Message m) {}
+
+      @Override public void actBatch(Activation a, List<Message> messages) {
+        throw new TestException("Batch fault");
+      }
+    })
+    .ingress(a -> {
+      for (int i = 0; i < runs; i++) a.to(ActorRef.of(SINK)).tell(i);
+    });
+    system.shutdownSilently();
+
+    assertEquals(runs, IndigoTestSupport.countFaults(FaultType.ON_ACT, system.getDeadLetterQueue()));
+  }
+
+  @Test
+  public void testBatchDelivered() {
+    final Object[] bodies = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+      final ActorSystem system = createActorSystem(choice)
+      .on(SINK).cue(() -> new BatchActor() {
+        @Override public void act(Activation a, Message m) {
+          fail("act() should not be called in batch drain mode");
+        }
+
+        @Override public void actBatch(Activation a, List<Message> messages) {
+          batchSizes.add(messages.size());
+          if (BLOCK.equals(messages.get(0).body())) {
+            blocked.countDown();
+            TestSupport.await(release);
+          }
+        }
+      });
+      sendBacklog(system, blocked, release, bodies);
+      system.shutdownSilently();
+
+      // the backlog that built up while the sink was blocked is delivered in one batch
+      assertEquals(choice.toString(), Arrays.asList(1, bodies.length), batchSizes);
+    }
+  }
+
+  /**
+   *  Tests that an actor that doesn't act on batches sees the effect of a stash requested mid-way
+   *  through a drained backlog on the very next message.
+   */
+  @Test
+  public void testStashMidBatch() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Object> received = new CopyOnWriteArrayList<>();
+      final ActorSystem system = createActorSystem(choice)
+      .on(SINK).cue((a, m) -> {
+        received.add(m.body());
+        if (BLOCK.equals(m.body())) {
+          blocked.countDown();
+          TestSupport.await(release);
+        } else if (UNSTASH.equals(m.body())) {
+          a.unstash();
+        } else if (m.body().equals(2)) {
+          a.stash(s -> ! UNSTASH.equals(s.body()));
+        }
+      });
+      sendBacklog(system, blocked, release, 0, 1, 2, 3, 4, UNSTASH);
+      system.shutdownSilently();
+
+      assertEquals(choice.toString(), Arrays.asList(BLOCK, 0, 1, 2, UNSTASH, 3, 4), received);
+    }
+  }
+
+  /**
+   *  Tests that an actor that doesn't act on batches faults only on the offending message of a drained 
+   *  backlog, and goes on to act on the remaining messages.
+   */
+  @Test
+  public void testFaultMidBatch() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Object> received = new CopyOnWriteArrayList<>();
+      final ActorSystem system = createActorSystem(choice)
+      .on(SINK).cue((a, m) -> {
+        if (BLOCK.equals(m.body())) {
+          blocked.countDown();
+          TestSupport.await(release);
+        } else if (m.body().equals(2)) {
+          throw new TestException("Fault on 2");
+        } else {
+          received.add(m.body());
+        }
+      });
+      sendBacklog(system, blocked, release, 0, 1, 2, 3, 4);
+      system.shutdownSilently();
+
+      assertEquals(choice.toString(), Arrays.asList(0, 1, 3, 4), received);
+      assertEquals(choice.toString(), 1, IndigoTestSupport.countFaults(FaultType.ON_ACT, system.getDeadLetterQueue()));
+      assertEquals(choice.toString(), 2, (int) system.getDeadLetterQueue().iterator().next().getOriginalMessage().body());
+    }
+  }
+}
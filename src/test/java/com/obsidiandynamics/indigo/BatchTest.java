@@ -0,0 +1,201 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.metrics.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class BatchTest implements TestSupport {
+  private static final String SINK = "sink";
+
+  private ActorSystem system;
+
+  @Before
+  public void setup() {
+    system = new TestActorSystemConfig() {}.createActorSystem();
+  }
+
+  @After
+  public void teardown() {
+    system.shutdownSilently();
+  }
+
+  private void drain() {
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  private Map<ActorRef, List<Integer>> registerSink(ActorConfig actorConfig) {
+    final Map<ActorRef, List<Integer>> received = new ConcurrentHashMap<>();
+    system.on(SINK).withConfig(actorConfig).cue(() -> IndigoTestSupport.batchActor((a, m) -> {
+      received.computeIfAbsent(a.self(), ref -> Collections.synchronizedList(new ArrayList<>())).add(m.body());
+    }));
+    return received;
+  }
+
+  private static List<Integer> range(int n) {
+    final List<Integer> list = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) list.add(i);
+    return list;
+  }
+
+  private void testOrderedPerTarget(ActorConfig actorConfig) {
+    final int actors = 10;
+    final int n = 100;
+    final Map<ActorRef, List<Integer>> received = registerSink(actorConfig);
+
+    final BatchBuilder batch = system.batch();
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < actors; j++) {
+        batch.tell(ActorRef.of(SINK, String.valueOf(j)), i);
+      }
+    }
+    assertEquals(actors * n, batch.size());
+    batch.send();
+    assertEquals(0, batch.size());
+    drain();
+
+    assertEquals(actors, received.size());
+    for (List<Integer> bodies : received.values()) {
+      assertEquals(range(n), bodies);
+    }
+  }
+
+  @Test
+  public void testOrderedPerTarget() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      testOrderedPerTarget(new ActorConfig() {{
+        activationFactory = choice;
+      }});
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test
+  public void testOrderedPerTargetBatchDrain() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      testOrderedPerTarget(new ActorConfig() {{
+        activationFactory = choice;
+        batchDrain = true;
+      }});
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test
+  public void testOrderedPerTargetPooledNodes() {
+    testOrderedPerTarget(new ActorConfig() {{
+      activationFactory = ActivationChoice.NODE_QUEUE;
+      poolNodes = true;
+    }});
+  }
+
+  /**
+   *  Tests a batch larger than the backlog capacity, which is enqueued in its entirety when throttling,
+   *  and one message at a time when parking.
+   */
+  @Test
+  public void testOverCapacity() {
+    for (ActivationChoice choice : new ActivationChoice[] { ActivationChoice.NODE_QUEUE, ActivationChoice.SYNC_QUEUE }) {
+      for (boolean parking : new boolean[] { false, true }) {
+        final int n = 100;
+        final Map<ActorRef, List<Integer>> received = registerSink(new ActorConfig() {{
+          activationFactory = choice;
+          backlogThrottleCapacity = 10;
+          backlogThrottleTries = 1;
+          backlogParking = parking;
+        }});
+
+        system.batch().tellAll(ActorRef.of(SINK), range(n)).send();
+        drain();
+        assertEquals(range(n), received.get(ActorRef.of(SINK)));
+        system.shutdownSilently();
+        setup();
+      }
+    }
+  }
+
+  /**
+   *  Tests batches sent to an ephemeral actor, which is disposed of after each turn. A batch that lands
+   *  on a disposed activation is resent to a fresh one.
+   */
+  @Test
+  public void testEphemeral() {
+    final int batches = 100;
+    final int n = 10;
+    final AtomicInteger received = new AtomicInteger();
+    system.on(SINK).withConfig(new ActorConfig() {{
+      ephemeral = true;
+    }})
+    .cue((a, m) -> received.incrementAndGet());
+
+    for (int i = 0; i < batches; i++) {
+      system.batch().tellAll(ActorRef.of(SINK), range(n)).send();
+    }
+    drain();
+    assertEquals(batches * n, received.get());
+  }
+
+  @Test
+  public void testSendAll() {
+    final Map<ActorRef, List<Integer>> received = registerSink(new ActorConfig());
+    final List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(Message.builder().to(ActorRef.of(SINK, String.valueOf(i % 2))).body(i).build());
+    }
+    system.sendAll(messages);
+    drain();
+    assertEquals(Arrays.asList(0, 2, 4, 6, 8), received.get(ActorRef.of(SINK, "0")));
+    assertEquals(Arrays.asList(1, 3, 5, 7, 9), received.get(ActorRef.of(SINK, "1")));
+  }
+
+  @Test
+  public void testEmpty() {
+    registerSink(new ActorConfig());
+    system.batch().send();
+    drain();
+  }
+
+  @Test
+  public void testIngressBatch() {
+    final int n = 1_000;
+    final Set<Integer> iterations = ConcurrentHashMap.newKeySet();
+    final Set<ActorRef> ingressRefs = ConcurrentHashMap.newKeySet();
+    system.ingress().times(n).batch().act((a, i) -> {
+      iterations.add(i);
+      ingressRefs.add(a.self());
+    });
+    drain();
+
+    assertEquals(n, iterations.size());
+    assertEquals(Math.min(n, system.getConfig().getIngressCount()), ingressRefs.size());
+  }
+
+  @Test
+  public void testMetrics() {
+    system.shutdownSilently();
+    system = new TestActorSystemConfig() {{
+      metricsSink = MetricsSinkChoice.JMX;
+      messageTiming = false;
+    }}.createActorSystem();
+    registerSink(new ActorConfig());
+
+    final int n = 100;
+    system.batch().tellAll(ActorRef.of(SINK), range(n)).send();
+    drain();
+    final RoleMetrics metrics = ((JmxMetricsSink) system.getMetricsSink()).getRole(SINK);
+    assertEquals(n, metrics.getMessages());
+    assertEquals(0, metrics.getMailboxDepth());
+  }
+}
@@ -3,6 +3,9 @@ package com.obsidiandynamics.indigo;
 import com.obsidiandynamics.indigo.benchmark.*;
 
 /**
+ *  Each benchmark is checked against the baseline in build/benchmark-history; pass
+ *  -Dindigo.benchmark.updateBaseline=true to record a new baseline.<p>
+ *  
  *  Run with -server -XX:+TieredCompilation -XX:+UseNUMA -XX:+UseCondCardMark -XX:-UseBiasedLocking -Xms1024M -Xmx2048M -Xss1M -XX:+UseParallelGC
  */
 public final class BenchmarkSuite {
@@ -20,7 +23,30 @@ public final class BenchmarkSuite {
       warmupFrac = .05f;
       bias = 10_000;
       log = LOG;
-    }}.testPercentile(9, 21, 50, Summary::byThroughput);
+    }}.testPercentile(9, 21, 50, Summary::byThroughput, new RegressionGuard("external-burst"));
+
+    System.out.println("_\nExternal messages - burst throughput (pooled nodes)");
+    new ThroughputBenchmark.Config() {{
+      executorChoice = ActorSystemConfig.ExecutorChoice.FIXED_THREAD_POOL; 
+      threads = Runtime.getRuntime().availableProcessors() * 1;
+      actors = threads * 1;
+      n = 10_000_000;
+      warmupFrac = .05f;
+      bias = 10_000;
+      poolNodes = true;
+      log = LOG;
+    }}.testPercentile(9, 21, 50, Summary::byThroughput, new RegressionGuard("external-burst-pooled"));
+
+    System.out.println("_\nExternal messages - burst throughput (affinity dispatcher)");
+    new ThroughputBenchmark.Config() {{
+      executorChoice = ActorSystemConfig.ExecutorChoice.AFFINITY; 
+      threads = Runtime.getRuntime().availableProcessors() * 1;
+      actors = threads * 1;
+      n = 10_000_000;
+      warmupFrac = .05f;
+      bias = 10_000;
+      log = LOG;
+    }}.testPercentile(9, 21, 50, Summary::byThroughput, new RegressionGuard("external-burst-affinity"));
 
     System.out.println("_\nMessage echo - low latency (one hop measured)");
     new EchoBenchmark.Config() {{
@@ -35,7 +61,7 @@ public final class BenchmarkSuite {
       stats = true;
       statsSync = true;
       statsSamples = 1_000;
-    }}.testPercentile(3, 5, 50, Summary::byLatency);
+    }}.testPercentile(3, 5, 50, Summary::byLatency, new RegressionGuard("echo-latency"));
     
     System.out.println("_\nMessage echo - sustained throughput");
     new EchoBenchmark.Config() {{
@@ -50,7 +76,7 @@ public final class BenchmarkSuite {
       stats = false;
       statsSync = true;
       statsSamples = 1_000;
-    }}.testPercentile(1, 3, 50, Summary::byThroughput);
+    }}.testPercentile(1, 3, 50, Summary::byThroughput, new RegressionGuard("echo-throughput"));
     
     System.out.println("_\nMessage pairs - low latency (round-trip measured)");
     new RequestResponseBenchmark.Config() {{
@@ -66,7 +92,7 @@ public final class BenchmarkSuite {
       stats = true;
       statsSync = true;
       statsSamples = 1_000;
-    }}.testPercentile(3, 5, 50, Summary::byLatency);
+    }}.testPercentile(3, 5, 50, Summary::byLatency, new RegressionGuard("pairs-latency"));
     
     System.out.println("_\nMessage pairs - sustained throughput");
     new RequestResponseBenchmark.Config() {{
@@ -82,6 +108,15 @@ public final class BenchmarkSuite {
       stats = false;
       statsSync = true;
       statsSamples = 1_000;
-    }}.testPercentile(1, 3, 50, Summary::byThroughput);
+    }}.testPercentile(1, 3, 50, Summary::byThroughput, new RegressionGuard("pairs-throughput"));
+    
+    System.out.println("_\nActivation - burst of distinct refs");
+    new ActivationBenchmark.Config() {{
+      executorChoice = ActorSystemConfig.ExecutorChoice.FIXED_THREAD_POOL;
+      threads = Runtime.getRuntime().availableProcessors() * 2;
+      refs = 1_000_000;
+      overlap = false;
+      log = LOG;
+    }}.testPercentile(3, 5, 50, Summary::byThroughput, new RegressionGuard("activation-burst"));
   }
 }
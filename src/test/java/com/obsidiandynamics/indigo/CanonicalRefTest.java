@@ -0,0 +1,137 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+public final class CanonicalRefTest implements TestSupport {
+  private static final String SINK = "sink";
+
+  private ActorSystem system;
+
+  @Before
+  public void setup() {
+    system = new TestActorSystemConfig() {}.createActorSystem();
+  }
+
+  @After
+  public void teardown() {
+    system.shutdownSilently();
+  }
+
+  private void drain() {
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  @Test
+  public void testSameInstance() {
+    final ActorRef ref = system.ref(SINK, "key");
+    assertSame(ref, system.ref(SINK, "key"));
+    assertSame(system.ref(SINK), system.ref(SINK));
+    assertNotSame(ref, system.ref(SINK, "other"));
+    assertEquals(ActorRef.of(SINK, "key"), ref);
+  }
+
+  @Test
+  public void testAdoptedByActivation() {
+    final Set<ActorRef> selves = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    system.on(SINK).cue((a, m) -> selves.add(a.self()));
+
+    final ActorRef ref = system.ref(SINK, "key");
+    system.tell(ref);
+    system.tell(ActorRef.of(SINK, "key"));
+    drain();
+
+    assertEquals(1, selves.size());
+    assertSame(ref, selves.iterator().next());
+    assertNotNull(ref.getCachedActivation());
+  }
+
+  @Test
+  public void testInvalidatedOnDisposal() {
+    final AtomicInteger activations = new AtomicInteger();
+    system.on(SINK).withConfig(new ActorConfig() {{
+      ephemeral = true;
+    }})
+    .cue(() -> {
+      activations.incrementAndGet();
+      return (a, m) -> {};
+    });
+
+    final ActorRef ref = system.ref(SINK, "key");
+    system.tell(ref);
+    drain();
+    assertEquals(1, activations.get());
+    assertNull(ref.getCachedActivation());
+
+    system.tell(ref);
+    drain();
+    assertEquals(2, activations.get());
+  }
+
+  @Test
+  public void testStaleUncanonicalRef() {
+    final AtomicInteger activations = new AtomicInteger();
+    system.on(SINK).withConfig(new ActorConfig() {{
+      ephemeral = true;
+    }})
+    .cue(() -> {
+      activations.incrementAndGet();
+      return (a, m) -> {};
+    });
+
+    final ActorRef canonical = system.ref(SINK, "key");
+    final ActorRef other = ActorRef.of(SINK, "key");
+    system.tell(canonical);
+    system.tell(other);
+    drain();
+
+    // the other ref may still point to a disposed activation, which must never be returned
+    assertNull(other.getCachedActivation());
+
+    system.tell(other);
+    drain();
+    assertTrue(activations.get() >= 2);
+  }
+
+  /**
+   *  Tests that a ref still pointing to a disposed activation no longer serves it, and that a new
+   *  activation is created in its place on the next send.
+   */
+  @Test
+  public void testDisposedNotServed() {
+    final List<Activation> activations = new CopyOnWriteArrayList<>();
+    system.on(SINK).cue((a, m) -> {
+      if (m.body() == null) {
+        activations.add(a);
+      } else {
+        a.passivate();
+      }
+    });
+
+    // the activation adopts the first ref as its own, leaving the other to be cleared lazily
+    final ActorRef own = ActorRef.of(SINK, "key");
+    final ActorRef other = ActorRef.of(SINK, "key");
+    system.tell(own);
+    system.tell(other);
+    system.tell(own, "passivate");
+    drain();
+    assertEquals(2, activations.size());
+    assertSame(activations.get(0), activations.get(1));
+    assertNull(own.getCachedActivation());
+    assertNull(other.getCachedActivation());
+
+    system.tell(other);
+    drain();
+    assertEquals(3, activations.size());
+    assertNotSame(activations.get(0), activations.get(2));
+  }
+}
@@ -12,6 +12,7 @@ import com.obsidiandynamics.indigo.util.CycleSuite.*;
   keys={ActorSystemConfig.Key.EXECUTOR,ActorConfig.Key.ACTIVATION_FACTORY},
   values={@ParameterValues({"FIXED_THREAD_POOL","NODE_QUEUE"}),
           @ParameterValues({"AUTO","SYNC_QUEUE"}),
-          @ParameterValues({"FORK_JOIN_POOL","NODE_QUEUE"})
+          @ParameterValues({"FORK_JOIN_POOL","NODE_QUEUE"}),
+          @ParameterValues({"FORK_JOIN_POOL","RING_QUEUE"})
 })
 public class CycledPrimaryTests {}
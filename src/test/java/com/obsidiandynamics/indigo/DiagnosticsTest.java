@@ -3,10 +3,13 @@ package com.obsidiandynamics.indigo;
 import static junit.framework.TestCase.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.junit.*;
 
+import com.obsidiandynamics.indigo.Diagnostics.*;
 import com.obsidiandynamics.indigo.util.*;
+import com.obsidiandynamics.threads.*;
 
 public final class DiagnosticsTest implements TestSupport {
   @Test
@@ -36,4 +39,207 @@ public final class DiagnosticsTest implements TestSupport {
       assertTrue("output.length=" + output.length(), output.length() >= 1);
     }
   }
+  
+  private static Diagnostics diagnostics(int size) {
+    return new Diagnostics() {{
+      traceEnabled = true;
+      ringSize = size;
+    }};
+  }
+  
+  @Test
+  public void testDisabled() {
+    final Diagnostics d = new Diagnostics() {{
+      traceEnabled = false;
+    }};
+    d.trace("test %d", 0);
+    assertEquals(0, d.getLog().length);
+  }
+  
+  @Test
+  public void testArities() {
+    final Diagnostics d = diagnostics(16);
+    d.trace("none");
+    d.trace("one %d", 1);
+    d.trace("two %d %d", 1, 2);
+    d.trace("three %d %d %d", 1, 2, 3);
+    d.trace("four %d %d %d %d", 1, 2, 3, 4);
+    d.trace("two %d %d", new Object[] { 1, 2 });
+    assertTrue(d.traceMacro("macro %s", "x"));
+    
+    final LogEntry[] log = d.getLog();
+    assertEquals(Arrays.asList("none", "one 1", "two 1 2", "three 1 2 3", "four 1 2 3 4", "two 1 2", "macro x"),
+                 toStrings(log));
+    for (LogEntry entry : log) {
+      assertEquals(Thread.currentThread().getId(), entry.getThreadId());
+      assertEquals(Thread.currentThread().getName(), entry.getThreadName());
+    }
+  }
+  
+  @Test
+  public void testRingWrap() {
+    final Diagnostics d = diagnostics(4);
+    for (int i = 0; i < 10; i++) {
+      d.trace("%d", i);
+    }
+    assertEquals(Arrays.asList("6", "7", "8", "9"), toStrings(d.getLog()));
+  }
+  
+  @Test
+  public void testMerge() {
+    final int threads = 4;
+    final int entriesPerThread = 1_000;
+    final Diagnostics d = diagnostics(entriesPerThread);
+    Parallel.blocking(threads, t -> {
+      for (int i = 0; i < entriesPerThread; i++) {
+        d.trace("%d", i);
+      }
+    }).run();
+    
+    final LogEntry[] log = d.getLog();
+    assertEquals(threads * entriesPerThread, log.length);
+    final Map<Long, Integer> lastByThread = new HashMap<>();
+    for (int i = 0; i < log.length; i++) {
+      if (i != 0) assertTrue(log[i].getTime() >= log[i - 1].getTime());
+      final int value = Integer.parseInt(log[i].toString());
+      final Integer last = lastByThread.put(log[i].getThreadId(), value);
+      assertEquals(last != null ? last + 1 : 0, value);
+    }
+    assertEquals(threads, lastByThread.size());
+  }
+  
+  @Test
+  public void testReclaimTerminated() throws InterruptedException {
+    final Diagnostics d = new Diagnostics() {{
+      traceEnabled = true;
+      ringSize = 16;
+      logSize = 6;
+    }};
+    for (int i = 0; i < 4; i++) {
+      final int thread = i;
+      final Thread t = new Thread(() -> {
+        d.trace("%d-%d", thread, 0);
+        d.trace("%d-%d", thread, 1);
+      });
+      t.start();
+      t.join();
+    }
+    
+    // rings are only reclaimed when the log is read, or once enough threads have started tracing
+    assertEquals(4, d.countRings());
+    
+    // the retired entries outlive the reclaimed rings, up to the log size
+    final List<String> expected = Arrays.asList("1-0", "1-1", "2-0", "2-1", "3-0", "3-1");
+    assertEquals(expected, toStrings(d.getLog()));
+    assertEquals(0, d.countRings());
+    assertEquals(expected, toStrings(d.getLog()));
+  }
+  
+  @Test
+  public void testReclaimThreshold() throws InterruptedException {
+    final Diagnostics d = diagnostics(16);
+    for (int i = 0; i < Diagnostics.RECLAIM_THRESHOLD; i++) {
+      final Thread t = new Thread(() -> d.trace("%d", 0));
+      t.start();
+      t.join();
+    }
+    
+    // the last thread to start tracing reclaims the rings of its terminated predecessors
+    assertEquals(1, d.countRings());
+    assertEquals(Diagnostics.RECLAIM_THRESHOLD, d.getLog().length);
+  }
+  
+  @Test
+  public void testRingGrowth() {
+    final Diagnostics d = diagnostics(1_000);
+    for (int i = 0; i < 500; i++) {
+      d.trace("%d", i);
+    }
+    final List<String> log = toStrings(d.getLog());
+    assertEquals(500, log.size());
+    assertEquals("0", log.get(0));
+    assertEquals("499", log.get(499));
+    
+    // the ring grows up to 1,024 entries, then wraps around
+    for (int i = 500; i < 2_000; i++) {
+      d.trace("%d", i);
+    }
+    final List<String> wrapped = toStrings(d.getLog());
+    assertEquals(1_024, wrapped.size());
+    assertEquals("976", wrapped.get(0));
+    assertEquals("1999", wrapped.get(1_023));
+  }
+  
+  @Test
+  public void testDump() throws IOException {
+    final Diagnostics d = diagnostics(16);
+    d.trace("%s %d %d %x %.1f %b %s", "str", 1, 2l, (short) 255, 1.5, true, null);
+    d.trace("%s", new Object() { @Override public String toString() { return "obj"; } });
+    d.trace("%s", "str");
+    
+    final File file = File.createTempFile("diagnostics-", ".dump");
+    try {
+      d.dump(file);
+      final LogEntry[] loaded = Diagnostics.load(file);
+      final LogEntry[] log = d.getLog();
+      assertEquals(toStrings(log), toStrings(loaded));
+      assertEquals(Arrays.asList("str 1 2 ff 1.5 true null", "obj", "str"), toStrings(loaded));
+      for (int i = 0; i < log.length; i++) {
+        assertEquals(log[i].getTime(), loaded[i].getTime());
+        assertEquals(log[i].getThreadId(), loaded[i].getThreadId());
+        assertEquals(log[i].getThreadName(), loaded[i].getThreadName());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+  
+  @Test
+  public void testDumpManyArgs() throws IOException {
+    final Diagnostics d = diagnostics(16);
+    final int argCount = 300;
+    final StringBuilder format = new StringBuilder();
+    final Object[] args = new Object[argCount];
+    for (int i = 0; i < argCount; i++) {
+      format.append("%d,");
+      args[i] = i;
+    }
+    d.trace(format.toString(), args);
+    d.trace("%s", "after");
+    
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    d.dump(out);
+    final LogEntry[] loaded = Diagnostics.load(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(toStrings(d.getLog()), toStrings(loaded));
+    assertEquals("after", loaded[1].toString());
+  }
+  
+  @Test
+  public void testNullFormatAndArgs() throws IOException {
+    final Diagnostics d = diagnostics(16);
+    d.trace(null);
+    d.trace("none", (Object[]) null);
+    d.trace("null");
+    
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    d.dump(out);
+    final LogEntry[] loaded = Diagnostics.load(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(3, loaded.length);
+    assertNull(loaded[0].getFormat());
+    assertEquals("none", loaded[1].toString());
+    assertEquals("null", loaded[2].getFormat());
+  }
+  
+  @Test(expected=IOException.class)
+  public void testLoadInvalid() throws IOException {
+    Diagnostics.load(new ByteArrayInputStream(new byte[8]));
+  }
+  
+  private static List<String> toStrings(LogEntry[] log) {
+    final List<String> strings = new ArrayList<>(log.length);
+    for (LogEntry entry : log) {
+      strings.add(entry.toString());
+    }
+    return strings;
+  }
 }
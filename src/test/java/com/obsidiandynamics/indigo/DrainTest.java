@@ -57,6 +57,40 @@ public final class DrainTest implements TestSupport {
     system.shutdown();
   }
   
+  @Test
+  public void testWhenQuiescentIdle() {
+    final ActorSystem system = new TestActorSystemConfig() {}.createActorSystem();
+    assertTrue(system.whenQuiescent().isDone());
+    system.shutdownSilently();
+  }
+  
+  /**
+   *  Tests that the quiescence future is only completed once the last busy actor has parked.
+   */
+  @Test
+  public void testWhenQuiescent() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ActorSystem system = new TestActorSystemConfig() {{
+      parallelism = 2;
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> {
+      TestSupport.await(release);
+      a.to(ActorRef.of(STAGE + 0)).tell();
+    })
+    .on(STAGE + 0).cue((a, m) -> {});
+    
+    system.tell(ActorRef.of(SINK));
+    final CompletableFuture<Void> quiescent = system.whenQuiescent();
+    TestSupport.sleep(10);
+    assertFalse(quiescent.isDone());
+    
+    release.countDown();
+    quiescent.get(10, TimeUnit.SECONDS);
+    assertEquals(0, system.drain(0));
+    system.shutdownSilently();
+  }
+  
   @Test(expected=InterruptedException.class)
   public void testInterruptOnDrain() throws InterruptedException {
     final ActorSystem system = new TestActorSystemConfig() {}.createActorSystem();
@@ -1,10 +1,15 @@
 package com.obsidiandynamics.indigo;
 
+import static org.junit.Assert.*;
+
+import java.util.*;
 import java.util.concurrent.*;
 
 import org.junit.*;
 
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
 import com.obsidiandynamics.indigo.util.*;
+import com.obsidiandynamics.indigo.util.JvmVersionProvider.*;
 
 public final class ExecutorRegistrationTest implements TestSupport {
   private ActorSystem system;
@@ -29,4 +34,161 @@ public final class ExecutorRegistrationTest implements TestSupport {
   public void testWithoutExecutor() {
     system.send(Message.builder().to(ActorRef.of("foo")).build(), "bar");
   }
+  
+  @Test
+  public void testRoleExecutor() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "role-executor"));
+    try {
+      system.addExecutor(executor).named("role");
+      final CompletableFuture<String> threadName = new CompletableFuture<>();
+      system.on("foo").withConfig(new ActorConfig() {{
+        executorName = "role";
+      }})
+      .cue((a, m) -> threadName.complete(Thread.currentThread().getName()));
+      
+      system.tell(ActorRef.of("foo"));
+      assertEquals("role-executor", threadName.get(10, TimeUnit.SECONDS));
+    } finally {
+      system.shutdownSilently();
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testVirtualRoleExecutor() throws Exception {
+    final JvmVersion version = new JvmVersionProvider.DefaultProvider().get();
+    if (! Threads.isVirtualThreadSupported(version)) return;
+    
+    final CompletableFuture<Boolean> done = new CompletableFuture<>();
+    system.on("foo").withConfig(new ActorConfig() {{
+      executorName = ActorSystem.VIRTUAL_EXECUTOR_NAME;
+    }})
+    .cue((a, m) -> done.complete(true));
+    
+    system.tell(ActorRef.of("foo"));
+    assertTrue(done.get(10, TimeUnit.SECONDS));
+  }
+  
+  @Test
+  public void testVirtualRoleExecutorUnsupported() {
+    final JvmVersion version = new JvmVersionProvider.DefaultProvider().get();
+    if (Threads.isVirtualThreadSupported(version)) return;
+    
+    try {
+      system.on("foo").withConfig(new ActorConfig() {{
+        executorName = ActorSystem.VIRTUAL_EXECUTOR_NAME;
+      }})
+      .cue((a, m) -> {});
+      fail("Failed to catch UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("virtual threads"));
+    }
+  }
+  
+  @Test(expected=NoSuchExecutorException.class)
+  public void testWithoutRoleExecutor() {
+    system.on("foo").withConfig(new ActorConfig() {{
+      executorName = "bar";
+    }})
+    .cue((a, m) -> {});
+    system.tell(ActorRef.of("foo"));
+  }
+  
+  @Test
+  public void testRoleExecutorOverPreferredExecutor() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "role-executor"));
+    try {
+      system.addExecutor(executor).named("role");
+      final CompletableFuture<String> threadName = new CompletableFuture<>();
+      system.on("foo").withConfig(new ActorConfig() {{
+        executorName = "role";
+      }})
+      .cue((a, m) -> threadName.complete(Thread.currentThread().getName()));
+      
+      system.send(Message.builder().to(ActorRef.of("foo")).build(), ActorSystem.COMMON_EXECUTOR_NAME);
+      assertEquals("role-executor", threadName.get(10, TimeUnit.SECONDS));
+    } finally {
+      system.shutdownSilently();
+      executor.shutdown();
+    }
+  }
+  
+  /**
+   *  Tests that a role with dedicated threads continues to be served while another role has all of
+   *  its threads blocked.
+   */
+  @Test
+  public void testDedicatedThreadsBulkhead() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final Set<Thread> slowThreads = ConcurrentHashMap.newKeySet();
+    system.on("slow").withConfig(new ActorConfig() {{
+      threads = 1;
+    }})
+    .cue((a, m) -> {
+      slowThreads.add(Thread.currentThread());
+      blocked.countDown();
+      TestSupport.await(release);
+    });
+    
+    final CompletableFuture<Thread> fastThread = new CompletableFuture<>();
+    system.on("fast").withConfig(new ActorConfig() {{
+      threads = 1;
+    }})
+    .cue((a, m) -> fastThread.complete(Thread.currentThread()));
+    
+    try {
+      for (int i = 0; i < 10; i++) {
+        system.tell(ActorRef.of("slow", String.valueOf(i)));
+      }
+      assertTrue(blocked.await(10, TimeUnit.SECONDS));
+      system.tell(ActorRef.of("fast"));
+      final Thread thread = fastThread.get(10, TimeUnit.SECONDS);
+      assertFalse(slowThreads.contains(thread));
+      assertEquals(1, slowThreads.size());
+    } finally {
+      release.countDown();
+    }
+    system.drain(0);
+    assertEquals(1, slowThreads.size());
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testDedicatedThreadsWithExecutorName() {
+    system.on("foo").withConfig(new ActorConfig() {{
+      threads = 1;
+      executorName = ActorSystem.COMMON_EXECUTOR_NAME;
+    }})
+    .cue((a, m) -> {});
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeDedicatedThreads() {
+    system.on("foo").withConfig(new ActorConfig() {{
+      threads = -1;
+    }})
+    .cue((a, m) -> {});
+  }
+  
+  @Test
+  public void testDedicatedThreadsWithVirtualThreads() {
+    final JvmVersion version = new JvmVersionProvider.DefaultProvider().get();
+    if (! Threads.isVirtualThreadSupported(version)) return;
+    
+    final ActorSystem virtualSystem = new TestActorSystemConfig() {{
+      executor = ExecutorChoice.VIRTUAL_THREADS;
+    }}
+    .createActorSystem();
+    try {
+      virtualSystem.on("foo").withConfig(new ActorConfig() {{
+        threads = 1;
+      }})
+      .cue((a, m) -> {});
+      fail("Failed to catch IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("virtual threads"));
+    } finally {
+      virtualSystem.shutdownSilently();
+    }
+  }
 }
@@ -2,6 +2,7 @@ package com.obsidiandynamics.indigo;
 
 import static junit.framework.TestCase.*;
 
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
@@ -33,6 +34,7 @@ public final class ExternalAskTest implements TestSupport {
     final CyclicBarrier barrier = new CyclicBarrier(2);
     
     final ActorSystem system = new TestActorSystemConfig() {{
+      directAsk = false;
       ingressCount = 1; // locking this down to 1 so that we can artificially block the ingress within the test
     }}
     .createActorSystem()
@@ -131,4 +133,167 @@ public final class ExternalAskTest implements TestSupport {
       system.shutdownSilently();
     }
   }
-}
\ No newline at end of file
+  
+  private static ActorSystem createDirectActorSystem() {
+    return new TestActorSystemConfig() {{
+      directAsk = true;
+    }}
+    .createActorSystem();
+  }
+
+  @Test
+  public void testDirectResponse() throws InterruptedException, ExecutionException {
+    final Set<ActorRef> senders = ConcurrentHashMap.newKeySet();
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> {
+      senders.add(m.from());
+      a.reply(m).tell(m.<Integer>body() + 1);
+    });
+    
+    try {
+      for (int i = 0; i < 100; i++) {
+        final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), i);
+        assertEquals(i + 1, (int) f.get());
+      }
+      for (ActorRef sender : senders) {
+        assertTrue(sender.isIngress());
+      }
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+  
+  @Test
+  public void testDirectResponseFromEgress() throws InterruptedException, ExecutionException {
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> {
+      // the reply is deferred until the egress responds, in a later turn
+      a.<Integer, Integer>egress(in -> in + 1)
+      .withCommonPool()
+      .ask(m.body())
+      .onResponse(r -> a.reply(m).tell(r.body()));
+    });
+    
+    try {
+      assertEquals(42, (int) system.<Integer>ask(ActorRef.of(ADDER), 41).get());
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+
+  @Test
+  public void testDirectCancel() throws InterruptedException {
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> {
+      TestSupport.await(barrier);
+      a.reply(m).tell(m.<Integer>body() + 1);
+    });
+    
+    final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 41);
+    f.cancel(false);
+    f.cancel(false); // cancelling a second time should have no further effect
+    
+    // the late response should be discarded
+    TestSupport.await(barrier);
+    system.drain(0);
+    assertTrue(f.isCancelled());
+    system.shutdownSilently();
+  }
+
+  @Test(expected=TimeoutException.class)
+  public void testDirectTimeout() throws Throwable {
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> { /* do nothing, stalling the reply */ });
+    
+    final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 10, 41);
+    try {
+      f.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+
+  /**
+   *  Tests that a direct ask with a zero timeout never times out, awaiting a response that is deferred
+   *  until after a forced timeout.
+   */
+  @Test
+  public void testDirectZeroTimeout() throws InterruptedException, ExecutionException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> {
+      TestSupport.await(release);
+      a.reply(m).tell(m.<Integer>body() + 1);
+    });
+    
+    try {
+      final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 0, 41);
+      system.forceTimeout();
+      assertFalse(f.isDone());
+      release.countDown();
+      assertEquals(42, (int) f.get());
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+
+  @Test(expected=TimeoutException.class)
+  public void testDirectTimeoutWithForce() throws Throwable {
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> { /* do nothing, stalling the reply */ });
+    
+    final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 41);
+    system.drain(0);
+    system.forceTimeout();
+    try {
+      f.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+  
+  @Test
+  public void testDirectFaultString() throws InterruptedException {
+    final ActorSystem system = createDirectActorSystem()
+    .on(ADDER).cue((a, m) -> a.fault("some reason"));
+    
+    final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 41);
+    try {
+      f.get();
+      fail("Failed to catch ExecutionException");
+    } catch (ExecutionException e) {
+      assertEquals(FaultException.class, e.getCause().getClass());
+      assertEquals("some reason", ((FaultException) e.getCause()).getReason());
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+  
+  @Test
+  public void testDirectFaultException() throws InterruptedException {
+    final ActorSystem system = new TestActorSystemConfig() {{
+      directAsk = true;
+      exceptionHandler = TestException.BYPASS_DRAIN_HANDLER;
+    }}
+    .createActorSystem()
+    .on(ADDER).cue((a, m) -> {
+      throw new TestException("some reason");
+    });
+    
+    final CompletableFuture<Integer> f = system.ask(ActorRef.of(ADDER), 41);
+    try {
+      f.get();
+      fail("Failed to catch ExecutionException");
+    } catch (ExecutionException e) {
+      assertEquals(TestException.class, e.getCause().getClass());
+      assertEquals("some reason", e.getCause().getMessage());
+    } finally {
+      system.shutdownSilently();
+    }
+  }
+}
@@ -16,4 +16,15 @@ public final class MessageBuilderTest implements TestSupport {
       assertEquals("Destination not specified", e.getMessage());
     }
   }
+  
+  @Test
+  public void testPriority() {
+    final Message ordinary = Message.builder().to(ActorRef.of("foo")).build();
+    assertFalse(ordinary.isPriority());
+    assertFalse(ordinary.toString().contains("priority"));
+    
+    final Message priority = Message.builder().to(ActorRef.of("foo")).priority(true).build();
+    assertTrue(priority.isPriority());
+    assertTrue(priority.toString().contains("priority=true"));
+  }
 }
@@ -0,0 +1,251 @@
+package com.obsidiandynamics.indigo;
+
+import static java.util.concurrent.TimeUnit.*;
+import static junit.framework.TestCase.*;
+import static org.awaitility.Awaitility.*;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.metrics.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class MetricsTest implements TestSupport {
+  private static final String SINK = "sink";
+  
+  private ActorSystem system;
+  
+  @After
+  public void teardown() {
+    if (system != null) system.shutdownSilently();
+  }
+  
+  private ActorSystem createActorSystem(boolean batchDrain) {
+    return new TestActorSystemConfig() {{
+      metricsSink = MetricsSinkChoice.JMX;
+      defaultActorConfig = new ActorConfig() {{
+        this.batchDrain = batchDrain;
+      }};
+    }}
+    .createActorSystem();
+  }
+  
+  @Test
+  public void testDisabled() throws InterruptedException {
+    system = new TestActorSystemConfig() {{
+      metricsSink = MetricsSinkChoice.NONE;
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> {});
+    system.tell(ActorRef.of(SINK));
+    system.drain(0);
+    assertNull(system.getMetricsSink());
+  }
+  
+  @Test
+  public void testMessages() throws Exception {
+    test(false);
+  }
+  
+  @Test
+  public void testMessagesBatchDrain() throws Exception {
+    test(true);
+  }
+  
+  private void test(boolean batchDrain) throws Exception {
+    final int actors = 10;
+    final int messagesPerActor = 10;
+    system = createActorSystem(batchDrain)
+    .on(SINK).cue(() -> IndigoTestSupport.batchActor((a, m) -> TestSupport.sleep(1)));
+    
+    for (int i = 0; i < messagesPerActor; i++) {
+      for (int j = 0; j < actors; j++) {
+        system.tell(ActorRef.of(SINK, String.valueOf(j)));
+      }
+    }
+    system.drain(0);
+    
+    final JmxMetricsSink sink = (JmxMetricsSink) system.getMetricsSink();
+    final RoleMetrics role = sink.getRole(SINK);
+    assertNotNull(role);
+    assertEquals(actors * messagesPerActor, role.getMessages());
+    assertEquals(actors * messagesPerActor, role.getQueueLatency().getCount());
+    assertEquals(actors * messagesPerActor, role.getServiceTime().getCount());
+    assertTrue("p50=" + role.getServiceTimeP50Nanos(), role.getServiceTimeP50Nanos() >= 1_000_000);
+    assertTrue(role.getServiceTimeMaxNanos() >= role.getServiceTimeP99Nanos());
+    assertTrue(role.getQueueLatencyMaxNanos() >= role.getQueueLatencyP50Nanos());
+    assertTrue(role.getMessagesPerSecond() >= 0);
+    assertEquals(actors, role.getActivations());
+    assertEquals(0, role.getPassivations());
+    assertEquals(actors, role.getLiveActivations());
+    assertEquals(0, role.getMailboxDepth());
+    for (RoleMetrics.ActivationMetrics activation : role.getActivationMetrics()) {
+      assertEquals(messagesPerActor, activation.getMessages());
+    }
+    assertNotNull(role.toString());
+    assertEquals(0, role.getEndToEndLatency().getCount());
+    
+    // the same metrics should be visible over JMX, up until the actor system is shut down
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = JmxMetricsSink.getObjectName(sink.getSystemId(), SINK);
+    assertEquals((long) actors * messagesPerActor, server.getAttribute(name, "Messages"));
+    assertEquals(actors, server.getAttribute(name, "LiveActivations"));
+    
+    system.shutdown();
+    assertFalse(server.isRegistered(name));
+    assertEquals(actors * messagesPerActor, role.getMessages());
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testTimingWithoutSink() {
+    new TestActorSystemConfig() {{
+      metricsSink = MetricsSinkChoice.NONE;
+      messageTiming = true;
+    }}
+    .createActorSystem();
+  }
+  
+  @Test
+  public void testTiming() throws Exception {
+    final int messages = 20;
+    final ActorRef ref = ActorRef.of(SINK);
+    system = new TestActorSystemConfig() {{
+      metricsSink = MetricsSinkChoice.JMX;
+      messageTiming = true;
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> TestSupport.sleep(1));
+    
+    for (int i = 0; i < messages; i++) {
+      system.tell(ref);
+    }
+    system.drain(0);
+    
+    final JmxMetricsSink sink = (JmxMetricsSink) system.getMetricsSink();
+    final RoleMetrics role = sink.getRole(SINK);
+    final LatencySummary endToEnd = role.getEndToEndLatency();
+    assertEquals(messages, endToEnd.getCount());
+    assertEquals(messages, role.getMailboxLatency().getCount());
+    assertEquals(messages, role.getExecutorLatency().getCount());
+    assertEquals(messages, role.getTurnLatency().getCount());
+    assertTrue("endToEnd=" + endToEnd, endToEnd.getP50Nanos() >= 1_000_000);
+    assertTrue(endToEnd.getMaxNanos() >= endToEnd.getP99Nanos());
+    assertTrue(endToEnd.getP99Nanos() >= endToEnd.getP50Nanos());
+    
+    // the last message would have waited behind several earlier messages, whether in the same turn or in the mailbox
+    final long maxWaitNanos = Math.max(role.getTurnLatency().getMaxNanos(), role.getMailboxLatency().getMaxNanos());
+    assertTrue("maxWaitNanos=" + maxWaitNanos, maxWaitNanos >= 5_000_000);
+    
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final CompositeData data = (CompositeData) server.getAttribute(JmxMetricsSink.getObjectName(sink.getSystemId(), SINK), 
+                                                                   "EndToEndLatency");
+    assertEquals((long) messages, data.get("count"));
+    assertTrue((Long) data.get("p999Nanos") >= endToEnd.getP50Nanos());
+  }
+  
+  @Test
+  public void testRegistrationConflict() throws JMException {
+    final MBeanServer server = MBeanServerFactory.newMBeanServer();
+    final JmxMetricsSink first = new JmxMetricsSink(server);
+    final JmxMetricsSink second = new JmxMetricsSink(server);
+    first.start("conflict");
+    second.start("conflict");
+    
+    assertNotNull(first.probe(ActorRef.of(SINK)));
+    assertNotNull(second.probe(ActorRef.of(SINK)));
+    assertNotNull(second.getRole(SINK));
+    assertTrue(server.isRegistered(JmxMetricsSink.getObjectName("conflict", SINK)));
+    
+    second.stop();
+    assertTrue(server.isRegistered(JmxMetricsSink.getObjectName("conflict", SINK)));
+    first.stop();
+    assertFalse(server.isRegistered(JmxMetricsSink.getObjectName("conflict", SINK)));
+  }
+  
+  @Test
+  public void testLifeCycle() throws InterruptedException {
+    final int messages = 10;
+    system = createActorSystem(false)
+    .on(SINK).withConfig(new ActorConfig() {{ ephemeral = true; }}).cue((a, m) -> {});
+    
+    for (int i = 0; i < messages; i++) {
+      system.tell(ActorRef.of(SINK, String.valueOf(i)));
+    }
+    system.drain(0);
+    
+    final RoleMetrics role = ((JmxMetricsSink) system.getMetricsSink()).getRole(SINK);
+    assertEquals(messages, role.getActivations());
+    assertEquals(messages, role.getPassivations());
+    await().atMost(10, SECONDS).until(() -> role.getLiveActivations() == 0);
+  }
+  
+  @Test
+  public void testMailboxDepth() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ActorRef ref = ActorRef.of(SINK, "0");
+    system = createActorSystem(false)
+    .on(SINK).cue((a, m) -> TestSupport.await(release));
+    
+    for (int i = 0; i < 5; i++) {
+      system.tell(ref);
+    }
+    
+    final RoleMetrics role = ((JmxMetricsSink) system.getMetricsSink()).getRole(SINK);
+    // the first message is being processed, while the rest are backlogged
+    await().atMost(10, SECONDS).until(() -> role.getMailboxDepth() == 4);
+    assertEquals(Collections.singletonMap(ref.toString(), 4l), role.getMailboxDepths());
+    
+    release.countDown();
+    system.drain(0);
+    assertEquals(0, role.getMailboxDepth());
+    assertEquals(5, role.getMessages());
+  }
+  
+  /**
+   *  Tests that the queue latency of a message instance that is sent more than once is measured from 
+   *  each of its sends, rather than from the last one.
+   */
+  @Test
+  public void testResentMessage() throws InterruptedException {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final ActorRef ref = ActorRef.of(SINK);
+      system = new TestActorSystemConfig() {{
+        metricsSink = MetricsSinkChoice.JMX;
+      }}
+      .createActorSystem()
+      .on(SINK).withConfig(new ActorConfig() {{
+        activationFactory = choice;
+      }})
+      .cue((a, m) -> {
+        if (m.body() == null) {
+          blocked.countDown();
+          TestSupport.await(release);
+        }
+      });
+      
+      system.tell(ref);
+      TestSupport.await(blocked);
+      final Message resent = Message.builder().to(ref).body("resent").build();
+      system.send(resent);
+      TestSupport.sleep(50);
+      system.send(resent);
+      release.countDown();
+      system.drain(0);
+      
+      final RoleMetrics role = ((JmxMetricsSink) system.getMetricsSink()).getRole(SINK);
+      assertEquals(3, role.getMessages());
+      assertTrue(choice + ": max=" + role.getQueueLatencyMaxNanos(), role.getQueueLatencyMaxNanos() >= 50_000_000);
+      system.shutdownSilently();
+    }
+  }
+}
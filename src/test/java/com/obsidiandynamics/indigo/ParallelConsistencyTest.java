@@ -56,6 +56,9 @@ public final class ParallelConsistencyTest implements IndigoTestSupport {
       backlogThrottleCapacity = Integer.MAX_VALUE;
       backlogThrottleMillis = 1;
       backlogThrottleTries = 1;
+      
+      // sized so that a ring never fills, as the sink's backlog is unbounded
+      ringCapacity = runs * fanIn;
     }})
     .cue(() -> new int[fanIn], (a, m, s) -> {
       final int msg = m.body();
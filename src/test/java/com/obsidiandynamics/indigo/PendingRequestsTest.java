@@ -0,0 +1,157 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.function.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+public final class PendingRequestsTest implements TestSupport {
+  private static Runnable tag(long seq) {
+    return new Runnable() {
+      @Override public void run() {}
+      @Override public String toString() { return String.valueOf(seq); }
+    };
+  }
+
+  private static void put(PendingRequests pending, long seq) {
+    pending.put(seq, null, tag(seq), null, null);
+  }
+
+  private static void assertPresent(PendingRequests pending, long seq) {
+    final int index = pending.indexOf(seq);
+    assertTrue("seq=" + seq, index != -1);
+    assertEquals(String.valueOf(seq), pending.getOnTimeout(index).toString());
+  }
+
+  private static void remove(PendingRequests pending, long seq) {
+    final int index = pending.indexOf(seq);
+    assertTrue("seq=" + seq, index != -1);
+    pending.removeAt(index);
+    assertEquals(-1, pending.indexOf(seq));
+  }
+
+  @Test
+  public void testEmpty() {
+    final PendingRequests pending = new PendingRequests();
+    assertTrue(pending.isEmpty());
+    assertEquals(-1, pending.indexOf(0));
+    pending.clear(t -> fail("Unexpected task " + t));
+  }
+
+  @Test
+  public void testPutRemove() {
+    final PendingRequests pending = new PendingRequests();
+    final Consumer<Message> onResponse = m -> {};
+    final Consumer<Fault> onFault = f -> {};
+    final TimeoutTask timeoutTask = new TimeoutTask(0, 0, 42, null, null);
+    pending.put(42, onResponse, tag(42), onFault, timeoutTask);
+    assertEquals(1, pending.size());
+
+    final int index = pending.indexOf(42);
+    assertSame(onResponse, pending.getOnResponse(index));
+    assertEquals("42", pending.getOnTimeout(index).toString());
+    assertSame(onFault, pending.getOnFault(index));
+    assertSame(timeoutTask, pending.getTimeoutTask(index));
+    assertEquals(-1, pending.indexOf(43));
+
+    pending.removeAt(index);
+    assertTrue(pending.isEmpty());
+    assertEquals(-1, pending.indexOf(42));
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testDuplicate() {
+    final PendingRequests pending = new PendingRequests();
+    put(pending, 1);
+    put(pending, 1);
+  }
+
+  /**
+   *  Tests growth of the table, with sequence numbers that straddle the wraparound of a
+   *  {@code long}.
+   */
+  @Test
+  public void testResize() {
+    final PendingRequests pending = new PendingRequests();
+    final long base = Long.MAX_VALUE - 50;
+    for (long seq = base; seq != base + 100; seq++) {
+      put(pending, seq);
+    }
+    assertEquals(100, pending.size());
+
+    for (long seq = base; seq != base + 100; seq++) {
+      assertPresent(pending, seq);
+    }
+  }
+
+  /**
+   *  Tests that removal relocates entries that have collided, so that they can still be found.
+   */
+  @Test
+  public void testCollisions() {
+    final PendingRequests pending = new PendingRequests();
+    // with the initial capacity of 8, these all map to the same home slot, and wrap around the table
+    final long[] seqs = { 7, 15, 23 };
+    for (long seq : seqs) put(pending, seq);
+    put(pending, 0);
+
+    remove(pending, 7);
+    assertPresent(pending, 15);
+    assertPresent(pending, 23);
+    assertPresent(pending, 0);
+
+    remove(pending, 0);
+    assertPresent(pending, 15);
+    assertPresent(pending, 23);
+
+    remove(pending, 15);
+    assertPresent(pending, 23);
+    remove(pending, 23);
+    assertTrue(pending.isEmpty());
+  }
+
+  @Test
+  public void testRandomised() {
+    final PendingRequests pending = new PendingRequests();
+    final Set<Long> expected = new HashSet<>();
+    final Random random = new Random(0);
+    long nextSeq = Crypto.machineRandom();
+    for (int i = 0; i < 10_000; i++) {
+      if (expected.isEmpty() || random.nextInt(3) != 0) {
+        final long seq = nextSeq++;
+        put(pending, seq);
+        expected.add(seq);
+      } else {
+        final Long seq = expected.iterator().next();
+        remove(pending, seq);
+        expected.remove(seq);
+      }
+      assertEquals(expected.size(), pending.size());
+    }
+
+    for (long seq : expected) {
+      assertPresent(pending, seq);
+    }
+  }
+
+  @Test
+  public void testClear() {
+    final PendingRequests pending = new PendingRequests();
+    final TimeoutTask timeoutTask = new TimeoutTask(0, 0, 1, null, null);
+    pending.put(0, null, tag(0), null, null);
+    pending.put(1, null, tag(1), null, timeoutTask);
+
+    final List<TimeoutTask> cleared = new ArrayList<>();
+    pending.clear(cleared::add);
+    assertEquals(Collections.singletonList(timeoutTask), cleared);
+    assertTrue(pending.isEmpty());
+    assertEquals(-1, pending.indexOf(1));
+
+    put(pending, 1);
+    assertPresent(pending, 1);
+  }
+}
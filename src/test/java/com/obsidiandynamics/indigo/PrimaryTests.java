@@ -7,7 +7,13 @@ import org.junit.runners.Suite.*;
 @RunWith(Suite.class)
 @SuiteClasses({
   ActivationApiTest.class,
+  ActivationBenchmark.class,
   ActorSystemConfigTest.class,
+  AdaptiveBiasTest.class,
+  BackpressureTest.class,
+  BatchTest.class,
+  BatchDrainTest.class,
+  CanonicalRefTest.class,
   DiagnosticsTest.class,
   DLQTest.class,
   DrainTest.class,
@@ -19,10 +25,13 @@ import org.junit.runners.Suite.*;
   FaultTest.class,
   ForwarderTest.class,
   FrameworkErrorTest.class,
+  MetricsTest.class,
   ParallelConsistencyTest.class,
+  PriorityTest.class,
   ReaperTest.class,
   RequestResponseBenchmark.class,
   RequestResponseTest.class,
+  RingQueueTest.class,
   RoleRegistrationTest.class,
   SelectTest.class,
   StashTest.class,
@@ -31,6 +40,7 @@ import org.junit.runners.Suite.*;
   StatefulLifeCycleTest.class,
   ThrottleTest.class,
   ThroughputBenchmark.class,
-  TimeoutTest.class
+  TimeoutTest.class,
+  TimeSliceTest.class
 })
 public class PrimaryTests {}
@@ -0,0 +1,264 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class PriorityTest implements TestSupport {
+  private static final String SINK = "sink";
+  private static final String BLOCK = "block";
+  private static final String PRIORITY = "priority";
+
+  private ActorSystem system;
+
+  @Before
+  public void setup() {
+    system = new TestActorSystemConfig() {}.createActorSystem();
+  }
+
+  @After
+  public void teardown() {
+    system.shutdownSilently();
+  }
+
+  private void drain() {
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  /**
+   *  Blocks the sink on its first message while a backlog builds up behind it, then sends a priority
+   *  message and returns the order in which the messages were processed.
+   *
+   *  @param actorConfig The sink's configuration.
+   *  @param n The number of ordinary messages in the backlog.
+   *  @return The processed message bodies.
+   */
+  private List<Object> runBacklog(ActorConfig actorConfig, int n) {
+    final List<Object> received = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    system.on(SINK).withConfig(actorConfig).cue(() -> IndigoTestSupport.batchActor((a, m) -> {
+      received.add(m.body());
+      if (BLOCK.equals(m.body())) {
+        blocked.countDown();
+        TestSupport.await(release);
+      }
+    }));
+
+    system.tell(ActorRef.of(SINK), BLOCK);
+    TestSupport.await(blocked);
+    for (int i = 0; i < n; i++) {
+      system.tell(ActorRef.of(SINK), i);
+    }
+    system.send(Message.builder().to(ActorRef.of(SINK)).body(PRIORITY).priority(true).build());
+    release.countDown();
+    drain();
+    assertEquals(n + 2, received.size());
+    return received;
+  }
+
+  private static List<Object> expectedOrder(int n, boolean overtaken) {
+    final List<Object> expected = new ArrayList<>(n + 2);
+    expected.add(BLOCK);
+    if (overtaken) expected.add(PRIORITY);
+    for (int i = 0; i < n; i++) expected.add(i);
+    if (! overtaken) expected.add(PRIORITY);
+    return expected;
+  }
+
+  @Test
+  public void testOvertakeBacklog() {
+    final int n = 100;
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      for (boolean drainBatch : new boolean[] { false, true }) {
+        assertEquals(expectedOrder(n, true), runBacklog(new ActorConfig() {{
+          activationFactory = choice;
+          batchDrain = drainBatch;
+          priorityLane = true;
+        }}, n));
+        system.shutdownSilently();
+        setup();
+      }
+    }
+  }
+
+  @Test
+  public void testOvertakeBacklogPooledNodes() {
+    final int n = 100;
+    assertEquals(expectedOrder(n, true), runBacklog(new ActorConfig() {{
+      activationFactory = ActivationChoice.NODE_QUEUE;
+      poolNodes = true;
+      priorityLane = true;
+    }}, n));
+  }
+
+  @Test
+  public void testWithoutPriorityLane() {
+    final int n = 100;
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      assertEquals(expectedOrder(n, false), runBacklog(new ActorConfig() {{
+        activationFactory = choice;
+        priorityLane = false;
+      }}, n));
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  /**
+   *  Tests that a response overtakes the messages that the requester has queued for itself.
+   */
+  @Test
+  public void testResponseOvertakesBacklog() {
+    final int n = 1_000;
+    for (ActivationChoice choice : new ActivationChoice[] { ActivationChoice.NODE_QUEUE, ActivationChoice.SYNC_QUEUE }) {
+      final AtomicInteger processed = new AtomicInteger();
+      final AtomicInteger processedBeforeResponse = new AtomicInteger(-1);
+      system.on("responder").cue((a, m) -> a.reply(m).tell());
+      system.on("requester").withConfig(new ActorConfig() {{
+        activationFactory = choice;
+        priorityLane = true;
+      }})
+      .cue((a, m) -> {
+        if (m.body() == null) {
+          a.to(ActorRef.of("responder")).ask().onResponse(r -> processedBeforeResponse.set(processed.get()));
+          a.to(a.self()).times(n).tell(0);
+        } else {
+          processed.incrementAndGet();
+        }
+      });
+
+      system.tell(ActorRef.of("requester"));
+      drain();
+      assertEquals(n, processed.get());
+      assertTrue("processedBeforeResponse=" + processedBeforeResponse.get(),
+                 processedBeforeResponse.get() >= 0 && processedBeforeResponse.get() < n);
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test
+  public void testPriorityTellFromActor() {
+    for (ActivationChoice choice : new ActivationChoice[] { ActivationChoice.NODE_QUEUE, ActivationChoice.SYNC_QUEUE }) {
+      final List<Message> received = Collections.synchronizedList(new ArrayList<>());
+      system.on(SINK).withConfig(new ActorConfig() {{
+        activationFactory = choice;
+        priorityLane = true;
+      }})
+      .cue((a, m) -> {
+        if (m.body() == null) {
+          a.to(a.self()).times(3).tell(0);
+          a.to(a.self()).priority(true).tell(1);
+        } else {
+          received.add(m);
+        }
+      });
+
+      system.tell(ActorRef.of(SINK));
+      drain();
+      assertEquals(4, received.size());
+      assertEquals(1, (int) received.get(0).body());
+      assertTrue(received.get(0).isPriority());
+      for (Message m : received.subList(1, 4)) {
+        assertEquals(0, (int) m.body());
+        assertFalse(m.isPriority());
+      }
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  /**
+   *  Tests priority messages sent to an ephemeral actor, which is disposed of after each turn, verifying
+   *  that every message is processed exactly once.
+   */
+  @Test
+  public void testEphemeral() {
+    final int n = 1_000;
+    for (ActivationChoice choice : new ActivationChoice[] { ActivationChoice.NODE_QUEUE, ActivationChoice.SYNC_QUEUE }) {
+      final AtomicInteger received = new AtomicInteger();
+      system.on(SINK).withConfig(new ActorConfig() {{
+        activationFactory = choice;
+        ephemeral = true;
+        priorityLane = true;
+      }})
+      .cue((a, m) -> received.incrementAndGet());
+
+      for (int i = 0; i < n; i++) {
+        system.send(Message.builder().to(ActorRef.of(SINK)).body(i).priority(i % 2 == 0).build());
+      }
+      drain();
+      assertEquals(n, received.get());
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  /**
+   *  Tests concurrent producers sending a mix of ordinary and priority messages to a sink that drains in 
+   *  batches and recycles its nodes, verifying that every message is processed exactly once. A priority
+   *  message arriving while the dispatch thread walks the queue must not be both batched and processed
+   *  from the priority lane.
+   */
+  @Test
+  public void testConcurrentPriorityBatchPooledNodes() {
+    final int producers = 8;
+    final int n = 10_000;
+    final AtomicIntegerArray received = new AtomicIntegerArray(producers * n);
+    system.on(SINK).withConfig(new ActorConfig() {{
+      activationFactory = ActivationChoice.NODE_QUEUE;
+      batchDrain = true;
+      poolNodes = true;
+      priorityLane = true;
+    }})
+    .cue(() -> IndigoTestSupport.batchActor((a, m) -> received.incrementAndGet(m.body())));
+
+    final List<Thread> threads = new ArrayList<>(producers);
+    for (int p = 0; p < producers; p++) {
+      final int base = p * n;
+      threads.add(Threads.asyncDaemon(() -> {
+        for (int i = 0; i < n; i++) {
+          system.send(Message.builder().to(ActorRef.of(SINK)).body(base + i).priority(i % 2 == 0).build());
+        }
+      }, "PriorityTestProducer-" + p));
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) { throw new RuntimeException(e); }
+    }
+    drain();
+
+    for (int i = 0; i < received.length(); i++) {
+      assertEquals("message " + i, 1, received.get(i));
+    }
+  }
+
+  @Test
+  public void testBatchWithPriority() {
+    final List<Object> received = Collections.synchronizedList(new ArrayList<>());
+    system.on(SINK).withConfig(new ActorConfig() {{
+      priorityLane = true;
+    }})
+    .cue((a, m) -> received.add(m.body()));
+
+    final List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(Message.builder().to(ActorRef.of(SINK)).body(i).priority(i == 5).build());
+    }
+    system.sendAll(messages);
+    drain();
+    assertEquals(10, received.size());
+    assertTrue(received.containsAll(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+  }
+}
@@ -0,0 +1,145 @@
+package com.obsidiandynamics.indigo;
+
+import static java.util.concurrent.TimeUnit.*;
+import static junit.framework.TestCase.*;
+import static org.awaitility.Awaitility.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class RingQueueTest implements TestSupport {
+  private static final String SINK = "sink";
+
+  private static ActorSystem createActorSystem(int capacity) {
+    return new TestActorSystemConfig() {{
+      defaultActorConfig = new ActorConfig() {{
+        activationFactory = ActivationChoice.RING_QUEUE;
+        ringCapacity = capacity;
+      }};
+    }}
+    .createActorSystem();
+  }
+
+  /**
+   *  Tests hard backpressure, whereby the enqueuing thread is blocked for as long as the target
+   *  actor's ring is full.
+   */
+  @Test
+  public void testBackpressure() {
+    final int capacity = 4;
+    final int runs = 20;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Integer> received = new CopyOnWriteArrayList<>();
+    final AtomicInteger sent = new AtomicInteger();
+
+    final ActorSystem system = createActorSystem(capacity)
+    .on(SINK).cue((a, m) -> {
+      TestSupport.await(start);
+      received.add(m.body());
+    });
+
+    final Thread producer = new Thread(() -> {
+      for (int i = 0; i < runs; i++) {
+        system.tell(ActorRef.of(SINK), i);
+        sent.incrementAndGet();
+      }
+    }, "RingQueueTestProducer");
+    producer.start();
+
+    // one message is taken by the blocked sink, while the remainder fill the ring
+    await().atMost(10, SECONDS).until(() -> sent.get() == capacity + 1);
+    TestSupport.sleep(10);
+    assertEquals(capacity + 1, sent.get());
+
+    start.countDown();
+    try {
+      producer.join();
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+    system.shutdownSilently();
+
+    final List<Integer> expected = new ArrayList<>(runs);
+    for (int i = 0; i < runs; i++) expected.add(i);
+    assertEquals(expected, received);
+  }
+
+  /**
+   *  Tests that an actor can send more messages to itself than its ring can hold, and can
+   *  receive responses while its ring is full, without blocking.
+   */
+  @Test
+  public void testSelfAndResponsesBypassRing() {
+    final int capacity = 2;
+    final int runs = 10;
+    final AtomicInteger selfReceived = new AtomicInteger();
+    final AtomicInteger responses = new AtomicInteger();
+
+    createActorSystem(capacity)
+    .on(SINK).cue((a, m) -> {
+      if ("start".equals(m.body())) {
+        for (int i = 0; i < runs; i++) {
+          a.toSelf().tell(i);
+          a.to(ActorRef.of("echo")).ask().onResponse(r -> responses.incrementAndGet());
+        }
+      } else {
+        selfReceived.incrementAndGet();
+      }
+    })
+    .on("echo").withConfig(new ActorConfig() {{
+      activationFactory = ActivationChoice.RING_QUEUE;
+      ringCapacity = runs;
+    }})
+    .cue((a, m) -> a.reply(m).tell())
+    .ingress(a -> a.to(ActorRef.of(SINK)).tell("start"))
+    .shutdownSilently();
+
+    assertEquals(runs, selfReceived.get());
+    assertEquals(runs, responses.get());
+  }
+
+  /**
+   *  Tests that concurrent producers, sending both ordinary and priority messages to an ephemeral actor that
+   *  is disposed of after every turn, have each of their messages delivered exactly once.
+   */
+  @Test
+  public void testEphemeralConcurrentProducers() {
+    final int producers = 16;
+    final int runs = 100_000;
+    final AtomicIntegerArray received = new AtomicIntegerArray(producers * runs);
+
+    final ActorSystem system = new TestActorSystemConfig() {{
+      defaultActorConfig = new ActorConfig() {{
+        activationFactory = ActivationChoice.RING_QUEUE;
+        ringCapacity = 16;
+        ephemeral = true;
+      }};
+    }}
+    .createActorSystem()
+    .on(SINK).cue((a, m) -> received.incrementAndGet(m.body()));
+
+    final List<Thread> threads = new ArrayList<>(producers);
+    for (int p = 0; p < producers; p++) {
+      final int base = p * runs;
+      threads.add(Threads.asyncDaemon(() -> {
+        for (int i = 0; i < runs; i++) {
+          system.send(Message.builder().to(ActorRef.of(SINK)).body(base + i).priority(i % 3 == 0).build());
+        }
+      }, "RingQueueTestProducer-" + p));
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) { throw new RuntimeException(e); }
+    }
+    system.shutdownSilently();
+
+    for (int i = 0; i < received.length(); i++) {
+      assertEquals("message " + i, 1, received.get(i));
+    }
+  }
+}
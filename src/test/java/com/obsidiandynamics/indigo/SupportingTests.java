@@ -11,18 +11,26 @@ import com.obsidiandynamics.indigo.util.*;
 @RunWith(Suite.class)
 @SuiteClasses({
   ActorRefTest.class,
+  AffinityExecutorTest.class,
   AwaitableAtomicReferenceTest.class,
   CappedForkJoinPoolTest.class,
   ExecutorOptionsTest.class,
+  HistogramTest.class,
   IndigoVersionTest.class,
   Integral64Test.class,
   JvmVersionProviderTest.class,
   ActorExecutorTest.class,
   MessageBuilderTest.class,
+  MpscRingTest.class,
+  ParkingLotTest.class,
+  PendingRequestsTest.class,
+  ShardedSchedulerTest.class,
   StatefulLambdaActorBuilderTest.class,
   StatelessLambdaActorBuilderTest.class,
   TaskSchedulerTest.class,
   ThreadsTest.class,
+  TimeoutTaskTest.class,
+  TimingWheelSchedulerTest.class,
   ToStringTest.class,
   UtilConformanceTest.class
 })         
@@ -1,6 +1,7 @@
 package com.obsidiandynamics.indigo;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.junit.*;
 
@@ -16,6 +17,7 @@ public final class ThroughputBenchmark implements TestSupport {
     int threads;
     int actors;
     int bias;
+    boolean poolNodes;
     float warmupFrac;
     LogConfig log;
     
@@ -34,8 +36,9 @@ public final class ThroughputBenchmark implements TestSupport {
 
     @Override
     public String describe() {
-      return String.format("%d threads, %,d receive actors, %,d messages/actor, %.0f%% warmup fraction", 
-                           threads, actors, n, warmupFrac * 100);
+      return String.format("%d threads, %,d receive actors, %,d messages/actor, bias %,d, %.0f%% warmup fraction%s%s", 
+                           threads, actors, n, bias, warmupFrac * 100, poolNodes ? ", pooled nodes" : "",
+                           executorChoice != null ? ", " + executorChoice + " executor" : "");
     }
 
     @Override
@@ -58,6 +61,56 @@ public final class ThroughputBenchmark implements TestSupport {
     }}.test();
   }
   
+  @Test
+  public void testPooledNodes() throws Exception {
+    new Config() {{
+      threads = Runtime.getRuntime().availableProcessors();
+      actors = 4;
+      bias = 1_000;
+      poolNodes = true;
+      n = 1_000;
+      warmupFrac = .05f;
+      log = new LogConfig() {{
+        summary = stages = LOG;
+      }};
+    }}.test();
+  }
+  
+  /**
+   *  Dispatches a turn for every message, so that the allocations reported per message include those of
+   *  the dispatch itself.
+   */
+  @Test
+  public void testDispatchPerMessage() throws Exception {
+    new Config() {{
+      threads = Runtime.getRuntime().availableProcessors();
+      actors = 4;
+      bias = 1;
+      n = 1_000;
+      warmupFrac = .05f;
+      log = new LogConfig() {{
+        summary = stages = LOG;
+      }};
+    }}.test();
+  }
+  
+  @Test
+  public void testAffinity() throws Exception {
+    for (ExecutorChoice choice : new ExecutorChoice[] { ExecutorChoice.AFFINITY, ExecutorChoice.AFFINITY_STEALING }) {
+      new Config() {{
+        executorChoice = choice;
+        threads = Runtime.getRuntime().availableProcessors();
+        actors = 4;
+        bias = 1_000;
+        n = 1_000;
+        warmupFrac = .05f;
+        log = new LogConfig() {{
+          summary = stages = LOG;
+        }};
+      }}.test();
+    }
+  }
+  
   private Summary test(Config c) {
     final String SINK = "sink";
     
@@ -71,6 +124,7 @@ public final class ThroughputBenchmark implements TestSupport {
       reaperPeriodMillis = 0;
       defaultActorConfig = new ActorConfig() {{
         bias = c.bias;
+        poolNodes = c.poolNodes;
         backlogThrottleCapacity = Integer.MAX_VALUE;
         backlogThrottleTries = 10;
       }};
@@ -108,22 +162,31 @@ public final class ThroughputBenchmark implements TestSupport {
     
     if (c.log.stages) c.log.out.format("Starting timed run...\n");
     final long o = n - c.warmup;
+    // sender threads are transient, so their allocations are metered separately to those of the dispatchers
+    final AtomicLong sendersAllocated = new AtomicLong();
+    final long allocatedBefore = BenchmarkSupport.getAllocatedBytes();
     final long took = TestSupport.took(
       Parallel.blocking(c.actors, i -> {
+        final long senderAllocatedBefore = BenchmarkSupport.getAllocatedBytes(Thread.currentThread());
         final ActorRef to = refs[i];
         final Message m = Message.builder().to(to).build();
         for (int j = 0; j < o; j++) {
           system.send(m);
         }
         TestSupport.await(latch);
+        sendersAllocated.addAndGet(BenchmarkSupport.getAllocatedBytes(Thread.currentThread()) - senderAllocatedBefore);
       })
     );
+    final long allocatedAfter = BenchmarkSupport.getAllocatedBytes();
     
     system.shutdownSilently();
     
     final Summary summary = new Summary();
     summary.timedOps = o * c.actors;
     summary.avgTime = took;
+    if (allocatedBefore != -1) {
+      summary.allocatedBytes = allocatedAfter - allocatedBefore + sendersAllocated.get();
+    }
     return summary;
   }
   
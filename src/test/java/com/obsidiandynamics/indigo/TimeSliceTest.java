@@ -0,0 +1,137 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.ActorConfig.*;
+import com.obsidiandynamics.indigo.ActorSystemConfig.*;
+import com.obsidiandynamics.indigo.util.*;
+
+public final class TimeSliceTest implements TestSupport {
+  private static final String BLOCK = "block";
+
+  private ActorSystem system;
+
+  @Before
+  public void setup() {
+    system = new TestActorSystemConfig() {{
+      parallelism = 1;
+      executor = ExecutorChoice.FIXED_THREAD_POOL;
+    }}.createActorSystem();
+  }
+
+  @After
+  public void teardown() {
+    system.shutdownSilently();
+  }
+
+  private void drain() {
+    try {
+      system.drain(0);
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+  }
+
+  /**
+   *  Runs two backlogged actors, sharing a single thread, whose every message takes 2 ms to process, and
+   *  returns the longest run of consecutive messages processed by either actor while the other still had
+   *  messages queued.
+   *
+   *  @param actorConfig The actor configuration.
+   *  @param n The number of messages sent to each actor.
+   *  @return The longest run of consecutive messages.
+   */
+  private int runSlowActors(ActorConfig actorConfig, int n) {
+    final List<String> processedBy = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    for (String role : new String[] { "a", "b" }) {
+      system.on(role).withConfig(actorConfig).cue((a, m) -> {
+        if (BLOCK.equals(m.body())) {
+          blocked.countDown();
+          TestSupport.await(release);
+        } else {
+          TestSupport.sleep(2);
+          processedBy.add(role);
+        }
+      });
+    }
+
+    system.tell(ActorRef.of("a"), BLOCK);
+    TestSupport.await(blocked);
+    for (String role : new String[] { "a", "b" }) {
+      for (int i = 0; i < n; i++) {
+        system.tell(ActorRef.of(role), i);
+      }
+    }
+    release.countDown();
+    drain();
+    assertEquals(2 * n, processedBy.size());
+
+    // once either actor is done, the other's runs are no longer interleaved
+    final int end = Math.min(processedBy.lastIndexOf("a"), processedBy.lastIndexOf("b")) + 1;
+    int longestRun = 0;
+    for (int i = 0, run = 0; i < end; i++) {
+      run = i != 0 && processedBy.get(i).equals(processedBy.get(i - 1)) ? run + 1 : 1;
+      longestRun = Math.max(longestRun, run);
+    }
+    return longestRun;
+  }
+
+  private static ActorConfig config(ActivationChoice choice, int sliceMicros, int checkInterval) {
+    return new ActorConfig() {{
+      activationFactory = choice;
+      bias = 1_000;
+      turnSliceMicros = sliceMicros;
+      turnSliceCheckInterval = checkInterval;
+    }};
+  }
+
+  @Test
+  public void testTimeSliced() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      // 2 ms per message against a 5 ms slice leaves room for at most 3 messages per run
+      final int longestRun = runSlowActors(config(choice, 5_000, 1), 10);
+      assertTrue(choice + ": longestRun=" + longestRun, longestRun <= 3);
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test
+  public void testCheckInterval() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      // the clock is only read every 4 turns, by which point the 1 ms slice has always been spent
+      assertEquals(choice.toString(), 4, runSlowActors(config(choice, 1_000, 4), 10));
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test
+  public void testWithoutTimeSlice() {
+    for (ActivationChoice choice : ActivationChoice.values()) {
+      assertEquals(choice.toString(), 10, runSlowActors(config(choice, 0, 1), 10));
+      system.shutdownSilently();
+      setup();
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeTimeSlice() {
+    system.on("a").withConfig(config(ActivationChoice.NODE_QUEUE, -1, 1)).cue((a, m) -> {});
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNonPositiveCheckInterval() {
+    system.on("a").withConfig(config(ActivationChoice.NODE_QUEUE, 1_000, 0)).cue((a, m) -> {});
+  }
+
+  @Test
+  public void testCheckIntervalWithoutTimeSlice() {
+    system.on("a").withConfig(config(ActivationChoice.NODE_QUEUE, 0, 0)).cue((a, m) -> {});
+  }
+}
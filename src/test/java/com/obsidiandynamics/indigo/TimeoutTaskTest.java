@@ -0,0 +1,27 @@
+package com.obsidiandynamics.indigo;
+
+import static junit.framework.TestCase.*;
+
+import org.junit.*;
+
+public final class TimeoutTaskTest {
+  @Test
+  public void testIdentity() {
+    final TimeoutTask task = new TimeoutTask(10, 1, 2, null, null);
+    assertEquals(task, new TimeoutTask(10, 1, 2, null, null));
+    assertEquals(task.hashCode(), new TimeoutTask(10, 1, 2, null, null).hashCode());
+    assertEquals(0, task.compareTo(new TimeoutTask(10, 1, 2, null, null)));
+    assertFalse(task.equals(new TimeoutTask(11, 1, 2, null, null)));
+    assertFalse(task.equals(new TimeoutTask(10, 0, 2, null, null)));
+    assertFalse(task.equals(new TimeoutTask(10, 1, 3, null, null)));
+  }
+  
+  @Test
+  public void testOrdering() {
+    final TimeoutTask task = new TimeoutTask(10, 1, 2, null, null);
+    assertTrue(task.compareTo(new TimeoutTask(11, 0, 0, null, null)) < 0);
+    assertTrue(task.compareTo(new TimeoutTask(10, 2, 0, null, null)) < 0);
+    assertTrue(task.compareTo(new TimeoutTask(10, 1, 3, null, null)) < 0);
+    assertTrue(task.compareTo(new TimeoutTask(10, 1, 1, null, null)) > 0);
+  }
+}
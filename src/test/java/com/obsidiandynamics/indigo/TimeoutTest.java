@@ -4,9 +4,11 @@ import static com.obsidiandynamics.indigo.util.PropertyUtils.*;
 import static junit.framework.TestCase.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.junit.*;
 
+import com.obsidiandynamics.indigo.task.*;
 import com.obsidiandynamics.indigo.util.*;
 
 public final class TimeoutTest implements TestSupport {
@@ -73,6 +75,76 @@ public final class TimeoutTest implements TestSupport {
                avgDiff <= timeoutTolerance);
   }
   
+  /**
+   *  Tests a timeout storm, with all timeouts coming due at once and being signalled from the dispatcher
+   *  pool, verifying that the lag of each is recorded.
+   */
+  @Test
+  public void testBatchExpiryFanOut() {
+    testStorm(new TestActorSystemConfig() {{
+      timeoutBatchExpiry = true;
+      timeoutExpiryFanOut = true;
+    }});
+  }
+  
+  /**
+   *  Tests a timeout storm with timeouts spread over several schedulers.
+   */
+  @Test
+  public void testSharded() {
+    testStorm(new TestActorSystemConfig() {{
+      timeoutSchedulerShards = 4;
+    }});
+  }
+  
+  private void testStorm(ActorSystemConfig config) {
+    final int actors = 1_000;
+    final Set<ActorRef> timedOut = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    system = config.createActorSystem()
+    .on(DRIVER).cue((a, m) -> {
+      a.to(ActorRef.of(ECHO)).ask().await(MIN_TIMEOUT)
+      .onTimeout(() -> timedOut.add(a.self()))
+      .onResponse(r -> fail("Got unexpected response"));
+    })
+    .on(ECHO).cue((a, m) -> { /* do nothing, stalling the reply */ })
+    .ingress().times(actors).act((a, i) -> a.to(ActorRef.of(DRIVER, String.valueOf(i))).tell());
+
+    system.shutdownSilently();
+    assertEquals(actors, timedOut.size());
+
+    final LagStats lag = system.getTimeoutLag();
+    log("%s\n", lag);
+    assertEquals(actors, lag.getCount());
+  }
+  
+  /**
+   *  Tests shutting down with a pending timeout while timeouts are fanned out to the dispatcher pool. The
+   *  forced timeout must be signalled before the pool shuts down.
+   */
+  @Test
+  public void testShutdownFanOut() {
+    final CountDownLatch asked = new CountDownLatch(1);
+    final CountDownLatch timedOut = new CountDownLatch(1);
+    system = new TestActorSystemConfig() {{
+      timeoutExpiryFanOut = true;
+    }}
+    .createActorSystem()
+    .on(DRIVER).cue((a, m) -> {
+      a.to(ActorRef.of(ECHO)).ask().await(60_000)
+      .onTimeout(timedOut::countDown)
+      .onResponse(r -> fail("Got unexpected response"));
+      asked.countDown();
+    })
+    .on(ECHO).cue((a, m) -> { /* do nothing, stalling the reply */ });
+
+    system.tell(ActorRef.of(DRIVER));
+    TestSupport.await(asked);
+    system.forceTimeout();
+    system.shutdownSilently();
+    assertEquals(0, timedOut.getCount());
+  }
+  
   @Test(expected=IllegalStateException.class)
   public void testNoTimeoutScheduler() {
     system = new TestActorSystemConfig() {{
@@ -17,9 +17,11 @@ public class ToStringTest {
     assertToStringOverride(ActorRef.of("role"));
     assertToStringOverride(ActorRef.of("role", "key"));
     assertToStringOverride(new Activation(0, null, null, new ActorConfig(), null, null) {
-      @Override public boolean enqueue(Message m) { return false; }
+      @Override public boolean enqueue(Message m, long sentAt) { return false; }
+      @Override Offer tryEnqueue(Message m, long sentAt) { return Offer.DISPOSED; }
+      @Override void run() {}
     });
-    assertToStringOverride(new TimeoutTask(0, null, null, null));
+    assertToStringOverride(new TimeoutTask(0, 0, 0, null, null));
     assertToStringOverride(new Task<Integer>(0, null) {
       @Override protected void execute() {}
     });
@@ -0,0 +1,98 @@
+package com.obsidiandynamics.indigo.task;
+
+import static java.util.concurrent.TimeUnit.*;
+import static junit.framework.TestCase.*;
+import static org.awaitility.Awaitility.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.util.*;
+
+public final class ShardedSchedulerTest implements TestSupport {
+  private static final class TestTask extends Task<Long> {
+    private final List<Long> received;
+
+    TestTask(long time, long id, List<Long> received) {
+      super(time, id);
+      this.received = received;
+    }
+
+    @Override
+    protected void execute() {
+      received.add(getId());
+    }
+  }
+
+  private static final int SHARDS = 3;
+
+  private final List<Long> received = new CopyOnWriteArrayList<>();
+
+  private TaskScheduler[] shards;
+
+  private ShardedScheduler scheduler;
+
+  @Before
+  public void setup() {
+    shards = new TaskScheduler[SHARDS];
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new TaskScheduler("TestShardedScheduler-" + i);
+    }
+    scheduler = new ShardedScheduler(shards, task -> ((TestTask) task).getId());
+    scheduler.start();
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    scheduler.terminate();
+    for (TaskScheduler shard : shards) {
+      assertFalse(shard.isAlive());
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNoShards() {
+    new ShardedScheduler(new Scheduler[0], task -> 0);
+  }
+
+  @Test
+  public void testScheduleAndLag() {
+    final int tasks = 30;
+    for (long i = 0; i < tasks; i++) {
+      scheduler.schedule(new TestTask(System.nanoTime() + i * 100_000, i, received));
+    }
+
+    await().atMost(10, SECONDS).until(() -> received.size() == tasks);
+    assertEquals(tasks, new HashSet<>(received).size());
+    assertEquals(tasks, scheduler.getLag().getCount());
+    for (TaskScheduler shard : shards) {
+      assertEquals(tasks / SHARDS, shard.getLag().getCount());
+    }
+  }
+
+  @Test
+  public void testAbortAndForceExecute() {
+    final List<TestTask> tasks = new ArrayList<>();
+    for (long i = 0; i < 10; i++) {
+      final TestTask task = new TestTask(System.nanoTime() + 60_000_000_000l, i, received);
+      tasks.add(task);
+      scheduler.schedule(task);
+    }
+
+    // abort the even tasks, leaving the odd ones to be forced
+    for (TestTask task : tasks) {
+      if (task.getId() % 2 == 0) {
+        assertTrue(scheduler.abort(task));
+        assertFalse(scheduler.abort(task));
+      }
+    }
+    scheduler.executeNow(tasks.get(1));
+    assertEquals(Arrays.asList(1l), received);
+
+    scheduler.forceExecute();
+    await().atMost(10, SECONDS).until(() -> received.size() == 5);
+    assertEquals(new HashSet<>(Arrays.asList(1l, 3l, 5l, 7l, 9l)), new HashSet<>(received));
+  }
+}
@@ -154,6 +154,53 @@ public final class TaskSchedulerTest implements TestSupport {
     assertEquals(tasks, receiver.ids.size());
   }
   
+  /**
+   *  Tests that a burst of tasks coming due at the same time are all executed, with their execution
+   *  handed off to an executor, and their lag recorded.
+   */
+  @Test
+  public void testBatchExpiryFanOut() throws InterruptedException {
+    final int tasks = 1_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final TaskScheduler batchScheduler = new TaskScheduler("TestBatchTaskScheduler", true, executor);
+    batchScheduler.start();
+    try {
+      final long time = System.nanoTime() + 10_000_000l;
+      for (int i = 0; i < tasks; i++) {
+        batchScheduler.schedule(new TestTask(time, UUID.randomUUID(), receiver));
+      }
+
+      await().atMost(10, SECONDS).until(receiver.isSize(tasks));
+      assertEquals(tasks, batchScheduler.getLag().getCount());
+      assertEquals(0, scheduler.getLag().getCount());
+    } finally {
+      batchScheduler.terminate();
+      executor.shutdown();
+    }
+  }
+  
+  /**
+   *  Tests that tasks are executed on the scheduler thread once the expiry executor has shut down, both
+   *  when they come due and when they are forced.
+   */
+  @Test
+  public void testFanOutRejected() throws InterruptedException {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    final TaskScheduler fanOutScheduler = new TaskScheduler("TestFanOutTaskScheduler", true, executor);
+    fanOutScheduler.start();
+    try {
+      fanOutScheduler.schedule(doIn(0));
+      await().atMost(10, SECONDS).until(receiver.isSize(1));
+
+      fanOutScheduler.schedule(doIn(60_000));
+      fanOutScheduler.forceExecute();
+      await().atMost(10, SECONDS).until(receiver.isSize(2));
+    } finally {
+      fanOutScheduler.terminate();
+    }
+  }
+  
   private TestTask doIn(long millis) {
     return new TestTask(System.nanoTime() + millis * 1_000_000l, 
                         UUID.randomUUID(),
@@ -0,0 +1,258 @@
+package com.obsidiandynamics.indigo.task;
+
+import static java.util.concurrent.TimeUnit.*;
+import static junit.framework.TestCase.*;
+import static org.awaitility.Awaitility.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.indigo.util.*;
+import com.obsidiandynamics.threads.*;
+
+public final class TimingWheelSchedulerTest implements TestSupport {
+  private static final class TestTask extends Task<Long> {
+    private final Receiver receiver;
+
+    TestTask(long time, long id, Receiver receiver) {
+      super(time, id);
+      this.receiver = receiver;
+    }
+
+    @Override
+    protected void execute() {
+      receiver.receive(this);
+    }
+  }
+
+  private static final class Receiver {
+    private final List<Long> ids = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger early = new AtomicInteger();
+
+    void receive(TestTask task) {
+      if (System.nanoTime() < task.getTime()) early.incrementAndGet();
+      ids.add(task.getId());
+    }
+
+    Callable<Boolean> isSize(int size) {
+      return () -> ids.size() == size;
+    }
+  }
+
+  private Receiver receiver;
+
+  private TimingWheelScheduler scheduler;
+
+  private long nextId;
+
+  private void start(long tickNanos) {
+    receiver = new Receiver();
+    scheduler = new TimingWheelScheduler("TestTimingWheelScheduler", tickNanos);
+    scheduler.start();
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    if (scheduler != null) scheduler.terminate();
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidTick() {
+    new TimingWheelScheduler("TestTimingWheelScheduler", 0);
+  }
+
+  @Test
+  public void testSchedule() {
+    start(1_000_000);
+    final List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TestTask task = doIn(i * 2);
+      ids.add(task.getId());
+      scheduler.schedule(task);
+    }
+
+    await().atMost(10, SECONDS).until(receiver.isSize(ids.size()));
+    assertEquals(ids, receiver.ids);
+    assertEquals(0, receiver.early.get());
+  }
+
+  /**
+   *  Tests tasks that span several levels of the wheel, by using a fine tick. With a 1 µs tick, the second
+   *  level starts at 256 µs, and the third at around 65 ms.
+   */
+  @Test
+  public void testCascade() {
+    start(1_000);
+    final long[] delaysMicros = { 100, 1_000, 10_000, 100_000, 300_000 };
+    final List<Long> ids = new ArrayList<>();
+    // schedule in the reverse order, so that the execution order is not incidental
+    for (int i = delaysMicros.length; --i >= 0;) {
+      final TestTask task = new TestTask(System.nanoTime() + delaysMicros[i] * 1_000, i, receiver);
+      scheduler.schedule(task);
+      ids.add(0, task.getId());
+    }
+
+    await().atMost(10, SECONDS).until(receiver.isSize(ids.size()));
+    assertEquals(ids, receiver.ids);
+    assertEquals(0, receiver.early.get());
+  }
+
+  @Test
+  public void testOverdue() {
+    start(1_000_000);
+    final TestTask task = doIn(-1_000);
+    scheduler.schedule(task);
+    await().atMost(10, SECONDS).until(receiver.isSize(1));
+  }
+
+  @Test
+  public void testScheduleInterrupted() {
+    start(1_000_000);
+    final TestTask task = doIn(50);
+    // interruption should abort delivery and terminate the thread
+    scheduler.interrupt();
+    scheduler.schedule(task);
+    await().atMost(10, SECONDS).until(() -> ! scheduler.isAlive());
+    assertEquals(0, receiver.ids.size());
+  }
+
+  @Test
+  public void testForceExecute() {
+    start(1_000_000);
+    final List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TestTask task = doIn(60_000 + i * 1_000);
+      ids.add(task.getId());
+      scheduler.schedule(task);
+    }
+
+    assertEquals(0, receiver.ids.size());
+    scheduler.forceExecute();
+    await().atMost(10, SECONDS).until(receiver.isSize(ids.size()));
+    assertEquals(ids, receiver.ids);
+
+    // tasks scheduled subsequently should also be executed immediately
+    scheduler.schedule(doIn(60_000));
+    await().atMost(10, SECONDS).until(receiver.isSize(ids.size() + 1));
+  }
+
+  @Test
+  public void testAbort() {
+    start(1_000_000);
+    final List<TestTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TestTask task = doIn(i % 2 == 0 ? 60_000 + i * 1_000 : 100 + i);
+      tasks.add(task);
+      scheduler.schedule(task);
+    }
+
+    for (TestTask task : tasks) {
+      assertTrue(scheduler.abort(task));
+      assertFalse(scheduler.abort(task)); // 2nd call should have no effect
+    }
+
+    TestSupport.sleep(20);
+    assertEquals(0, receiver.ids.size());
+    scheduler.forceExecute();
+    TestSupport.sleep(10);
+    assertEquals(0, receiver.ids.size());
+  }
+
+  @Test
+  public void testEarlyExecute() {
+    start(1_000_000);
+    final List<TestTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TestTask task = doIn(60_000 + i * 1_000);
+      tasks.add(task);
+      scheduler.schedule(task);
+    }
+
+    for (TestTask task : tasks) {
+      scheduler.executeNow(task);
+      scheduler.executeNow(task); // 2nd call should have no effect
+    }
+    assertEquals(tasks.size(), receiver.ids.size());
+    scheduler.forceExecute();
+    TestSupport.sleep(10);
+    assertEquals(tasks.size(), receiver.ids.size());
+  }
+
+  @Test
+  public void testClear() {
+    start(1_000_000);
+    final List<TestTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TestTask task = doIn(i % 2 == 0 ? 60_000 : 0);
+      tasks.add(task);
+      scheduler.schedule(task);
+    }
+
+    scheduler.clear();
+    for (TestTask task : tasks) {
+      assertFalse(scheduler.abort(task));
+    }
+    scheduler.forceExecute();
+    TestSupport.sleep(10);
+    assertEquals(0, receiver.ids.size());
+
+    scheduler.schedule(doIn(0));
+    await().atMost(10, SECONDS).until(receiver.isSize(1));
+  }
+
+  /**
+   *  Tests that tasks scheduled and aborted concurrently by several threads are executed exactly once,
+   *  unless aborted.
+   */
+  @Test
+  public void testConcurrent() {
+    start(100_000);
+    final int threads = 4;
+    final int tasksPerThread = 10_000;
+    final Set<Long> expected = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    Parallel.blocking(threads, t -> {
+      final Random random = new Random(t);
+      for (int i = 0; i < tasksPerThread; i++) {
+        final TestTask task = new TestTask(System.nanoTime() + random.nextInt(20_000_000),
+                                           (long) t * tasksPerThread + i, receiver);
+        scheduler.schedule(task);
+        // an abort may fail if the task has already been executed
+        if (! random.nextBoolean() || ! scheduler.abort(task)) {
+          expected.add(task.getId());
+        }
+      }
+    }).run();
+
+    await().atMost(10, SECONDS).until(receiver.isSize(expected.size()));
+    assertEquals(expected, new HashSet<>(receiver.ids));
+    assertEquals(0, receiver.early.get());
+  }
+
+  /**
+   *  Tests that tasks are executed on the scheduler thread once the expiry executor has shut down, both
+   *  when they come due and when they are forced.
+   */
+  @Test
+  public void testFanOutRejected() throws InterruptedException {
+    receiver = new Receiver();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    scheduler = new TimingWheelScheduler("TestTimingWheelScheduler", 1_000_000, executor);
+    scheduler.start();
+
+    scheduler.schedule(doIn(0));
+    await().atMost(10, SECONDS).until(receiver.isSize(1));
+
+    scheduler.schedule(doIn(60_000));
+    scheduler.forceExecute();
+    await().atMost(10, SECONDS).until(receiver.isSize(2));
+  }
+
+  private TestTask doIn(long millis) {
+    return new TestTask(System.nanoTime() + millis * 1_000_000l, nextId++, receiver);
+  }
+}
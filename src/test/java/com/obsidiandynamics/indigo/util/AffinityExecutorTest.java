@@ -0,0 +1,187 @@
+package com.obsidiandynamics.indigo.util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+public final class AffinityExecutorTest implements TestSupport {
+  private AffinityExecutor executor;
+
+  @After
+  public void teardown() throws InterruptedException {
+    if (executor != null) {
+      executor.shutdownNow();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+
+  private static Thread runOn(Executor executor, int affinity) throws Exception {
+    final CompletableFuture<Thread> thread = new CompletableFuture<>();
+    ((AffinityExecutor) executor).execute(() -> thread.complete(Thread.currentThread()), affinity);
+    return thread.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testPinnedByAffinity() throws Exception {
+    executor = new AffinityExecutor(4, false);
+    assertEquals(4, executor.getThreads());
+    assertFalse(executor.isStealing());
+
+    final Set<Thread> threads = new HashSet<>();
+    for (int affinity = 0; affinity < 16; affinity++) {
+      final Thread thread = runOn(executor, affinity);
+      for (int i = 0; i < 10; i++) {
+        assertSame(thread, runOn(executor, affinity));
+      }
+      threads.add(thread);
+    }
+    assertEquals(4, threads.size());
+  }
+
+  @Test
+  public void testUnkeyedFromWorker() throws Exception {
+    executor = new AffinityExecutor(4, false);
+    final CompletableFuture<Thread> inner = new CompletableFuture<>();
+    final CompletableFuture<Thread> outer = new CompletableFuture<>();
+    executor.execute(() -> {
+      outer.complete(Thread.currentThread());
+      executor.execute(() -> inner.complete(Thread.currentThread()));
+    }, 0);
+    assertSame(outer.get(10, TimeUnit.SECONDS), inner.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testOrderedPerWorker() throws Exception {
+    executor = new AffinityExecutor(2, false);
+    final int n = 10_000;
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch done = new CountDownLatch(n);
+    for (int i = 0; i < n; i++) {
+      final int _i = i;
+      executor.execute(() -> {
+        order.add(_i);
+        done.countDown();
+      }, 1);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  private static void testBlockedWorker(boolean stealing, AffinityExecutor executor) throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    executor.execute(() -> {
+      blocked.countDown();
+      TestSupport.await(release);
+    }, 0);
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+    // queued behind the blocked worker
+    final CountDownLatch ran = new CountDownLatch(1);
+    executor.execute(ran::countDown, 0);
+    try {
+      assertEquals(stealing, ran.await(stealing ? 10_000 : 50, TimeUnit.MILLISECONDS));
+    } finally {
+      release.countDown();
+    }
+    assertTrue(ran.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testBlockedWorkerWithoutStealing() throws Exception {
+    executor = new AffinityExecutor(2, false);
+    testBlockedWorker(false, executor);
+  }
+
+  @Test
+  public void testBlockedWorkerWithStealing() throws Exception {
+    executor = new AffinityExecutor(2, true);
+    assertTrue(executor.isStealing());
+    testBlockedWorker(true, executor);
+  }
+
+  @Test
+  public void testStealingLoad() throws Exception {
+    executor = new AffinityExecutor(4, true);
+    final int n = 100_000;
+    final AtomicInteger ran = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(n);
+    for (int i = 0; i < n; i++) {
+      executor.execute(() -> {
+        ran.incrementAndGet();
+        done.countDown();
+      }, i % 3);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(n, ran.get());
+  }
+
+  @Test
+  public void testExceptionKeepsWorker() throws Exception {
+    executor = new AffinityExecutor(1, false, "AffinityExecutorTest");
+    final Thread thread = runOn(executor, 0);
+    assertEquals("AffinityExecutorTest-0", thread.getName());
+    final CountDownLatch handled = new CountDownLatch(1);
+    thread.setUncaughtExceptionHandler((t, e) -> handled.countDown());
+    executor.execute(() -> { throw new IllegalStateException("boom"); }, 0);
+    assertTrue(handled.await(10, TimeUnit.SECONDS));
+    assertSame(thread, runOn(executor, 0));
+  }
+
+  @Test
+  public void testShutdownRunsQueuedTasks() throws Exception {
+    executor = new AffinityExecutor(2, false);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger ran = new AtomicInteger();
+    executor.execute(() -> TestSupport.await(release), 0);
+    for (int i = 0; i < 10; i++) {
+      executor.execute(ran::incrementAndGet, 0);
+    }
+    executor.shutdown();
+    assertTrue(executor.isShutdown());
+    assertFalse(executor.isTerminated());
+    release.countDown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(executor.isTerminated());
+    assertEquals(10, ran.get());
+  }
+
+  @Test(expected=RejectedExecutionException.class)
+  public void testRejectAfterShutdown() {
+    executor = new AffinityExecutor(1, false);
+    executor.shutdown();
+    executor.execute(() -> {}, 0);
+  }
+
+  @Test
+  public void testShutdownNow() throws Exception {
+    executor = new AffinityExecutor(1, false);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    executor.execute(() -> {
+      blocked.countDown();
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {}
+    }, 0);
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+    assertFalse(executor.hasQueuedTasks(0));
+    executor.execute(() -> {}, 0);
+    executor.execute(() -> {}, 0);
+    assertTrue(executor.hasQueuedTasks(0));
+    assertEquals(2, executor.getQueuedTasks());
+    assertEquals(2, executor.shutdownNow().size());
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testToString() {
+    executor = new AffinityExecutor(1, false);
+    assertTrue(executor.toString().contains("threads=1"));
+  }
+}
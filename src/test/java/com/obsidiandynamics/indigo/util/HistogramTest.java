@@ -0,0 +1,77 @@
+package com.obsidiandynamics.indigo.util;
+
+import static junit.framework.TestCase.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.threads.*;
+
+public final class HistogramTest implements TestSupport {
+  @Test
+  public void testBuckets() {
+    long lastHighest = -1;
+    for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++) {
+      final long highest = Histogram.highestValueOf(bucket);
+      assertTrue(highest > lastHighest);
+      assertEquals(bucket, Histogram.bucketOf(highest));
+      assertEquals(bucket, Histogram.bucketOf(lastHighest + 1));
+      lastHighest = highest;
+    }
+    
+    assertEquals(0, Histogram.bucketOf(-1));
+    assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+  }
+  
+  @Test
+  public void testPrecision() {
+    for (long value = 1; value < 1l << 40; value = value * 3 / 2 + 1) {
+      final long highest = Histogram.highestValueOf(Histogram.bucketOf(value));
+      assertTrue("value=" + value + ", highest=" + highest, highest >= value && highest - value <= value / 32);
+    }
+  }
+  
+  @Test
+  public void testEmpty() {
+    final Histogram.Snapshot snapshot = new Histogram().snapshot();
+    assertEquals(0, snapshot.getCount());
+    assertEquals(0, snapshot.getValueAtPercentile(50));
+    assertEquals(0, snapshot.getMax());
+    assertEquals(0d, snapshot.getMean());
+  }
+  
+  @Test
+  public void testPercentiles() {
+    final Histogram histogram = new Histogram(4);
+    for (int i = 1; i <= 1_000; i++) {
+      histogram.record(i);
+    }
+    histogram.record(1_000_000, 2);
+    
+    final Histogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1_002, snapshot.getCount());
+    assertWithin(501, snapshot.getValueAtPercentile(50));
+    assertWithin(992, snapshot.getValueAtPercentile(99));
+    assertWithin(1_000_000, snapshot.getValueAtPercentile(99.9));
+    assertWithin(1_000_000, snapshot.getMax());
+    assertEquals((500_500d + 2_000_000d) / 1_002, snapshot.getMean(), 0.001);
+    assertNotNull(snapshot.toString());
+  }
+  
+  @Test
+  public void testConcurrent() {
+    final int threads = 4;
+    final int valuesPerThread = 100_000;
+    final Histogram histogram = new Histogram(threads);
+    Parallel.blocking(threads, t -> {
+      for (int i = 0; i < valuesPerThread; i++) {
+        histogram.record(i);
+      }
+    }).run();
+    
+    assertEquals(threads * valuesPerThread, histogram.snapshot().getCount());
+  }
+  
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected=" + expected + ", actual=" + actual, actual >= expected && actual - expected <= expected / 32);
+  }
+}
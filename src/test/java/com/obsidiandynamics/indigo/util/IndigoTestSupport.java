@@ -24,6 +24,26 @@ public interface IndigoTestSupport extends TestSupport {
     return count;
   }
   
+  /**
+   *  Wraps a lambda in a {@link BatchActor}, which acts on the messages of a batch one at a time.
+   *  
+   *  @param onMessage The lambda to invoke for each message.
+   *  @return The actor.
+   */
+  static BatchActor batchActor(BiConsumer<Activation, Message> onMessage) {
+    return new BatchActor() {
+      @Override public void act(Activation a, Message m) {
+        onMessage.accept(a, m);
+      }
+      
+      @Override public void actBatch(Activation a, List<Message> messages) {
+        for (Message m : messages) {
+          onMessage.accept(a, m);
+        }
+      }
+    };
+  }
+  
   static Executor oneTimeExecutor(String threadName) {
     return r -> Threads.asyncDaemon(r, threadName);
   }
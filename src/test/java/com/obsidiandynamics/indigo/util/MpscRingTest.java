@@ -0,0 +1,101 @@
+package com.obsidiandynamics.indigo.util;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.threads.*;
+
+public final class MpscRingTest implements TestSupport {
+  @Test
+  public void testCapacity() {
+    assertEquals(1, new MpscRing<>(1).capacity());
+    assertEquals(2, new MpscRing<>(2).capacity());
+    assertEquals(4, new MpscRing<>(3).capacity());
+    assertEquals(1024, new MpscRing<>(1000).capacity());
+    assertEquals(1024, new MpscRing<>(1024).capacity());
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testZeroCapacity() {
+    new MpscRing<>(0);
+  }
+
+  @Test
+  public void testOfferPoll() {
+    final MpscRing<Integer> ring = new MpscRing<>(4);
+    assertNull(ring.poll());
+    assertTrue(ring.hasCapacity());
+
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(ring.offer(i));
+      }
+      assertEquals(4, ring.size());
+      assertFalse(ring.hasCapacity());
+      assertFalse(ring.offer(4));
+
+      for (int i = 0; i < 4; i++) {
+        assertEquals(Integer.valueOf(i), ring.poll());
+      }
+      assertNull(ring.poll());
+      assertEquals(0, ring.size());
+    }
+  }
+
+  @Test
+  public void testStamped() {
+    final MpscRing<Integer> ring = new MpscRing<>(2, true);
+    for (int lap = 0; lap < 3; lap++) {
+      assertTrue(ring.offer(0, 100 + lap));
+      assertTrue(ring.offer(1, 200 + lap));
+      assertEquals(Integer.valueOf(0), ring.poll());
+      assertEquals(100 + lap, ring.getPolledStamp());
+      assertEquals(Integer.valueOf(1), ring.poll());
+      assertEquals(200 + lap, ring.getPolledStamp());
+    }
+  }
+
+  @Test
+  public void testConcurrentProducers() {
+    final int producers = 4;
+    final int runs = 10_000;
+    final MpscRing<long[]> ring = new MpscRing<>(16);
+    final long[] lastSeen = new long[producers];
+    Arrays.fill(lastSeen, -1);
+
+    final Thread consumer = new Thread(() -> {
+      for (int received = 0; received < producers * runs;) {
+        final long[] e = ring.poll();
+        if (e != null) {
+          final int producer = (int) e[0];
+          assertEquals(lastSeen[producer] + 1, e[1]);
+          lastSeen[producer] = e[1];
+          received++;
+        } else {
+          Thread.yield();
+        }
+      }
+    });
+    consumer.start();
+
+    Parallel.blocking(producers, producer -> {
+      for (long i = 0; i < runs; i++) {
+        final long[] e = { producer, i };
+        while (! ring.offer(e)) {
+          Thread.yield();
+        }
+      }
+    }).run();
+
+    try {
+      consumer.join();
+    } catch (InterruptedException e) { throw new RuntimeException(e); }
+
+    for (int producer = 0; producer < producers; producer++) {
+      assertEquals(runs - 1, lastSeen[producer]);
+    }
+  }
+}
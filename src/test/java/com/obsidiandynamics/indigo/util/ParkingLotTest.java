@@ -0,0 +1,69 @@
+package com.obsidiandynamics.indigo.util;
+
+import static junit.framework.TestCase.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.ForkJoinPool.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import org.junit.*;
+
+public final class ParkingLotTest implements TestSupport {
+  private static final int RELEASE_DELAY_MILLIS = 50;
+  
+  /** The number of condition tests beyond which the waiter is deemed to be spinning. */
+  private static final int SPIN_THRESHOLD = 1_000;
+  
+  @Test
+  public void testAwaitMet() {
+    new ParkingLot().await(() -> true);
+    assertFalse(Thread.interrupted());
+  }
+  
+  @Test
+  public void testAwaitInterrupted() {
+    final ParkingLot lot = new ParkingLot();
+    final AtomicBoolean met = new AtomicBoolean();
+    final AtomicInteger tests = new AtomicInteger();
+    final Thread releaser = Threads.asyncDaemon(() -> {
+      TestSupport.sleep(RELEASE_DELAY_MILLIS);
+      met.set(true);
+      lot.release();
+    }, "releaser");
+    
+    Thread.currentThread().interrupt();
+    lot.await(() -> {
+      tests.incrementAndGet();
+      return met.get();
+    });
+    
+    assertTrue(Thread.interrupted());
+    assertTrue("tests=" + tests, tests.get() < SPIN_THRESHOLD);
+    assertFalse(lot.hasWaiters());
+    try {
+      releaser.join();
+    } catch (InterruptedException e) { throw new AssertionError(e); }
+  }
+  
+  @Test
+  public void testManagedBlockInterrupted() {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RELEASE_DELAY_MILLIS);
+    final AtomicInteger blocks = new AtomicInteger();
+    Thread.currentThread().interrupt();
+    ParkingLot.managedBlockUninterruptibly(new ManagedBlocker() {
+      @Override public boolean block() {
+        blocks.incrementAndGet();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        return isReleasable();
+      }
+
+      @Override public boolean isReleasable() {
+        return System.nanoTime() - deadline >= 0;
+      }
+    });
+    
+    assertTrue(Thread.interrupted());
+    assertTrue("blocks=" + blocks, blocks.get() < SPIN_THRESHOLD);
+  }
+}
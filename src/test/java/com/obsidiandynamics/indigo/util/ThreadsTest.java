@@ -1,7 +1,13 @@
 package com.obsidiandynamics.indigo.util;
 
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+
 import org.junit.*;
 
+import com.obsidiandynamics.indigo.util.JvmVersionProvider.*;
+
 public final class ThreadsTest implements TestSupport {
   @Test
   public void testThrottleTries() {
@@ -13,4 +19,31 @@ public final class ThreadsTest implements TestSupport {
   public void testThrottleCondition() {
     Threads.throttle(() -> false, Integer.MAX_VALUE, 1);
   }
+  
+  @Test
+  public void testVirtualThreadSupport() {
+    assertFalse(Threads.isVirtualThreadSupported(new JvmVersion(1, 8, 0, 65)));
+    assertFalse(Threads.isVirtualThreadSupported(new JvmVersion(17, 0, 2, 0)));
+    assertTrue(Threads.isVirtualThreadSupported(new JvmVersion(21, 0, 0, 0)));
+  }
+  
+  @Test
+  public void testIsVirtual() throws Exception {
+    assertFalse(Threads.isVirtual(Thread.currentThread()));
+    
+    final JvmVersion version = new JvmVersionProvider.DefaultProvider().get();
+    if (Threads.isVirtualThreadSupported(version)) {
+      final ExecutorService executor = Threads.virtualThreadPool(version);
+      try {
+        assertTrue(executor.submit(() -> Threads.isVirtual(Thread.currentThread())).get());
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+  
+  @Test(expected=UnsupportedOperationException.class)
+  public void testVirtualThreadPoolUnsupported() {
+    Threads.virtualThreadPool(new JvmVersion(17, 0, 2, 0));
+  }
 }